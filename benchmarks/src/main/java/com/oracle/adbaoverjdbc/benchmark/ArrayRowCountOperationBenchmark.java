@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
+
+import jdk.incubator.sql2.AdbaType;
+import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.Session;
+
+/**
+ * Time to insert an array of rows with an ArrayRowCountOperation, for 
+ * several array lengths and chunk sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayRowCountOperationBenchmark {
+  
+  private static final String SQL = "INSERT INTO t(id, name) VALUES (?, ?)";
+  
+  @Param({"10", "1000", "100000"})
+  public int rows;
+  
+  /** the value of SessionPropertiesJdbc.ARRAY_COUNT_CHUNK_SIZE */
+  @Param({"0", "1000"})
+  public int chunkSize;
+  
+  private DataSource dataSource;
+  private Session session;
+  private int[] ids;
+  private String[] names;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    dataSource = Benchmarks.newDataSource();
+    session = dataSource.builder()
+      .property(SessionPropertiesJdbc.ARRAY_COUNT_CHUNK_SIZE, chunkSize)
+      .build()
+      .attach();
+    ids = new int[rows];
+    names = new String[rows];
+    for (int i = 0; i < rows; i++) {
+      ids[i] = i;
+      names[i] = "name" + i;
+    }
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    session.close();
+    dataSource.close();
+  }
+  
+  @Benchmark
+  public long insert() {
+    return Benchmarks.join(
+      session.<Long>arrayRowCountOperation(SQL)
+        .set("1", ids)
+        .set("2", names, AdbaType.VARCHAR)
+        .collect(Collector.of(() -> new long[1],
+                              (a, c) -> a[0] += c.getCount(),
+                              (a, b) -> { a[0] += b[0]; return a; },
+                              a -> a[0]))
+        .submit()
+        .getCompletionStage());
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.benchmark;
+
+import java.util.concurrent.CompletionStage;
+
+import com.oracle.adbaoverjdbc.DataSourceFactoryJdbc;
+
+import jdk.incubator.sql2.DataSource;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+final class Benchmarks {
+  
+  private Benchmarks() {}
+  
+  /**
+   * @return a DataSource that connects to the stub driver
+   */
+  static DataSource newDataSource() {
+    StubDriver.register();
+    return new DataSourceFactoryJdbc().builder()
+      .url(StubDriver.URL)
+      .username("bench")
+      .password("bench")
+      .build();
+  }
+  
+  /**
+   * Wait for a stage to complete. Benchmarks measure the time until the 
+   * Operation's result is available, not just until it is submitted.
+   */
+  static <T> T join(CompletionStage<T> stage) {
+    return stage.toCompletableFuture().join();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk.incubator.sql2.AdbaType;
+import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.Result;
+import jdk.incubator.sql2.Session;
+
+/**
+ * Latency distribution of a single CountOperation from submit until its 
+ * result is available. Since the stub driver does no work this is the 
+ * overhead AoJ adds to every update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountOperationBenchmark {
+  
+  private static final String SQL = "UPDATE t SET name = ? WHERE id = ?";
+  
+  private DataSource dataSource;
+  private Session session;
+  private int id = 0;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    dataSource = Benchmarks.newDataSource();
+    session = dataSource.getSession();
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    session.close();
+    dataSource.close();
+  }
+  
+  @Benchmark
+  public long update() {
+    id++;
+    return Benchmarks.join(
+      session.<Long>rowCountOperation(SQL)
+        .set("1", "name" + id, AdbaType.VARCHAR)
+        .set("2", id, AdbaType.INTEGER)
+        .apply(Result.RowCount::getCount)
+        .submit()
+        .getCompletionStage());
+  }
+}
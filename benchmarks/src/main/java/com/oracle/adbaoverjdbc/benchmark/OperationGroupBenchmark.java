@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.OperationGroup;
+import jdk.incubator.sql2.Session;
+import jdk.incubator.sql2.Submission;
+
+/**
+ * Time to run an OperationGroup of local Operations that do no work, so all
+ * of the time is spent building and completing the CompletionStage chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperationGroupBenchmark {
+  
+  @Param({"1", "10", "100"})
+  public int members;
+  
+  @Param({"false", "true"})
+  public boolean parallel;
+  
+  private DataSource dataSource;
+  private Session session;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    dataSource = Benchmarks.newDataSource();
+    session = dataSource.getSession();
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    session.close();
+    dataSource.close();
+  }
+  
+  @Benchmark
+  public int group() {
+    Submission<Integer> submission;
+    try (OperationGroup<Integer, Integer> group = session.operationGroup()) {
+      if (parallel) group.parallel();
+      submission = group.collect(Collectors.summingInt(i -> i)).submit();
+      for (int i = 0; i < members; i++) {
+        group.<Integer>localOperation()
+             .onExecution(() -> 1)
+             .submit();
+      }
+    }
+    return Benchmarks.join(submission.getCompletionStage());
+  }
+}
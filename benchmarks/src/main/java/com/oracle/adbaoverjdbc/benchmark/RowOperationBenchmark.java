@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.Session;
+
+/**
+ * Rows per second read by a RowOperation for a range of fetch sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowOperationBenchmark {
+  
+  private static final int ROWS = 10_000;
+  private static final String SQL = "SELECT id, name FROM ROWS(" + ROWS + ")";
+  
+  @Param({"1", "10", "100", "1000"})
+  public int fetchSize;
+  
+  private DataSource dataSource;
+  private Session session;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    dataSource = Benchmarks.newDataSource();
+    session = dataSource.getSession();
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    session.close();
+    dataSource.close();
+  }
+  
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public long sumColumn() {
+    return Benchmarks.join(
+      session.<Long>rowOperation(SQL)
+        .fetchSize(fetchSize)
+        .collect(Collector.of(() -> new long[1],
+                              (a, r) -> a[0] += r.at(1).get(Integer.class),
+                              (a, b) -> { a[0] += b[0]; return a; },
+                              a -> a[0]))
+        .submit()
+        .getCompletionStage());
+  }
+}
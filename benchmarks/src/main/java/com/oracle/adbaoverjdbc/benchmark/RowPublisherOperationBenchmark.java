@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
+
+import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.Result;
+import jdk.incubator.sql2.Session;
+
+/**
+ * Rows per second delivered by a RowPublisherOperation to a Subscriber that
+ * requests a fixed number of rows at a time, with and without prefetch and
+ * buffering.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowPublisherOperationBenchmark {
+  
+  private static final int ROWS = 10_000;
+  private static final String SQL = "SELECT id, name FROM ROWS(" + ROWS + ")";
+  
+  /** rows requested by each call to Subscription.request. 0 is unbounded */
+  @Param({"1", "16", "256", "0"})
+  public long demand;
+  
+  /** the value of SessionPropertiesJdbc.ROW_PUBLISHER_PREFETCH */
+  @Param({"0", "64"})
+  public int prefetch;
+  
+  /** the value of SessionPropertiesJdbc.ROW_PUBLISHER_BUFFER */
+  @Param({"0", "256"})
+  public int buffer;
+  
+  private DataSource dataSource;
+  private Session session;
+  
+  @Setup(Level.Trial)
+  public void setup() {
+    dataSource = Benchmarks.newDataSource();
+    session = dataSource.builder()
+      .property(SessionPropertiesJdbc.ROW_PUBLISHER_PREFETCH, prefetch)
+      .property(SessionPropertiesJdbc.ROW_PUBLISHER_BUFFER, buffer)
+      .build()
+      .attach();
+  }
+  
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    session.close();
+    dataSource.close();
+  }
+  
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public long subscribe() {
+    CompletableFuture<Long> result = new CompletableFuture<>();
+    session.<Long>rowPublisherOperation(SQL)
+      .subscribe(new CountingSubscriber(demand == 0 ? Long.MAX_VALUE : demand, 
+                                        result), 
+                 result)
+      .submit();
+    return result.join();
+  }
+  
+  /**
+   * Sums the ID column and requests more rows each time the previous request
+   * has been delivered.
+   */
+  private static final class CountingSubscriber 
+      implements Flow.Subscriber<Result.RowColumn> {
+    
+    private final long batch;
+    private final CompletableFuture<Long> result;
+    private Flow.Subscription subscription;
+    private long outstanding = 0;
+    private long sum = 0;
+    
+    CountingSubscriber(long batch, CompletableFuture<Long> result) {
+      this.batch = batch;
+      this.result = result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription s) {
+      subscription = s;
+      outstanding = batch;
+      s.request(batch);
+    }
+
+    @Override
+    public void onNext(Result.RowColumn row) {
+      sum += row.at(1).get(Integer.class);
+      if (--outstanding == 0) {
+        outstanding = batch;
+        subscription.request(batch);
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      result.completeExceptionally(t);
+    }
+
+    @Override
+    public void onComplete() {
+      result.complete(sum);
+    }
+  }
+}
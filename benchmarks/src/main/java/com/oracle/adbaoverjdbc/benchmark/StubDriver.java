@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A JDBC driver that does no I/O so that benchmarks measure AoJ rather than a
+ * database. Accepts any URL starting with {@link #URL}.
+ * 
+ * Every query returns the number of rows given by the last ROWS(n) in its SQL,
+ * or 1 if there is none. Each row has an INTEGER column ID, the row number
+ * starting at 1, and a VARCHAR column NAME. Every update counts 1 row and 
+ * every batch counts 1 row per added parameter set. Other methods, including
+ * all parameter setters, do nothing and return 0, false or null.
+ */
+public class StubDriver implements Driver {
+  
+  public static final String URL = "jdbc:aojstub:";
+  
+  private static final Pattern ROWS = Pattern.compile("ROWS\\((\\d+)\\)", 
+                                                      Pattern.CASE_INSENSITIVE);
+  
+  static {
+    register();
+  }
+  
+  /**
+   * Make sure DriverManager knows the stub driver. Safe to call more than once.
+   */
+  public static void register() {
+    if (DriverManager.drivers().noneMatch(d -> d instanceof StubDriver)) {
+      try {
+        DriverManager.registerDriver(new StubDriver());
+      }
+      catch (SQLException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+  }
+  
+  @Override
+  public Connection connect(String url, Properties info) throws SQLException {
+    return acceptsURL(url) ? newConnection() : null;
+  }
+
+  @Override
+  public boolean acceptsURL(String url) {
+    return url != null && url.startsWith(URL);
+  }
+
+  @Override
+  public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+    return new DriverPropertyInfo[0];
+  }
+
+  @Override
+  public int getMajorVersion() {
+    return 0;
+  }
+
+  @Override
+  public int getMinorVersion() {
+    return 1;
+  }
+
+  @Override
+  public boolean jdbcCompliant() {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+  
+  private static <T> T newProxy(Class<T> type, Handler handler) {
+    return type.cast(Proxy.newProxyInstance(StubDriver.class.getClassLoader(), 
+                                            new Class<?>[] { type }, 
+                                            handler));
+  }
+  
+  private static Connection newConnection() {
+    return newProxy(Connection.class, new Handler() {
+      @Override
+      Object handle(Object proxy, String name, Object[] args) {
+        switch (name) {
+          case "prepareStatement":
+          case "prepareCall":
+          case "createStatement":
+            return newStatement((Connection)proxy, 
+                                args == null ? "" : (String)args[0]);
+          case "isValid":
+          case "getAutoCommit":
+            return true;
+          default:
+            return NOT_HANDLED;
+        }
+      }
+    });
+  }
+  
+  private static PreparedStatement newStatement(Connection conn, String sql) {
+    return newProxy(PreparedStatement.class, new Handler() {
+      int fetchSize = 10;
+      int batchCount = 0;
+      ResultSet resultSet = null;
+      
+      @Override
+      Object handle(Object proxy, String name, Object[] args) {
+        switch (name) {
+          case "executeQuery":
+            return query(args == null ? sql : (String)args[0]);
+          case "execute":
+            String s = args == null ? sql : (String)args[0];
+            resultSet = isQuery(s) ? query(s) : null;
+            return resultSet != null;
+          case "getResultSet":
+            return resultSet;
+          case "executeUpdate":
+            return 1;
+          case "executeLargeUpdate":
+            return 1L;
+          case "getUpdateCount":
+            return resultSet == null ? 1 : -1;
+          case "getLargeUpdateCount":
+            return resultSet == null ? 1L : -1L;
+          case "getMoreResults":
+            resultSet = null;
+            return false;
+          case "addBatch":
+            batchCount++;
+            return null;
+          case "clearBatch":
+            batchCount = 0;
+            return null;
+          case "executeBatch":
+            int[] counts = new int[batchCount];
+            Arrays.fill(counts, 1);
+            batchCount = 0;
+            return counts;
+          case "executeLargeBatch":
+            long[] largeCounts = new long[batchCount];
+            Arrays.fill(largeCounts, 1L);
+            batchCount = 0;
+            return largeCounts;
+          case "getFetchSize":
+            return fetchSize;
+          case "setFetchSize":
+            fetchSize = (Integer)args[0];
+            return null;
+          case "getConnection":
+            return conn;
+          default:
+            return NOT_HANDLED;
+        }
+      }
+    });
+  }
+  
+  private static boolean isQuery(String sql) {
+    return sql.trim().regionMatches(true, 0, "SELECT", 0, 6);
+  }
+  
+  private static ResultSet query(String sql) {
+    long rowCount = 1;
+    Matcher m = ROWS.matcher(sql);
+    while (m.find()) rowCount = Long.parseLong(m.group(1));
+    return newResultSet(rowCount);
+  }
+  
+  private static ResultSet newResultSet(long rowCount) {
+    ResultSetMetaData metaData = newProxy(ResultSetMetaData.class, new Handler() {
+      @Override
+      Object handle(Object proxy, String name, Object[] args) {
+        switch (name) {
+          case "getColumnCount":
+            return 2;
+          case "getColumnLabel":
+          case "getColumnName":
+            return (Integer)args[0] == 1 ? "ID" : "NAME";
+          case "getColumnType":
+            return (Integer)args[0] == 1 ? Types.INTEGER : Types.VARCHAR;
+          case "getColumnDisplaySize":
+          case "getPrecision":
+            return 10;
+          default:
+            return NOT_HANDLED;
+        }
+      }
+    });
+    return newProxy(ResultSet.class, new Handler() {
+      long row = 0;
+      
+      @Override
+      Object handle(Object proxy, String name, Object[] args) {
+        switch (name) {
+          case "next":
+            return ++row <= rowCount;
+          case "getMetaData":
+            return metaData;
+          case "getInt":
+            return (int)row;
+          case "getLong":
+            return row;
+          case "getDouble":
+            return (double)row;
+          case "getString":
+            return "name" + row;
+          case "getObject":
+            if (isName(args[0])) return "name" + row;
+            if (args.length > 1 && args[1] == Long.class) return row;
+            return (int)row;
+          default:
+            return NOT_HANDLED;
+        }
+      }
+      
+      private boolean isName(Object column) {
+        return column instanceof Integer 
+               ? (Integer)column == 2 
+               : "NAME".equalsIgnoreCase((String)column);
+      }
+    });
+  }
+  
+  /**
+   * Dispatches on method name. Anything not handled by a subclass gets the 
+   * interface's default implementation, if there is one, or a zero value.
+   */
+  private static abstract class Handler implements InvocationHandler {
+    
+    static final Object NOT_HANDLED = new Object();
+    
+    private boolean isClosed = false;
+    
+    abstract Object handle(Object proxy, String name, Object[] args);
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) 
+        throws Throwable {
+      String name = method.getName();
+      switch (name) {
+        case "close":
+          isClosed = true;
+          return null;
+        case "isClosed":
+          return isClosed;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Stub" + method.getDeclaringClass().getSimpleName();
+        case "unwrap":
+          throw new SQLException("not a wrapper");
+        case "isWrapperFor":
+          return false;
+      }
+      Object result = handle(proxy, name, args);
+      if (result != NOT_HANDLED) return result;
+      if (method.isDefault()) {
+        try {
+          return InvocationHandler.invokeDefault(proxy, method, args);
+        }
+        catch (SQLFeatureNotSupportedException ex) {
+          // eg setObject(int, Object, SQLType). Pretend it worked
+        }
+      }
+      return zero(method.getReturnType());
+    }
+    
+    private static Object zero(Class<?> type) {
+      if (!type.isPrimitive() || type == void.class) return null;
+      if (type == boolean.class) return false;
+      if (type == long.class) return 0L;
+      if (type == double.class) return 0.0d;
+      if (type == float.class) return 0.0f;
+      if (type == char.class) return '\0';
+      if (type == byte.class) return (byte)0;
+      if (type == short.class) return (short)0;
+      return 0;
+    }
+  }
+}
@@ -20,6 +20,8 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
@@ -62,7 +64,7 @@ class ArrayCountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
   private final String sqlString;
   private  Collector<? super Result.RowCount, Object , ? extends T> countCollector;
   
-  PreparedStatement jdbcStatement;
+  volatile PreparedStatement jdbcStatement;
 
   ArrayCountOperationJdbc(SessionJdbc session, OperationGroupJdbc operationGroup, String sql) {
     super(session, operationGroup);
@@ -70,6 +72,19 @@ class ArrayCountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
     sqlString = sql;
   }
 
+  @Override
+  String sqlString() {
+    return sqlString;
+  }
+
+  @Override
+  boolean cancel() {
+    synchronized (cancelLock) {
+      cancelStatement(jdbcStatement);
+    }
+    return super.cancel();
+  }
+
   @Override
   public <A, S extends T> ArrayRowCountOperation<T> collect(Collector<? super Result.RowCount, A, S> c) {
     if (isImmutable() || countCollector != DEFAULT_COLLECTOR) throw new IllegalStateException("TODO");
@@ -82,73 +97,252 @@ class ArrayCountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
   CompletionStage<T> follows(CompletionStage<?> predecessor, Executor executor) {
     predecessor = attachFutureParameters(predecessor);
     return predecessor
-            .thenApplyAsync(this::executeQuery, executor);
+            .thenComposeAsync(this::executeQuery, executor);
   }
 
   /**
-   * Execute the SQL query, process the returned count, and return the result of 
-   * processing the returned count.
+   * Execute the SQL, process the returned counts, and return the result of 
+   * processing the returned counts.
+   * 
+   * The parameter values are added to the batch and executed in chunks of
+   * {@link SessionPropertiesJdbc#ARRAY_COUNT_CHUNK_SIZE} rows so the driver
+   * never holds more than one chunk. If 
+   * {@link SessionPropertiesJdbc#ARRAY_COUNT_PIPELINE} is set the next chunk
+   * is added to a second statement while the previous chunk executes.
    * 
    * @param ignore not used
-   * @return the result of processing the count
+   * @return a stage completed with the result of processing the counts
    */
-  private T executeQuery(Object ignore) {
+  private CompletionStage<T> executeQuery(Object ignore) {
     checkCanceled();
+    long start = executeStarted();
+    ArrayBinder[] binders = newArrayBinders();
+    int rowCount = binders[0].length;
+    int configured = session.<Integer>sessionPropertyValue(
+                       SessionPropertiesJdbc.ARRAY_COUNT_CHUNK_SIZE);
+    int chunkSize = configured > 0 && configured < rowCount ? configured : rowCount;
+    boolean isPipelined = chunkSize < rowCount 
+      && session.<Boolean>sessionPropertyValue(SessionPropertiesJdbc.ARRAY_COUNT_PIPELINE);
+    
+    Chunks chunks = new Chunks(binders, rowCount, chunkSize, isPipelined);
+    CompletionStage<T> result;
     try {
-      jdbcStatement = session.prepareStatement(sqlString);
-
-      // Get parameter ids
-      String[] keys = (String[])setParameters.keySet().toArray(new String[setParameters.size()]);
-      
-      // Get parameter values
-      ParameterValue[] paramVals =  (ParameterValue[]) setParameters.values().toArray(new ParameterValue[setParameters.size()]);
-      
-      int paramIndex;
-      int batchSize;
-      
-      // Get the batch size from first parameter list/array size
-      // TODO: Need to check all parameter value list or value array of same size
-      Object paramVal = paramVals[0].value;
-      if(paramVal instanceof List)
-        batchSize = ((List)paramVal).size();
-      else
-        batchSize = Array.getLength(paramVal);
-
-      // Loop for each value in the list or an array
-      for(int i = 0; i < batchSize; i++) {
-        // Loop for each parameter to add a batch
-        for(paramIndex = 0; paramIndex < keys.length; paramIndex++) {
-          ParameterValue v = paramVals[paramIndex];
-          Object val = getParamVal(v, i);
-          v = new ParameterValue(val, v.type);
-          v.set(jdbcStatement, keys[paramIndex]);
+      String jdbcSql = bindingPlan(sqlString).jdbcSql();
+      jdbcStatement = connection().prepareStatement(jdbcSql);
+      if (isPipelined) chunks.nextStatement = connection().prepareStatement(jdbcSql);
+      addBatch(jdbcStatement, binders, 0, chunkSize);
+      result = executeChunks(chunks, 0);
+    }
+    catch (SQLException ex) {
+      result = CompletableFuture.failedFuture(
+        new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1));
+    }
+    catch (RuntimeException ex) {
+      result = CompletableFuture.failedFuture(ex);
+    }
+    return result.whenComplete((r, t) -> {
+      if (t == null) executeEnded(start);
+      synchronized (cancelLock) {
+        releaseBatchStatement(jdbcStatement);
+        releaseBatchStatement(chunks.nextStatement);
+        jdbcStatement = null;
+        chunks.nextStatement = null;
+      }
+      executedWrite();
+    });
+  }
+  
+  /**
+   * Execute the chunk starting at row first, which has been added to 
+   * jdbcStatement, and the chunks after it. When pipelining, the next chunk
+   * is added to the other statement by a separate I/O task and the chunk 
+   * after it continues in a new task once both are done. Nothing waits for
+   * another I/O task, so a single I/O thread is enough.
+   * 
+   * @param chunks the chunks of this execution
+   * @param first the first row of the chunk to execute
+   * @return a stage completed with the result of processing the counts
+   */
+  private CompletionStage<T> executeChunks(Chunks chunks, int first) {
+    try {
+      for (;;) {
+        checkCanceled();
+        int next = first + chunks.chunkSize;
+        int nextEnd = Math.min(next + chunks.chunkSize, chunks.rowCount);
+        CompletableFuture<Void> nextAdded = null;
+        if (chunks.isPipelined && next < chunks.rowCount) {
+          PreparedStatement stmt = chunks.nextStatement;
+          nextAdded = CompletableFuture.runAsync(
+            () -> addBatch(stmt, chunks.binders, next, nextEnd), getIoExecutor());
         }
         
-        // Add batch
-        jdbcStatement.addBatch();
+        try {
+          group.logger.log(Level.FINE, () -> "executeLargeBatch(\"" + sqlString + "\")"); //DEBUG
+          for (long c : jdbcStatement.executeLargeBatch()) {
+            countCollector.accumulator().accept(chunks.container, ResultImpl.newRowCount(c));
+          }
+        }
+        catch (SQLException | RuntimeException ex) {
+          // the next chunk may still be being added to the other statement
+          if (nextAdded == null) throw ex;
+          return nextAdded.handle((v, t) -> null)
+                          .thenCompose(v -> CompletableFuture.failedFuture(ex));
+        }
+        
+        if (nextAdded != null) {
+          PreparedStatement executed = jdbcStatement;
+          jdbcStatement = chunks.nextStatement;
+          chunks.nextStatement = executed;
+          return nextAdded.thenComposeAsync(v -> executeChunks(chunks, next), 
+                                            getIoExecutor());
+        }
+        if (next >= chunks.rowCount) {
+          return CompletableFuture.completedFuture(
+                   countCollector.finisher().apply(chunks.container));
+        }
+        addBatch(jdbcStatement, chunks.binders, next, nextEnd);
+        first = next;
+      }
+    }
+    catch (SQLException ex) {
+      return CompletableFuture.failedFuture(
+        new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1));
+    }
+    catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+  }
+  
+  /**
+   * Create a binder for each parameter. Each binder resolves the source of 
+   * its values and their SQL type once rather than for every row.
+   * 
+   * @return the binders, all of the same length
+   */
+  private ArrayBinder[] newArrayBinders() {
+    if (setParameters.isEmpty()) {
+      throw new IllegalStateException("no parameter values set");
+    }
+    BindingPlanJdbc plan = bindingPlan(sqlString);
+    ArrayBinder[] binders = new ArrayBinder[setParameters.size()];
+    int i = 0;
+    for (Map.Entry<String, ParameterValue> e : setParameters.entrySet()) {
+      binders[i] = newArrayBinder(plan.parameter(e.getKey()), e.getValue());
+      if (binders[i].length != binders[0].length) {
+        throw new IllegalArgumentException("parameter value sequences are not the same length");
+      }
+      i++;
+    }
+    return binders;
+  }
+  
+  private static ArrayBinder newArrayBinder(BindingPlanJdbc.Parameter param, 
+                                            ParameterValue v) {
+    SqlType type = v.type;
+    Object values = v.value;
+    int[] positions = param.positions;
+    if (values instanceof int[] && type == null) {
+      int[] a = (int[])values;
+      return new ArrayBinder(a.length, (s, r) -> {
+        for (int p : positions) s.setInt(p, a[r]);
+      });
+    }
+    if (values instanceof long[] && type == null) {
+      long[] a = (long[])values;
+      return new ArrayBinder(a.length, (s, r) -> {
+        for (int p : positions) s.setLong(p, a[r]);
+      });
+    }
+    if (values instanceof double[] && type == null) {
+      double[] a = (double[])values;
+      return new ArrayBinder(a.length, (s, r) -> {
+        for (int p : positions) s.setDouble(p, a[r]);
+      });
+    }
+    if (values instanceof List) {
+      List<?> l = (List<?>)values;
+      return new ArrayBinder(l.size(), (s, r) -> param.bind(s, l.get(r), type));
+    }
+    if (values instanceof Object[]) {
+      Object[] a = (Object[])values;
+      return new ArrayBinder(a.length, (s, r) -> param.bind(s, a[r], type));
+    }
+    if (values != null && values.getClass().isArray()) {
+      return new ArrayBinder(Array.getLength(values), 
+                             (s, r) -> param.bind(s, Array.get(values, r), type));
+    }
+    throw new IllegalArgumentException("parameter is not a List or an array");
+  }
+  
+  /**
+   * Add rows [first, end) to the batch of stmt.
+   */
+  private void addBatch(PreparedStatement stmt, ArrayBinder[] binders, 
+                        int first, int end) {
+    try {
+      for (int r = first; r < end; r++) {
+        for (ArrayBinder b : binders) {
+          b.binder.bind(stmt, r);
+        }
+        stmt.addBatch();
       }
-      
-      // Execute batch
-      group.logger.log(Level.FINE, () -> "executeLargeBatch(\"" + sqlString + "\")");
-      long[] counts = jdbcStatement.executeLargeBatch();
-      
-      // Get final count using the collector
-      Object container = countCollector.supplier().get();
-      for (long c : counts)
-         countCollector.accumulator().accept(container, ResultImpl.newRowCount(c));
-     return countCollector.finisher().apply(container);
     }
     catch (SQLException ex) {
       throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
     }
   }
+  
+  private void releaseBatchStatement(PreparedStatement stmt) {
+    if (stmt == null) return;
+    try {
+      stmt.clearBatch();
+      connection().releaseStatement(stmt);
+    }
+    catch (SQLException ex) {
+      group.logger.log(Level.FINE, () -> "release failed: " + ex.getMessage()); //DEBUG
+    }
+  }
 
-  // Get parameter value from list or an array
-  private Object getParamVal(ParameterValue paramVal, int index) {
-    if(paramVal.value instanceof List)
-      return ((List)(paramVal.value)).get(index);
-    else
-      return Array.get(paramVal.value, index);
+  @FunctionalInterface
+  private static interface RowBinder {
+    void bind(PreparedStatement stmt, int row) throws SQLException;
+  }
+  
+  /**
+   * The state of one execution that is carried from chunk to chunk.
+   */
+  private final class Chunks {
+    
+    final ArrayBinder[] binders;
+    final int rowCount;
+    final int chunkSize;
+    final boolean isPipelined;
+    final Object container = countCollector.supplier().get();
+    
+    /** the statement the next chunk is added to when pipelining */
+    volatile PreparedStatement nextStatement = null;
+    
+    Chunks(ArrayBinder[] binders, int rowCount, int chunkSize, 
+           boolean isPipelined) {
+      this.binders = binders;
+      this.rowCount = rowCount;
+      this.chunkSize = chunkSize;
+      this.isPipelined = isPipelined;
+    }
+  }
+  
+  /**
+   * Binds one parameter of any row of the input.
+   */
+  private static final class ArrayBinder {
+    
+    final int length;
+    final RowBinder binder;
+    
+    ArrayBinder(int length, RowBinder binder) {
+      this.length = length;
+      this.binder = binder;
+    }
   }
   
   // Covariant overrides
@@ -173,6 +367,21 @@ class ArrayCountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
     return (ArrayCountOperationJdbc<T>)super.set(id, values);
   }
   
+  @Override
+  public ArrayCountOperationJdbc<T> set(String id, int[] values) {
+    return (ArrayCountOperationJdbc<T>)super.set(id, (Object)values);
+  }
+  
+  @Override
+  public ArrayCountOperationJdbc<T> set(String id, long[] values) {
+    return (ArrayCountOperationJdbc<T>)super.set(id, (Object)values);
+  }
+  
+  @Override
+  public ArrayCountOperationJdbc<T> set(String id, double[] values) {
+    return (ArrayCountOperationJdbc<T>)super.set(id, (Object)values);
+  }
+  
   
   @Override
   public ArrayCountOperationJdbc<T> set(String id, CompletionStage<?> source) {
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Collector;
+
+import jdk.incubator.sql2.BatchRowCountOperation;
+import jdk.incubator.sql2.Result;
+import jdk.incubator.sql2.SqlException;
+import jdk.incubator.sql2.SqlSkippedException;
+
+/**
+ * Executes a statement for each row of parameter values from a 
+ * Flow.Publisher, a batch at a time.
+ * 
+ * The Publisher's signals are serialized, so rows are added to the batch on
+ * whatever thread the Publisher calls onNext. Only one batch of rows is 
+ * requested at a time, so no rows arrive while a batch executes. Executing
+ * a batch, and everything else that follows a signal, is chained onto 
+ * {@link #tail} and runs on the Executor one step at a time. Binding a row,
+ * running a step and releasing the statement hold {@link #statementLock}, 
+ * so the statement is never returned to the Session's cache while a row is
+ * being bound to it and no row is bound once the Operation is finished.
+ * 
+ * @param <T>
+ */
+class BatchCountOperationJdbc<T> extends OperationJdbc<T>
+        implements BatchRowCountOperation<T> {
+  
+  private static final int DEFAULT_BATCH_SIZE = 100;
+  
+  /**
+   * Factory method to create BatchCountOperations.
+   * 
+   * @param <S> the type of the value of the BatchCountOperation
+   * @param session the Session the BatchCountOperation belongs to
+   * @param grp the GroupOperation the BatchCountOperation is a member of
+   * @param sql the SQL string to execute. Must return a count.
+   * @return a new BatchCountOperation that will execute sql.
+   */
+  static <S> BatchCountOperationJdbc<S> newBatchCountOperation(SessionJdbc session, OperationGroupJdbc<?, ?> grp, String sql) {
+    return new BatchCountOperationJdbc<>(session, grp, sql);
+  }
+  
+  // attributes
+  private final String sqlString;
+  private Flow.Publisher<? extends List<?>> source = null;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  /** null until collect is called */
+  private Collector<? super Result.RowCount, Object, ? extends T> countCollector = null;
+  
+  // internal state
+  private volatile CompletableFuture<T> batchResult;
+  private volatile PreparedStatement jdbcStatement;
+  private Object container;
+  private Flow.Subscription subscription;
+  
+  /** the steps run on the Executor. Only updated by the Publisher's signals */
+  private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+  
+  /** rows in the current batch */
+  private int pending = 0;
+  
+  /** the positional parameters of the SQL, resolved as rows arrive */
+  private BindingPlanJdbc.Parameter[] parameters = new BindingPlanJdbc.Parameter[0];
+  private volatile boolean isFinished = false;
+  private final Object statementLock = new Object();
+
+  BatchCountOperationJdbc(SessionJdbc session, OperationGroupJdbc<?, ?> operationGroup, String sql) {
+    super(session, operationGroup);
+    sqlString = sql;
+  }
+
+  @Override
+  String sqlString() {
+    return sqlString;
+  }
+
+  /**
+   * Cancel the executing batch, if any, then stop binding rows and complete
+   * this Operation. A Publisher that never signals again does not keep it 
+   * from completing.
+   */
+  @Override
+  boolean cancel() {
+    synchronized (cancelLock) {
+      cancelStatement(jdbcStatement);
+    }
+    if (!super.cancel()) return false;
+    failCanceled();
+    return true;
+  }
+  
+  /**
+   * Fail this Operation if it has been canceled and has subscribed. Called 
+   * by both cancel and subscribe, since either may run first.
+   */
+  private void failCanceled() {
+    synchronized (statementLock) {
+      if (isCanceled() && batchResult != null) {
+        fail(new SqlSkippedException("Operation canceled", null, null, -1, sqlString, -1));
+      }
+    }
+  }
+
+  @Override
+  public BatchCountOperationJdbc<T> publisher(Flow.Publisher<? extends List<?>> source) {
+    if (isImmutable() || this.source != null) throw new IllegalStateException("TODO");
+    if (source == null) throw new IllegalArgumentException("TODO");
+    this.source = source;
+    return this;
+  }
+
+  @Override
+  public BatchCountOperationJdbc<T> batchSize(int rows) {
+    if (isImmutable()) throw new IllegalStateException("TODO");
+    if (rows < 1) throw new IllegalArgumentException("TODO");
+    batchSize = rows;
+    return this;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // the container is only used as an A
+  public <A, S extends T> BatchCountOperationJdbc<T> collect(Collector<? super Result.RowCount, A, S> c) {
+    if (isImmutable() || countCollector != null) throw new IllegalStateException("TODO");
+    if (c == null) throw new IllegalArgumentException("TODO");
+    countCollector = (Collector<? super Result.RowCount, Object , ? extends T>) c;
+    return this;
+  }
+  
+  @Override
+  CompletionStage<T> follows(CompletionStage<?> predecessor, Executor executor) {
+    return predecessor.thenComposeAsync(this::subscribe, executor);
+  }
+  
+  /**
+   * Prepare the statement and subscribe to the Publisher.
+   * 
+   * @param ignore not used
+   * @return a CompletionStage that is completed when all rows are executed
+   */
+  private CompletionStage<T> subscribe(Object ignore) {
+    checkCanceled();
+    if (source == null) throw new IllegalStateException("no publisher");
+    executeStarted();
+    batchResult = new CompletableFuture<>();
+    if (countCollector == null) countCollector = nullCollector();
+    container = countCollector.supplier().get();
+    try {
+      jdbcStatement = connection().prepareStatement(sqlString);
+    }
+    catch (SQLException ex) {
+      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+    }
+    source.subscribe(new ParameterSubscriber());
+    failCanceled();
+    return batchResult;
+  }
+  
+  private static <R> Collector<Result.RowCount, Object, R> nullCollector() {
+    return Collector.of(() -> null, (a, v) -> {}, (a, b) -> null, a -> null);
+  }
+  
+  private void then(Runnable step) {
+    tail = tail.thenRunAsync(() -> {
+      synchronized (statementLock) {
+        if (isFinished) return;
+        try {
+          step.run();
+        }
+        catch (Throwable t) {
+          fail(t);
+        }
+      }
+    }, getIoExecutor());
+  }
+  
+  /**
+   * Execute the rows added so far and collect their counts.
+   */
+  private void executeBatch() {
+    checkCanceled();
+    if (pending == 0) return;
+    long start = executeStarted();
+    try {
+      group.logger.log(Level.FINE, () -> "executeLargeBatch(\"" + sqlString + "\")"); //DEBUG
+      for (long c : jdbcStatement.executeLargeBatch()) {
+        countCollector.accumulator().accept(container, ResultImpl.newRowCount(c));
+      }
+      executeEnded(start);
+      pending = 0;
+    }
+    catch (SQLException ex) {
+      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+    }
+    finally {
+      executedWrite();
+    }
+  }
+  
+  private void executeAndRequest() {
+    executeBatch();
+    subscription.request(batchSize);
+  }
+  
+  private void executeAndComplete() {
+    executeBatch();
+    isFinished = true;
+    releaseStatement();
+    batchResult.complete(countCollector.finisher().apply(container));
+  }
+  
+  /**
+   * Stop binding rows, cancel the subscription and complete this Operation
+   * exceptionally. Called on the Executor or, if a row can't be bound, on 
+   * the Publisher's thread.
+   */
+  private void fail(Throwable t) {
+    synchronized (statementLock) {
+      if (isFinished) return;
+      isFinished = true;
+      if (subscription != null) subscription.cancel();
+      releaseStatement();
+    }
+    batchResult.completeExceptionally(t);
+  }
+  
+  private void releaseStatement() {
+    PreparedStatement stmt;
+    synchronized (cancelLock) {
+      stmt = jdbcStatement;
+      jdbcStatement = null;
+    }
+    if (stmt == null) return;
+    try {
+      stmt.clearBatch();
+      connection().releaseStatement(stmt);
+    }
+    catch (SQLException ex) {
+      group.logger.log(Level.FINE, () -> "release failed: " + ex.getMessage()); //DEBUG
+    }
+  }
+  
+  /**
+   * @param i 0-based index of a value in a row
+   * @return the parameter the value is bound to
+   */
+  private BindingPlanJdbc.Parameter parameter(int i) {
+    if (i >= parameters.length) {
+      BindingPlanJdbc plan = BindingPlanJdbc.forSql(sqlString, false);
+      BindingPlanJdbc.Parameter[] grown = Arrays.copyOf(parameters, i + 1);
+      for (int j = parameters.length; j <= i; j++) {
+        grown[j] = plan.parameter(Integer.toString(j + 1));
+      }
+      parameters = grown;
+    }
+    return parameters[i];
+  }
+  
+  private class ParameterSubscriber implements Flow.Subscriber<List<?>> {
+    
+    @Override
+    public void onSubscribe(Flow.Subscription s) {
+      synchronized (statementLock) {
+        // a cancel or error that came first could not cancel s
+        if (subscription != null || isFinished) {
+          s.cancel();
+          return;
+        }
+        subscription = s;
+      }
+      s.request(batchSize);
+    }
+    
+    @Override
+    public void onNext(List<?> row) {
+      synchronized (statementLock) {
+        if (isFinished) return;
+        try {
+          for (int i = 0; i < row.size(); i++) {
+            parameter(i).bind(jdbcStatement, row.get(i), null);
+          }
+          jdbcStatement.addBatch();
+        }
+        catch (SQLException ex) {
+          fail(new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1));
+          return;
+        }
+        catch (RuntimeException ex) {
+          fail(ex);
+          return;
+        }
+        if (++pending == batchSize) then(BatchCountOperationJdbc.this::executeAndRequest);
+      }
+    }
+    
+    @Override
+    public void onError(Throwable t) {
+      then(() -> fail(t));
+    }
+    
+    @Override
+    public void onComplete() {
+      then(BatchCountOperationJdbc.this::executeAndComplete);
+    }
+  }
+  
+  // Covariant overrides
+
+  @Override
+  public BatchCountOperationJdbc<T> timeout(Duration minTime) {
+    return (BatchCountOperationJdbc<T>)super.timeout(minTime);
+  }
+
+  @Override
+  public BatchCountOperationJdbc<T> onError(Consumer<Throwable> handler) {
+    return (BatchCountOperationJdbc<T>)super.onError(handler);
+  }
+
+}
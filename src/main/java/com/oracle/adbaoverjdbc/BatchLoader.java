@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collector;
+
+import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.ParameterizedRowOperation;
+import jdk.incubator.sql2.Result;
+import jdk.incubator.sql2.Session;
+
+/**
+ * Gathers the keys of concurrent point lookups into one query. The keys 
+ * requested by {@link #load} within a short window, or until there are 
+ * maxBatchSize of them, are bound to a single row Operation whose SQL lists
+ * them all, and each row is passed back to the loads of its key. For example
+ * <pre>
+ * {@code BatchLoader<Integer, String> names = BatchLoader.newBatchLoader(ds,
+ *     "SELECT id, name FROM forum_user WHERE id IN (:ids)", "ids",
+ *     row -> row.at("ID").get(Integer.class),
+ *     row -> row.at("NAME").get(String.class));
+ * names.load(7782).thenAccept(System.out::println);}
+ * </pre>
+ * The key parameter, ids above, is replaced by as many parameters as there 
+ * are keys, so it must appear exactly once, inside an IN list or a similar
+ * construct. The number of keys is rounded up to a power of 2, repeating the
+ * last key, so the query has only a few distinct SQL strings and their 
+ * statements stay in the statement cache.
+ * 
+ * The queries execute in order on a Session of their own, which is 
+ * created when the first batch is dispatched. The window is timed by the
+ * DataSource's timeout scheduler so no thread waits for it.
+ */
+public final class BatchLoader<K, V> implements AutoCloseable {
+  
+  /**
+   * @param <K> the type of the keys
+   * @param <V> the type of the values
+   * @param dataSource an AoJ DataSource
+   * @param sql a query that selects the rows of the keys bound to 
+   * keyParameter
+   * @param keyParameter the name of the parameter, without the colon
+   * @param keyOf computes the key of a row
+   * @param valueOf computes the value of a row
+   * @return a new BatchLoader that dispatches every millisecond or 100 keys
+   */
+  public static <K, V> BatchLoader<K, V> newBatchLoader(DataSource dataSource, 
+                                        String sql, String keyParameter,
+                                        Function<Result.RowColumn, K> keyOf,
+                                        Function<Result.RowColumn, V> valueOf) {
+    if (!(dataSource instanceof DataSourceJdbc)) {
+      throw new IllegalArgumentException("not an AoJ DataSource");
+    }
+    Matcher m = Pattern.compile(":" + Pattern.quote(keyParameter) + "(?![\\w$#])")
+                       .matcher(sql);
+    if (!m.find()) {
+      throw new IllegalArgumentException("no parameter :" + keyParameter);
+    }
+    String prefix = sql.substring(0, m.start());
+    String suffix = sql.substring(m.end());
+    if (m.find()) {
+      throw new IllegalArgumentException("parameter :" + keyParameter 
+                                         + " used more than once");
+    }
+    return new BatchLoader<>((DataSourceJdbc)dataSource, prefix, suffix, 
+                             keyParameter, keyOf, valueOf);
+  }
+  
+  private final DataSourceJdbc dataSource;
+  
+  /** the SQL before and after the key parameter */
+  private final String prefix;
+  private final String suffix;
+  private final String keyParameter;
+  private final Function<Result.RowColumn, K> keyOf;
+  private final Function<Result.RowColumn, V> valueOf;
+  
+  // All guarded by this
+  private Duration window = Duration.ofMillis(1);
+  private int maxBatchSize = 100;
+  private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+  private TimeoutSchedulerJdbc.Timeout timer = null;
+  private final Map<Integer, String> sqlBySize = new HashMap<>();
+  private Session session = null;
+  private boolean isClosed = false;
+  
+  private BatchLoader(DataSourceJdbc dataSource, String prefix, String suffix, 
+                      String keyParameter, 
+                      Function<Result.RowColumn, K> keyOf,
+                      Function<Result.RowColumn, V> valueOf) {
+    this.dataSource = dataSource;
+    this.prefix = prefix;
+    this.suffix = suffix;
+    this.keyParameter = keyParameter;
+    this.keyOf = keyOf;
+    this.valueOf = valueOf;
+  }
+  
+  /**
+   * @param window how long to gather keys after the first key of a batch is
+   * requested. Rounded up to a whole millisecond. The default is 1 
+   * millisecond.
+   * @return this
+   */
+  public synchronized BatchLoader<K, V> window(Duration window) {
+    if (window.isNegative()) throw new IllegalArgumentException("negative window");
+    this.window = window;
+    return this;
+  }
+  
+  /**
+   * @param maxBatchSize the most keys in one query. A batch that reaches 
+   * this size is dispatched without waiting for the window to end. The 
+   * default is 100.
+   * @return this
+   */
+  public synchronized BatchLoader<K, V> maxBatchSize(int maxBatchSize) {
+    if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize < 1");
+    this.maxBatchSize = maxBatchSize;
+    return this;
+  }
+  
+  /**
+   * Request the value of a key. Loads of the same key in the same batch 
+   * share one CompletionStage.
+   * 
+   * @param key a key
+   * @return a CompletionStage that is completed with the value of the first
+   * row of key, or null if there is no such row. Completed exceptionally if
+   * the query fails.
+   * @throws IllegalStateException if this BatchLoader is closed
+   */
+  public CompletionStage<V> load(K key) {
+    if (key == null) throw new IllegalArgumentException("null key");
+    synchronized (this) {
+      if (isClosed) throw new IllegalStateException("closed");
+      CompletableFuture<V> value = pending.get(key);
+      if (value != null) return value;
+      value = new CompletableFuture<>();
+      pending.put(key, value);
+      if (pending.size() >= maxBatchSize) dispatch();
+      else if (timer == null) {
+        timer = dataSource.timeoutScheduler()
+                          .schedule(window, this::dispatchNow, ForkJoinPool.commonPool());
+      }
+      return value;
+    }
+  }
+  
+  /**
+   * Dispatch the keys requested so far without waiting for the window to 
+   * end.
+   */
+  public synchronized void dispatchNow() {
+    dispatch();
+  }
+  
+  /**
+   * Dispatch the pending keys and close the Session once their query has
+   * executed.
+   */
+  @Override
+  public synchronized void close() {
+    if (isClosed) return;
+    dispatch();
+    isClosed = true;
+    if (session != null) session.close();
+  }
+  
+  /**
+   * Submit queries for the pending keys, at most maxBatchSize keys each. 
+   * There is more than one only if maxBatchSize was lowered while keys were
+   * pending. Called while holding this lock so that queries are submitted
+   * to the Session one at a time.
+   */
+  private void dispatch() {
+    if (timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+    if (pending.isEmpty()) return;
+    Map<K, CompletableFuture<V>> batch = pending;
+    pending = new LinkedHashMap<>();
+    
+    List<K> keys = new ArrayList<>(batch.keySet());
+    if (session == null) session = dataSource.getSession();
+    for (int from = 0; from < keys.size(); from += maxBatchSize) {
+      query(keys.subList(from, Math.min(from + maxBatchSize, keys.size())), batch);
+    }
+  }
+  
+  /**
+   * Submit a query for some of the keys of a batch.
+   * 
+   * @param keys at most maxBatchSize keys
+   * @param batch the loads of every key of the batch
+   */
+  private void query(List<K> keys, Map<K, CompletableFuture<V>> batch) {
+    int size = paddedSize(keys.size());
+    ParameterizedRowOperation<Map<K, V>> op = 
+      session.<Map<K, V>>rowOperation(sqlFor(size));
+    for (int i = 0; i < size; i++) {
+      op.set(keyParameter + i, keys.get(Math.min(i, keys.size() - 1)));
+    }
+    op.collect(Collector.<Result.RowColumn, Map<K, V>>of(
+                 HashMap::new,
+                 (rows, row) -> rows.putIfAbsent(keyOf.apply(row), valueOf.apply(row)),
+                 (a, b) -> { b.forEach(a::putIfAbsent); return a; }))
+      .submit()
+      .getCompletionStage()
+      .whenComplete((rows, ex) -> {
+        Throwable error = ex == null ? null : OperationJdbc.unwrapException(ex);
+        for (K key : keys) {
+          if (error != null) batch.get(key).completeExceptionally(error);
+          else batch.get(key).complete(rows.get(key));
+        }
+      });
+    // a failed query must not cause the queries after it to be skipped
+    session.catchErrors();
+  }
+  
+  /**
+   * @return the number of keys bound for a batch of count keys
+   */
+  private int paddedSize(int count) {
+    int size = Integer.highestOneBit(count);
+    if (size < count) size <<= 1;
+    return Math.min(size, maxBatchSize);
+  }
+  
+  /**
+   * @return the SQL with the key parameter replaced by size parameters
+   */
+  private String sqlFor(int size) {
+    return sqlBySize.computeIfAbsent(size, n -> {
+      StringBuilder sql = new StringBuilder(prefix);
+      for (int i = 0; i < n; i++) {
+        if (i > 0) sql.append(", ");
+        sql.append(':').append(keyParameter).append(i);
+      }
+      return sql.append(suffix).toString();
+    });
+  }
+}
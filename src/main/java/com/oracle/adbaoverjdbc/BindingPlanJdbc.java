@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.incubator.sql2.SqlType;
+
+/**
+ * How to bind the parameters of one SQL string. A plan is compiled the first
+ * time the SQL is executed and shared by all Sessions, so the positions a 
+ * parameter id refers to are worked out once per SQL rather than on every 
+ * execution. An id is a 1-based position or the name of a marker in the 
+ * SQL, without the colon. Only SQL executed with a named id is parsed for 
+ * markers, see {@link ParsedSqlJdbc}, and rewritten. SQL bound by position 
+ * is prepared as it is, so text such as {@code :new.col} in a trigger or 
+ * {@code a[1:2]} reaches the database unchanged.
+ * 
+ * Each parameter remembers the Setter it used last. A Setter is chosen by the
+ * class of the value and the declared SqlType and calls the typed JDBC setter,
+ * eg setInt or setString, when the SQL type is the natural one for the class.
+ * As long as a parameter is bound to values of the same class, which is the
+ * usual case, binding a value is an identity comparison and a direct call.
+ */
+class BindingPlanJdbc {
+  
+  /** the maximum number of plans kept */
+  private static final int MAX_PLANS = 1024;
+  
+  private static final Map<String, BindingPlanJdbc> PLANS = 
+    new ConcurrentHashMap<>();
+  
+  private static final Map<String, BindingPlanJdbc> NAMED_PLANS = 
+    new ConcurrentHashMap<>();
+  
+  /**
+   * @param sql the SQL text
+   * @param isNamed true if any parameter id is a name rather than a position
+   * @return the plan for sql
+   */
+  static BindingPlanJdbc forSql(String sql, boolean isNamed) {
+    Map<String, BindingPlanJdbc> plans = isNamed ? NAMED_PLANS : PLANS;
+    BindingPlanJdbc plan = plans.get(sql);
+    if (plan == null) {
+      if (plans.size() >= MAX_PLANS) {
+        // any plan will do. It is recompiled if its SQL is used again
+        Iterator<String> i = plans.keySet().iterator();
+        if (i.hasNext()) plans.remove(i.next());
+      }
+      plan = plans.computeIfAbsent(sql, k -> new BindingPlanJdbc(k, isNamed));
+    }
+    return plan;
+  }
+  
+  /**
+   * @param id a parameter id
+   * @return true if id is a 1-based position, ie only digits
+   */
+  static boolean isPosition(String id) {
+    if (id.isEmpty()) return false;
+    for (int i = 0; i < id.length(); i++) {
+      if (id.charAt(i) < '0' || id.charAt(i) > '9') return false;
+    }
+    return true;
+  }
+  
+  private final String sql;
+  private final ParsedSqlJdbc parsed;
+  private final Map<String, Parameter> parameters = new ConcurrentHashMap<>();
+  
+  private BindingPlanJdbc(String sql, boolean isNamed) {
+    this.sql = sql;
+    parsed = isNamed ? ParsedSqlJdbc.parse(sql) : ParsedSqlJdbc.unparsed(sql);
+  }
+  
+  /**
+   * @return the SQL to prepare, with named markers replaced by ? if the plan
+   * is for named ids
+   */
+  String jdbcSql() {
+    return parsed.jdbcSql;
+  }
+  
+  /**
+   * @param id a parameter id
+   * @return the parameter of this plan that id identifies
+   */
+  Parameter parameter(String id) {
+    Parameter p = parameters.get(id);
+    return p != null ? p : parameters.computeIfAbsent(id, this::newParameter);
+  }
+  
+  /**
+   * Bind a set of parameter values.
+   * 
+   * @param stmt a statement prepared from this plan's SQL
+   * @param values parameter values by id
+   * @throws SQLException
+   */
+  void bind(PreparedStatement stmt, 
+            Map<String, ParameterizedOperationJdbc.ParameterValue> values) 
+      throws SQLException {
+    for (Map.Entry<String, ParameterizedOperationJdbc.ParameterValue> e 
+           : values.entrySet()) {
+      parameter(e.getKey()).bind(stmt, e.getValue().value, e.getValue().type);
+    }
+  }
+  
+  private Parameter newParameter(String id) {
+    int[] positions = parsed.positions(id);
+    if (positions != null) return new Parameter(positions);
+    try {
+      return new Parameter(new int[] { Integer.parseInt(id) });
+    }
+    catch (NumberFormatException ex) {
+      throw new IllegalArgumentException("no parameter named " + id + " in " + sql);
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return "BindingPlan[" + sql + ", " + parameters.keySet() + "]";
+  }
+  
+  /**
+   * One parameter of the SQL, which may appear at several positions.
+   */
+  static final class Parameter {
+    
+    /** 1-based JDBC parameter positions */
+    final int[] positions;
+    
+    /** the Setter used last. Replaced when the class or type changes */
+    private volatile Setter setter = null;
+    
+    private Parameter(int[] positions) {
+      this.positions = positions;
+    }
+    
+    /**
+     * @param stmt the statement
+     * @param value the value, may be null
+     * @param type the declared type or null to use the value's class
+     * @throws SQLException
+     */
+    void bind(PreparedStatement stmt, Object value, SqlType type) 
+        throws SQLException {
+      Setter s = setter;
+      Class<?> c = value == null ? null : value.getClass();
+      if (s == null || s.valueClass != c || s.type != type) {
+        setter = s = Setter.newSetter(c, type);
+      }
+      for (int p : positions) s.set(stmt, p, value);
+    }
+  }
+  
+  @FunctionalInterface
+  private static interface JdbcSetter {
+    void set(PreparedStatement stmt, int position, Object value) throws SQLException;
+  }
+  
+  /**
+   * Sets a parameter to a value of one class with one declared type.
+   */
+  private static final class Setter {
+    
+    final Class<?> valueClass;
+    final SqlType type;
+    private final JdbcSetter setter;
+    
+    private Setter(Class<?> valueClass, SqlType type, JdbcSetter setter) {
+      this.valueClass = valueClass;
+      this.type = type;
+      this.setter = setter;
+    }
+    
+    void set(PreparedStatement stmt, int position, Object value) 
+        throws SQLException {
+      setter.set(stmt, position, value);
+    }
+    
+    static Setter newSetter(Class<?> valueClass, SqlType type) {
+      if (valueClass == null) {
+        int jdbcType = type == null 
+                       ? Types.NULL 
+                       : OperationJdbc.toSQLType(type).getVendorTypeNumber();
+        return new Setter(null, type, (s, p, v) -> s.setNull(p, jdbcType));
+      }
+      SQLType jdbcType = type == null 
+                         ? OperationJdbc.toSQLType(valueClass) 
+                         : OperationJdbc.toSQLType(type);
+      return new Setter(valueClass, type, typedSetter(valueClass, jdbcType));
+    }
+    
+    /**
+     * @return a call to the typed setter for valueClass if jdbcType is the
+     * type that setter sends, otherwise a call to setObject with jdbcType
+     */
+    private static JdbcSetter typedSetter(Class<?> valueClass, SQLType jdbcType) {
+      if (valueClass == Integer.class && jdbcType == JDBCType.INTEGER) 
+        return (s, p, v) -> s.setInt(p, (Integer)v);
+      if (valueClass == Long.class && jdbcType == JDBCType.BIGINT) 
+        return (s, p, v) -> s.setLong(p, (Long)v);
+      if (valueClass == String.class && jdbcType == JDBCType.VARCHAR) 
+        return (s, p, v) -> s.setString(p, (String)v);
+      if (valueClass == Double.class && jdbcType == JDBCType.DOUBLE) 
+        return (s, p, v) -> s.setDouble(p, (Double)v);
+      if (valueClass == Boolean.class && jdbcType == JDBCType.BOOLEAN) 
+        return (s, p, v) -> s.setBoolean(p, (Boolean)v);
+      if (valueClass == Short.class && jdbcType == JDBCType.SMALLINT) 
+        return (s, p, v) -> s.setShort(p, (Short)v);
+      if (valueClass == byte[].class && jdbcType == JDBCType.VARBINARY) 
+        return (s, p, v) -> s.setBytes(p, (byte[])v);
+      return (s, p, v) -> s.setObject(p, v, jdbcType);
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import jdk.incubator.sql2.AdbaSessionProperty.Caching;
+import jdk.incubator.sql2.SqlException;
+
+/**
+ * A bounded pool of java.sql.Connections shared by the Sessions of a
+ * DataSource. At most maxResources physical connections are open at any one
+ * time and at most maxIdleResources of those are kept open while no Session
+ * holds them.
+ *
+ * A lease that can not be satisfied immediately is queued. The returned
+ * CompletionStage is completed when some other Session releases a connection,
+ * so no thread is blocked while waiting. Opening a new physical connection is
+ * blocking and is done by the Executor passed to lease.
+ *
+ * A connection is only reused by a Session that would have opened an
+ * identical connection, ie the same url and connection properties. When the
+ * pool is full an idle connection with some other key is closed to make room.
+ * A Session with {@link Caching#NEW} never reuses a connection. Resetting the
+ * state of a reused connection is up to the Session, see 
+ * {@link PooledConnection#reset()}.
+ */
+class ConnectionPoolJdbc {
+
+  static ConnectionPoolJdbc newConnectionPool(int maxResources, int maxIdleResources) {
+    return new ConnectionPoolJdbc(maxResources, maxIdleResources);
+  }
+
+  private final int maxResources;
+  private final int maxIdleResources;
+
+  // internal state. All guarded by this
+
+  /** most recently released first */
+  private final Deque<PooledConnection> idle = new ArrayDeque<>();
+  private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+  /** number of physical connections that are open or being opened */
+  private int openCount = 0;
+  private boolean isClosed = false;
+
+  private ConnectionPoolJdbc(int maxResources, int maxIdleResources) {
+    this.maxResources = maxResources;
+    this.maxIdleResources = maxIdleResources;
+  }
+
+  /**
+   * Lease a connection. Reuses an idle connection with the same key if there
+   * is one and caching permits, otherwise opens a new one if that would not 
+   * exceed maxResources, otherwise waits for another Session to release a 
+   * connection.
+   *
+   * @param key identifies the physical connection required
+   * @param caching NEW requires a new physical connection
+   * @param executor used to open a new physical connection
+   * @return a CompletionStage that is completed with the leased connection
+   */
+  CompletionStage<PooledConnection> lease(ConnectionKey key, Caching caching, 
+                                          Executor executor) {
+    PooledConnection victim = null;
+    synchronized (this) {
+      if (isClosed) {
+        return CompletableFuture.failedFuture(
+          new IllegalStateException("DataSource is closed."));
+      }
+      PooledConnection reused = caching == Caching.NEW ? null : takeIdle(key);
+      if (reused != null) {
+        return CompletableFuture.completedFuture(reused);
+      }
+      if (openCount < maxResources) {
+        openCount++;
+      }
+      else if (!idle.isEmpty()) {
+        victim = idle.pollLast(); // the new connection takes its place
+      }
+      else {
+        Waiter w = new Waiter(key, caching, executor);
+        waiters.addLast(w);
+        return w.future;
+      }
+    }
+    if (victim != null) victim.closeQuietly();
+    return open(key, executor);
+  }
+
+  /**
+   * Lease a connection only if that does not require waiting for another
+   * Session to release one. Reuses an idle connection with the same key if
+   * there is one, otherwise opens a new one if that would not exceed
+   * maxResources. Never closes an idle connection to make room.
+   *
+   * @param key identifies the physical connection required
+   * @param executor used to open a new physical connection
+   * @return a CompletionStage that is completed with the leased connection or
+   * null if there is no connection to spare
+   */
+  CompletionStage<PooledConnection> tryLease(ConnectionKey key, Executor executor) {
+    synchronized (this) {
+      if (isClosed) return null;
+      PooledConnection reused = takeIdle(key);
+      if (reused != null) {
+        return CompletableFuture.completedFuture(reused);
+      }
+      if (openCount >= maxResources) return null;
+      openCount++;
+    }
+    return open(key, executor);
+  }
+
+  /**
+   * Return a leased connection to the pool. The connection is handed directly
+   * to the oldest waiter if there is one, kept if there are fewer than
+   * maxIdleResources idle connections, and closed otherwise.
+   *
+   * @param conn a connection returned by lease
+   * @param isReusable false if conn is broken or aborted and must be closed
+   */
+  void release(PooledConnection conn, boolean isReusable) {
+    Waiter waiter;
+    boolean isKept = false;
+    synchronized (this) {
+      waiter = waiters.pollFirst();
+      if (waiter == null) {
+        if (isReusable && !isClosed && idle.size() < maxIdleResources) {
+          idle.addFirst(conn);
+          isKept = true;
+        }
+        else {
+          openCount--;
+        }
+      }
+      // else the connection count is unchanged whether conn is handed off or
+      // replaced by a new connection for the waiter.
+    }
+    if (waiter != null && isReusable && waiter.caching != Caching.NEW
+          && waiter.key.equals(conn.key)) {
+      waiter.future.complete(conn);
+    }
+    else {
+      if (!isKept) conn.closeQuietly();
+      if (waiter != null) {
+        open(waiter.key, waiter.executor)
+          .whenComplete((c, t) -> {
+            if (t == null) waiter.future.complete(c);
+            else waiter.future.completeExceptionally(t);
+          });
+      }
+    }
+  }
+
+  /**
+   * Close all idle connections and fail all waiters. Leased connections are
+   * closed when they are released.
+   */
+  void close() {
+    Deque<PooledConnection> closing;
+    Deque<Waiter> failing;
+    synchronized (this) {
+      isClosed = true;
+      openCount -= idle.size();
+      closing = new ArrayDeque<>(idle);
+      failing = new ArrayDeque<>(waiters);
+      idle.clear();
+      waiters.clear();
+    }
+    closing.forEach(PooledConnection::closeQuietly);
+    failing.forEach(w -> w.future.completeExceptionally(
+                      new IllegalStateException("DataSource is closed.")));
+  }
+
+  /**
+   * Must hold the lock.
+   *
+   * @param key
+   * @return the most recently released idle connection with key or null
+   */
+  private PooledConnection takeIdle(ConnectionKey key) {
+    for (Iterator<PooledConnection> i = idle.iterator(); i.hasNext(); ) {
+      PooledConnection c = i.next();
+      if (c.key.equals(key)) {
+        i.remove();
+        return c;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Open a new physical connection. The caller must already have counted it
+   * in openCount. If opening fails the count is given back, possibly to a
+   * waiter.
+   */
+  private CompletionStage<PooledConnection> open(ConnectionKey key, Executor executor) {
+    CompletableFuture<PooledConnection> opened =
+      CompletableFuture.supplyAsync(() -> PooledConnection.connect(key), executor);
+    opened.whenComplete((c, t) -> {
+      if (t != null) openFailed();
+    });
+    return opened;
+  }
+
+  private void openFailed() {
+    Waiter waiter;
+    synchronized (this) {
+      waiter = isClosed ? null : waiters.pollFirst();
+      if (waiter == null) openCount--;
+    }
+    if (waiter != null) {
+      open(waiter.key, waiter.executor)
+        .whenComplete((c, t) -> {
+          if (t == null) waiter.future.complete(c);
+          else waiter.future.completeExceptionally(t);
+        });
+    }
+  }
+
+  /**
+   * A physical connection, the key that it was opened with and the state it
+   * had when it was new. AoJ Sessions never use auto-commit so a new
+   * connection has auto-commit disabled.
+   */
+  static final class PooledConnection {
+
+    static PooledConnection connect(ConnectionKey key) {
+      java.sql.Connection connection = null;
+      try {
+        connection = DriverManager.getConnection(key.url, key.info);
+        connection.setAutoCommit(false);
+        return new PooledConnection(key, connection);
+      }
+      catch (SQLException ex) {
+        if (connection != null) {
+          try { connection.close(); } catch (SQLException closeEx) { ex.addSuppressed(closeEx); }
+        }
+        throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), null, -1);
+      }
+    }
+
+    final ConnectionKey key;
+    final java.sql.Connection connection;
+    
+    private final int initialIsolation;
+    private final boolean initialReadOnly;
+    
+    /** Statements created by the current Session that it has not closed */
+    private final Set<Statement> openStatements = ConcurrentHashMap.newKeySet();
+    
+    /** true if the last Session may have left some state behind */
+    private volatile boolean isDirty = false;
+
+    private PooledConnection(ConnectionKey key, java.sql.Connection connection) 
+      throws SQLException {
+      this.key = key;
+      this.connection = connection;
+      initialIsolation = connection.getTransactionIsolation();
+      initialReadOnly = connection.isReadOnly();
+    }
+    
+    <S extends Statement> S track(S stmt) {
+      openStatements.add(stmt);
+      return stmt;
+    }
+    
+    void untrack(Statement stmt) {
+      openStatements.remove(stmt);
+    }
+    
+    boolean isDirty() {
+      return isDirty;
+    }
+    
+    /**
+     * Released by a {@link Caching#CACHED} Session without a reset.
+     */
+    void markDirty() {
+      isDirty = true;
+    }
+    
+    /**
+     * Cheaply make this connection behave as if it were new. Closes any 
+     * statements the previous Session left open and restores auto-commit, 
+     * isolation and read-only if they were changed. Does not end the
+     * transaction; the Session does that when it is closed.
+     * 
+     * @throws SQLException if the connection can not be reset, in which case
+     * it should not be reused
+     */
+    void reset() throws SQLException {
+      for (Statement stmt : openStatements) {
+        if (!stmt.isClosed()) stmt.close();
+      }
+      openStatements.clear();
+      if (connection.getAutoCommit()) connection.setAutoCommit(false);
+      if (connection.getTransactionIsolation() != initialIsolation)
+        connection.setTransactionIsolation(initialIsolation);
+      if (connection.isReadOnly() != initialReadOnly)
+        connection.setReadOnly(initialReadOnly);
+      connection.clearWarnings();
+      isDirty = false;
+    }
+
+    void closeQuietly() {
+      try {
+        connection.close();
+      }
+      catch (SQLException ex) {
+        // nothing useful can be done
+      }
+    }
+  }
+
+  /**
+   * The arguments to {@link java.sql.DriverManager#getConnection(String, Properties)}.
+   * Two Sessions can share a physical connection only if their keys are equal.
+   */
+  static final class ConnectionKey {
+
+    final String url;
+    final Properties info;
+
+    ConnectionKey(String url, Properties info) {
+      this.url = url;
+      this.info = info;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) return true;
+      if (!(other instanceof ConnectionKey)) return false;
+      ConnectionKey k = (ConnectionKey)other;
+      return Objects.equals(url, k.url) && info.equals(k.info);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(url) * 31 + info.hashCode();
+    }
+  }
+
+  private static final class Waiter {
+
+    final ConnectionKey key;
+    final Caching caching;
+    final Executor executor;
+    final CompletableFuture<PooledConnection> future = new CompletableFuture<>();
+
+    Waiter(ConnectionKey key, Caching caching, Executor executor) {
+      this.key = key;
+      this.caching = caching;
+      this.executor = executor;
+    }
+  }
+}
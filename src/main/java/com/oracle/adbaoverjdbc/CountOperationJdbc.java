@@ -15,10 +15,14 @@
  */
 package com.oracle.adbaoverjdbc;
 
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
@@ -54,9 +58,19 @@ class CountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
   private final String sqlString;
   protected Function<? super Result.RowCount, ? extends T> countProcessor;
   
-  private PreparedStatement jdbcStatement;
+  private volatile PreparedStatement jdbcStatement;
   private GeneratedKeysRowOperation rowOperation;
   private String autoKeyColNames[];
+  
+  /** the run this Operation is batched with. null if not coalesced */
+  private Batch batch = null;
+  
+  /** set by the member of the batch that executes it */
+  private long batchCount;
+  private SqlException batchError;
+  
+  /** true once the run containing this Operation executes. Guarded by batch */
+  private boolean isClaimed = false;
 
   CountOperationJdbc(SessionJdbc session, OperationGroupJdbc operationGroup, String sql) {
     super(session, operationGroup);
@@ -66,6 +80,24 @@ class CountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
     rowOperation = null;
   }
 
+  @Override
+  String sqlString() {
+    return sqlString;
+  }
+
+  @Override
+  boolean cancel() {
+    if (batch != null) return batch.cancel(this);
+    return cancelAlone();
+  }
+  
+  private boolean cancelAlone() {
+    synchronized (cancelLock) {
+      cancelStatement(jdbcStatement);
+    }
+    return super.cancel();
+  }
+
   @Override
   public RowOperation<T> returning(String... keys) {
     rowOperation = new GeneratedKeysRowOperation(session, group);
@@ -97,17 +129,27 @@ class CountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
    */
   private T executeQuery(Object ignore) {
     checkCanceled();
+    if (batch != null) {
+      List<CountOperationJdbc<?>> run = batch.take(this);
+      if (run != null && run.size() > 1) executeBatch(run);
+      if (run == null || run.size() > 1) {
+        if (batchError != null) throw batchError;
+        return countProcessor.apply(ResultImpl.newRowCount(batchCount));
+      }
+    }
+    long start = executeStarted();
+    boolean isHandedOff = false;
     try {
+      BindingPlanJdbc plan = bindingPlan(sqlString);
       if(autoKeyColNames != null)      
-        jdbcStatement = session.prepareStatement(sqlString, autoKeyColNames);
+        jdbcStatement = connection().prepareStatement(plan.jdbcSql(), autoKeyColNames);
       else
-        jdbcStatement = session.prepareStatement(sqlString);
+        jdbcStatement = connection().prepareStatement(plan.jdbcSql());
         
-      setParameters.forEach((String k, ParameterValue v) -> {
-        v.set(jdbcStatement, k);
-      });
+      plan.bind(jdbcStatement, setParameters);
       group.logger.log(Level.FINE, () -> "executeLargeUpdate(\"" + sqlString + "\")");
       long c = jdbcStatement.executeLargeUpdate();
+      executeEnded(start);
       
       if(autoKeyColNames != null) {
         
@@ -115,13 +157,211 @@ class CountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
         ResultSet rs = jdbcStatement.getGeneratedKeys();
         
         // Set the resultset and complete the future, so RowOperation process the result
-        rowOperation.setResultSet(rs);
+        try {
+          rowOperation.setResultSet(rs);
+        }
+        catch (RuntimeException ex) {
+          rs.close();
+          throw ex;
+        }
+        // the RowOperation closes the resultset and gives back the statement
+        isHandedOff = true;
+      }
+      else {
+        releaseStatement();
       }
       
       return countProcessor.apply(ResultImpl.newRowCount(c));
     }
     catch (SQLException ex) {
-      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      SqlException sqlEx = new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      if (!isHandedOff) releaseAfterError(sqlEx);
+      throw sqlEx;
+    }
+    catch (RuntimeException ex) {
+      if (!isHandedOff) releaseAfterError(ex);
+      throw ex;
+    }
+    finally {
+      executedWrite();
+    }
+  }
+  
+  /**
+   * Join the run of the previous member of a sequential OperationGroup, or 
+   * start a new run if that is not possible. Called when this Operation is
+   * submitted.
+   * 
+   * @param previous the run of the previous member or null if the previous
+   * member is not a coalesced row count Operation
+   * @return the run this Operation joined or null if it can't be batched
+   */
+  Batch joinBatch(Batch previous) {
+    if (autoKeyColNames != null || futureParameters != null) return null;
+    batch = previous != null && previous.join(this) ? previous : new Batch(this);
+    return batch;
+  }
+  
+  /**
+   * Execute the members of a run as one batch and record each member's 
+   * count or error.
+   * 
+   * @param run the members to execute, starting with this Operation
+   */
+  private void executeBatch(List<CountOperationJdbc<?>> run) {
+    BindingPlanJdbc plan = bindingPlan(sqlString);
+    long[] starts = new long[run.size()];
+    try {
+      jdbcStatement = connection().prepareStatement(plan.jdbcSql());
+      for (int i = 0; i < starts.length; i++) {
+        CountOperationJdbc<?> member = run.get(i);
+        starts[i] = member.executeStarted();
+        plan.bind(jdbcStatement, member.setParameters);
+        jdbcStatement.addBatch();
+      }
+      group.logger.log(Level.FINE, () -> "executeLargeBatch(\"" + sqlString + "\") of " + run.size()); //DEBUG
+      long[] counts = jdbcStatement.executeLargeBatch();
+      for (int i = 0; i < starts.length; i++) {
+        CountOperationJdbc<?> member = run.get(i);
+        member.executeEnded(starts[i]);
+        member.batchCount = i < counts.length ? counts[i] : Statement.SUCCESS_NO_INFO;
+      }
+    }
+    catch (BatchUpdateException ex) {
+      SqlException error = new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      long[] counts = ex.getLargeUpdateCounts();
+      for (int i = 0; i < starts.length; i++) {
+        CountOperationJdbc<?> member = run.get(i);
+        if (counts != null && i < counts.length && counts[i] != Statement.EXECUTE_FAILED)
+          member.batchCount = counts[i];
+        else
+          member.batchError = error;
+      }
+    }
+    catch (SQLException ex) {
+      SqlException error = new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      run.forEach(member -> member.batchError = error);
+    }
+    catch (RuntimeException ex) {
+      SqlException error = ex instanceof SqlException ? (SqlException)ex
+        : new SqlException(ex.getMessage(), ex, null, -1, sqlString, -1);
+      run.forEach(member -> member.batchError = error);
+    }
+    finally {
+      releaseBatchStatement();
+      executedWrite();
+    }
+  }
+  
+  private void releaseBatchStatement() {
+    synchronized (cancelLock) {
+      PreparedStatement stmt = jdbcStatement;
+      if (stmt == null) return;
+      jdbcStatement = null;
+      try {
+        stmt.clearBatch();
+        connection().releaseStatement(stmt);
+      }
+      catch (SQLException ex) {
+        group.logger.log(Level.FINE, () -> "release failed: " + ex.getMessage()); //DEBUG
+      }
+    }
+  }
+  
+  /**
+   * Give back the statement after an error. A failure to give it back is 
+   * added to the error rather than hiding it.
+   * 
+   * @param t the error
+   */
+  private void releaseAfterError(Throwable t) {
+    try {
+      releaseStatement();
+    }
+    catch (SQLException releaseEx) {
+      t.addSuppressed(releaseEx);
+    }
+  }
+  
+  /**
+   * Give the statement back to the Session. A late cancel then finds no 
+   * statement rather than one another Operation has borrowed.
+   */
+  private void releaseStatement() throws SQLException {
+    synchronized (cancelLock) {
+      PreparedStatement stmt = jdbcStatement;
+      if (stmt == null) return;
+      jdbcStatement = null;
+      connection().releaseStatement(stmt);
+    }
+  }
+  
+  /**
+   * A run of adjacent row count Operations with the same SQL in a sequential
+   * OperationGroup, see 
+   * {@link SessionPropertiesJdbc#COALESCE_COUNT_OPERATIONS}. The first member
+   * to execute executes itself and every member after it as one batch. The 
+   * other members just complete with the count that it recorded for them. 
+   * Operations can join until the run executes.
+   */
+  static final class Batch {
+    
+    private final String sql;
+    private final boolean isNamed;
+    
+    // guarded by this
+    private final List<CountOperationJdbc<?>> members = new ArrayList<>();
+    private boolean isExecuted = false;
+    
+    private Batch(CountOperationJdbc<?> first) {
+      sql = first.sqlString;
+      isNamed = first.isNamed();
+      members.add(first);
+    }
+    
+    /**
+     * @param op a row count Operation that was just submitted
+     * @return true if op joined this run
+     */
+    synchronized boolean join(CountOperationJdbc<?> op) {
+      if (isExecuted || !sql.equals(op.sqlString) || isNamed != op.isNamed()) return false;
+      members.add(op);
+      return true;
+    }
+    
+    /**
+     * Claim the run for execution. The members before op were skipped or 
+     * canceled since members execute in order. The claimed members are 
+     * executing from now on and can no longer be canceled.
+     * 
+     * @param op the member that is executing
+     * @return op and the members after it that are not canceled, or null if
+     * the run was already executed
+     */
+    synchronized List<CountOperationJdbc<?>> take(CountOperationJdbc<?> op) {
+      if (isExecuted) return null;
+      op.checkCanceled();
+      isExecuted = true;
+      List<CountOperationJdbc<?>> run = new ArrayList<>(members.size());
+      for (int i = members.indexOf(op); i < members.size(); i++) {
+        CountOperationJdbc<?> member = members.get(i);
+        if (member == op || !member.isCanceled()) {
+          member.isClaimed = true;
+          run.add(member);
+        }
+      }
+      return run;
+    }
+    
+    /**
+     * Cancel a member unless the run it belongs to is executing.
+     * 
+     * @param op a member of this run
+     * @return true if op was canceled
+     */
+    synchronized boolean cancel(CountOperationJdbc<?> op) {
+      if (op.isClaimed) return false;
+      return op.cancelAlone();
     }
   }
   
@@ -227,7 +467,8 @@ class CountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
     @Override
     protected void JdbcClose() {
       try {
-        jdbcStatement.close();
+        if (resultSet != null) resultSet.close();
+        CountOperationJdbc.this.releaseStatement();
       } 
       catch (SQLException ex) {
         throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
@@ -236,13 +477,15 @@ class CountOperationJdbc<T> extends ParameterizedOperationJdbc<T>
  
     @Override
     protected void JdbcCancel() {
-      try {
-        if (jdbcStatement != null) {
-          jdbcStatement.cancel();
+      synchronized (CountOperationJdbc.this.cancelLock) {
+        try {
+          if (jdbcStatement != null) {
+            jdbcStatement.cancel();
+          }
+        }
+        catch (SQLException ex) {
+          throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
         }
-      }
-      catch (SQLException ex) {
-        throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
       }
     }
   } // GeneratedKeysRowOperation
@@ -117,7 +117,8 @@ class DataSourceBuilderJdbc implements DataSource.Builder {
       throw new IllegalStateException("cannot build more than once. All objects are use-once");
     }
     isBuilt = true;
-    return DataSourceJdbc.newDataSource(defaultSessionProperties, requiredSessionProperties);
+    return DataSourceJdbc.newDataSource(dataSourceProperties, defaultSessionProperties, 
+                                        requiredSessionProperties);
   }
 
   /**
@@ -15,34 +15,80 @@
  */
 package com.oracle.adbaoverjdbc;
 
-import java.util.HashSet;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import jdk.incubator.sql2.AdbaDataSourceProperty;
+import jdk.incubator.sql2.AdbaSessionProperty.Caching;
 import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.DataSourceProperty;
 import jdk.incubator.sql2.SessionProperty;
 
 /**
- * Bare bones DataSource. No support for Session caching.
+ * Bare bones DataSource. Sessions lease their java.sql.Connections from a
+ * pool bounded by {@link AdbaDataSourceProperty#MAX_RESOURCES} and
+ * {@link AdbaDataSourceProperty#MAX_IDLE_RESOURCES}. If 
+ * {@link DataSourcePropertiesJdbc#IO_THREADS} is set Sessions make their 
+ * blocking JDBC calls on a thread pool shared by the DataSource.
  *
  */
 class DataSourceJdbc implements DataSource {
 
-  static DataSourceJdbc newDataSource(Map<SessionProperty, Object> defaultSessionProperties,
+  static DataSourceJdbc newDataSource(Map<DataSourceProperty, Object> dataSourceProperties,
+          Map<SessionProperty, Object> defaultSessionProperties,
           Map<SessionProperty, Object> requiredSessionProperties) {
-    return new DataSourceJdbc(defaultSessionProperties, requiredSessionProperties);
+    return new DataSourceJdbc(dataSourceProperties, defaultSessionProperties, 
+                              requiredSessionProperties);
   }
 
+  protected final Map<DataSourceProperty, Object> dataSourceProperties;
   protected final Map<SessionProperty, Object> defaultSessionProperties;
   protected final Map<SessionProperty, Object> requiredSessionProperties;
   
-  protected final Set<SessionJdbc> openSessions = new HashSet<>();
+  protected final Set<SessionJdbc> openSessions = ConcurrentHashMap.newKeySet();
+  
+  private final ConnectionPoolJdbc connectionPool;
+  
+  /** null if Sessions make blocking calls on their own Executor */
+  private final ExecutorService ioExecutor;
+  
+  /** null if Operations are not measured */
+  private final OperationMetrics metrics;
+  
+  /** null if Operations are not traced */
+  private final OperationTraceListener tracer;
+  
+  /** null if no query results are cached */
+  private final QueryResultCache resultCache;
+  
+  /** expires Operation timeouts. Starts a thread only when first used */
+  private final TimeoutSchedulerJdbc timeoutScheduler = 
+    TimeoutSchedulerJdbc.newTimeoutScheduler();
 
-  protected DataSourceJdbc(Map<SessionProperty, Object> defaultProps,
+  protected DataSourceJdbc(Map<DataSourceProperty, Object> dataSourceProps,
+          Map<SessionProperty, Object> defaultProps,
           Map<SessionProperty, Object> requiredProps) {
     super();
+    dataSourceProperties = dataSourceProps;
     defaultSessionProperties = defaultProps;
     requiredSessionProperties = requiredProps;
+    connectionPool = ConnectionPoolJdbc.newConnectionPool(
+      dataSourcePropertyValue(AdbaDataSourceProperty.MAX_RESOURCES),
+      dataSourcePropertyValue(AdbaDataSourceProperty.MAX_IDLE_RESOURCES));
+    int ioThreads = dataSourcePropertyValue(DataSourcePropertiesJdbc.IO_THREADS);
+    ioExecutor = ioThreads > 0 ? ExecutorsJdbc.newIoExecutor(ioThreads) : null;
+    metrics = dataSourcePropertyValue(DataSourcePropertiesJdbc.METRICS);
+    tracer = dataSourcePropertyValue(DataSourcePropertiesJdbc.TRACE_LISTENER);
+    resultCache = dataSourcePropertyValue(DataSourcePropertiesJdbc.RESULT_CACHE);
   }
 
   @Override
@@ -52,11 +98,95 @@ class DataSourceJdbc implements DataSource {
 
   @Override
   public void close() {
-    openSessions.stream().forEach( c -> c.close() );
+    // Session.close only submits the close Operation, which runs on the I/O
+    // pool. Wait for it so the transactions end and the connections return,
+    // but not forever. A Session stuck behind a hung Operation is aborted
+    Duration timeout = dataSourcePropertyValue(DataSourcePropertiesJdbc.CLOSE_TIMEOUT);
+    try {
+      CompletableFuture.allOf(openSessions.stream()
+                                          .map(c -> c.closeAsync().toCompletableFuture())
+                                          .toArray(CompletableFuture<?>[]::new))
+                       .get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException | ExecutionException ex) {
+      // abort what is left
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    for (SessionJdbc session : openSessions) {
+      try {
+        session.abort();
+      }
+      catch (RuntimeException ex) {
+        // the connection is abandoned anyway
+      }
+    }
+    connectionPool.close();
+    if (ioExecutor != null) ioExecutor.shutdown();
+    timeoutScheduler.shutdown();
+  }
+  
+  /**
+   * @return the Executor for blocking JDBC calls or null if there is none
+   */
+  Executor ioExecutor() {
+    return ioExecutor;
+  }
+  
+  /**
+   * @return the receiver of Operation measurements or null if there is none
+   */
+  OperationMetrics metrics() {
+    return metrics;
+  }
+  
+  TimeoutSchedulerJdbc timeoutScheduler() {
+    return timeoutScheduler;
   }
   
+  /**
+   * @return the receiver of Operation events or null if there is none
+   */
+  OperationTraceListener tracer() {
+    return tracer;
+  }
+  
+  /**
+   * @return the cache of query results or null if there is none
+   */
+  QueryResultCache resultCache() {
+    return resultCache;
+  }
+  
+  @SuppressWarnings("unchecked")
+  protected <V> V dataSourcePropertyValue(DataSourceProperty prop) {
+    V value = (V)dataSourceProperties.get(prop);
+    if (value == null) return (V)prop.defaultValue();
+    else return value;
+  }
+  
+  CompletionStage<ConnectionPoolJdbc.PooledConnection> leaseConnection(
+    ConnectionPoolJdbc.ConnectionKey key, Caching caching, Executor executor) {
+    return connectionPool.lease(key, caching, executor);
+  }
+  
+  /**
+   * @return a CompletionStage that is completed with a connection, or null if
+   * one is not immediately available
+   */
+  CompletionStage<ConnectionPoolJdbc.PooledConnection> tryLeaseConnection(
+    ConnectionPoolJdbc.ConnectionKey key, Executor executor) {
+    return connectionPool.tryLease(key, executor);
+  }
   
+  DataSourceJdbc releaseConnection(ConnectionPoolJdbc.PooledConnection conn, 
+                                   boolean isReusable) {
+    connectionPool.release(conn, isReusable);
+    return this;
+  }
   
+
   DataSourceJdbc registerSession(SessionJdbc c) {
     openSessions.add(c);
     return this;
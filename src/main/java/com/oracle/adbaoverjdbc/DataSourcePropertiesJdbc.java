@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import jdk.incubator.sql2.DataSourceProperty;
+
+/**
+ * AoJ specific DataSourceProperties. These apply to the DataSource as a 
+ * whole and are shared by all of its Sessions.
+ */
+public enum DataSourcePropertiesJdbc implements DataSourceProperty {
+
+  /**
+   * The maximum number of threads the DataSource uses to make blocking JDBC
+   * calls. If greater than 0 every Session of the DataSource executes, 
+   * fetches, commits, connects and so on using a pool of at most this many
+   * threads. The Session's
+   * {@link jdk.incubator.sql2.AdbaSessionProperty#EXECUTOR} then only runs
+   * OperationGroup collector finishers and the stages returned by 
+   * {@link jdk.incubator.sql2.Submission#getCompletionStage()}. So slow 
+   * queries can't starve completion handling, and the default EXECUTOR, 
+   * ForkJoinPool.commonPool(), is not blocked. Row collector accumulators 
+   * and finishers, result processors and Flow subscriber signals still run 
+   * on the I/O threads and must not block. A value of 0 runs everything 
+   * on the Session's EXECUTOR. Ignored by Sessions that use
+   * {@link SessionPropertiesJdbc.ExecutorMode#VIRTUAL_THREADS}. The default
+   * is 0.
+   */
+  IO_THREADS(Integer.class,
+          v -> v instanceof Integer && (int) v >= 0,
+          0,
+          false),
+
+  /**
+   * Receives the queue, execute and fetch times, row counts, errors and 
+   * cancellations of the Operations of all Sessions of the DataSource. See
+   * {@link LatencyMetrics} for an implementation. The default is null, ie
+   * nothing is measured.
+   */
+  METRICS(OperationMetrics.class,
+          v -> v instanceof OperationMetrics,
+          null,
+          false),
+
+  /**
+   * Receives an event at each step of the Operations of all Sessions of the
+   * DataSource. The default is null, ie no events.
+   */
+  TRACE_LISTENER(OperationTraceListener.class,
+          v -> v instanceof OperationTraceListener,
+          null,
+          false),
+
+  /**
+   * Caches the rows of the queries declared with 
+   * {@link QueryResultCache#cache} for all Sessions of the DataSource. The 
+   * default is null, ie nothing is cached.
+   */
+  RESULT_CACHE(QueryResultCache.class,
+          v -> v instanceof QueryResultCache,
+          null,
+          false),
+
+  /**
+   * How long {@link jdk.incubator.sql2.DataSource#close()} waits for the 
+   * Sessions of the DataSource to close. Sessions that are still open after
+   * this are aborted, which abandons their Operations and transactions. The
+   * default is 30 seconds.
+   */
+  CLOSE_TIMEOUT(Duration.class,
+          v -> v instanceof Duration && !((Duration) v).isNegative(),
+          Duration.ofSeconds(30),
+          false);
+
+  private final Class<?> range;
+  private final Function<Object, Boolean> validator;
+  private final Object defaultValue;
+  private final boolean isSensitive;
+
+  private DataSourcePropertiesJdbc(Class<?> range,
+          Function<Object, Boolean> validator,
+          Object value,
+          boolean isSensitive) {
+    this.range = range;
+    this.validator = validator;
+    this.defaultValue = value;
+    this.isSensitive = isSensitive;
+  }
+
+  @Override
+  public Class<?> range() {
+    return range;
+  }
+
+  @Override
+  public boolean validate(Object value) {
+    return validator.apply(value);
+  }
+
+  @Override
+  public Object defaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  public boolean isSensitive() {
+    return isSensitive;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Executors a Session can be configured to use with 
+ * {@link SessionPropertiesJdbc#EXECUTOR_MODE} and the Executor a DataSource 
+ * uses for blocking calls, see {@link DataSourcePropertiesJdbc#IO_THREADS}.
+ * 
+ * The virtual thread Executor is found reflectively so this class compiles 
+ * against Java 10. It starts a new virtual thread for each task, so a task 
+ * that blocks in a JDBC call does not hold a platform thread. It is shared 
+ * by all Sessions and never shut down; an idle virtual thread Executor holds
+ * no threads.
+ */
+class ExecutorsJdbc {
+  
+  private static final Executor VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+  
+  private ExecutorsJdbc() {}
+  
+  /**
+   * @return an Executor that runs each task in a new virtual thread
+   * @throws UnsupportedOperationException if the JVM does not support 
+   * virtual threads
+   */
+  static Executor virtualThreadExecutor() {
+    if (VIRTUAL_THREAD_EXECUTOR == null) {
+      throw new UnsupportedOperationException(
+        "Virtual threads require Java 21 or later. This is Java " 
+        + Runtime.version().feature());
+    }
+    return VIRTUAL_THREAD_EXECUTOR;
+  }
+  
+  /**
+   * @param threads the maximum number of threads
+   * @return an ExecutorService with at most threads daemon threads. Idle 
+   * threads exit after a minute.
+   */
+  static ExecutorService newIoExecutor(int threads) {
+    AtomicInteger count = new AtomicInteger(0);
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 
+      60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), 
+      r -> {
+        Thread t = new Thread(r, "AoJ-io-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+  
+  private static Executor findVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) MethodHandles.publicLookup()
+        .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", 
+                    MethodType.methodType(ExecutorService.class))
+        .invoke();
+    }
+    catch (Throwable t) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of latencies in nanoseconds. Values are counted in 
+ * log-linear buckets, as in an HDR histogram: each power of two is split into
+ * 32 buckets, so a recorded value is reported with an error of at most about
+ * 3%. Values up to Long.MAX_VALUE are recorded in a fixed 15 KB.
+ * 
+ * {@link #record} may be called concurrently from any number of threads.
+ * {@link #snapshot} is not atomic with respect to concurrent recording; a 
+ * snapshot may include some but not all of the values recorded while it is 
+ * being taken.
+ */
+public final class LatencyHistogram {
+  
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+  
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder total = new LongAdder();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong(0L);
+  
+  /**
+   * Record a latency.
+   * 
+   * @param nanos a latency in nanoseconds. Negative values are recorded as 0.
+   */
+  public void record(long nanos) {
+    long v = Math.max(nanos, 0L);
+    counts.incrementAndGet(bucketOf(v));
+    total.add(v);
+    if (v < min.get()) min.accumulateAndGet(v, Math::min);
+    if (v > max.get()) max.accumulateAndGet(v, Math::max);
+  }
+  
+  /**
+   * @return a copy of the current state of this histogram
+   */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    long count = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.get(i);
+      count += copy[i];
+    }
+    return new Snapshot(copy, count, total.sum(), 
+                        count == 0 ? 0L : min.get(), max.get());
+  }
+  
+  static int bucketOf(long v) {
+    if (v < SUB_BUCKETS) return (int)v;
+    int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int)((v >>> shift) & (SUB_BUCKETS - 1));
+  }
+  
+  /** @return the largest value counted in a bucket */
+  static long highestValueIn(int bucket) {
+    if (bucket < SUB_BUCKETS) return bucket;
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    long lowest = (long)(SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+    return lowest + ((1L << shift) - 1);
+  }
+  
+  /**
+   * An immutable copy of a LatencyHistogram.
+   */
+  public static final class Snapshot {
+    
+    private final long[] counts;
+    private final long count;
+    private final long total;
+    private final long min;
+    private final long max;
+    
+    private Snapshot(long[] counts, long count, long total, long min, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.total = total;
+      this.min = min;
+      this.max = max;
+    }
+    
+    /** @return the number of values recorded */
+    public long count() {
+      return count;
+    }
+    
+    /** @return the smallest value recorded, or 0 if none */
+    public long min() {
+      return min;
+    }
+    
+    /** @return the largest value recorded, or 0 if none */
+    public long max() {
+      return max;
+    }
+    
+    /** @return the mean of the values recorded, or 0 if none */
+    public double mean() {
+      return count == 0 ? 0.0 : (double)total / count;
+    }
+    
+    /**
+     * @param percentile between 0.0 and 100.0
+     * @return a value that at least percentile percent of the recorded values
+     * are less than or equal to, or 0 if none were recorded
+     */
+    public long valueAt(double percentile) {
+      if (percentile < 0.0 || percentile > 100.0) {
+        throw new IllegalArgumentException("percentile not between 0 and 100: " + percentile);
+      }
+      if (count == 0) return 0L;
+      long rank = Math.max(1L, (long)Math.ceil(count * percentile / 100.0));
+      long seen = 0L;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) return Math.min(highestValueIn(i), max);
+      }
+      return max;
+    }
+    
+    @Override
+    public String toString() {
+      return "count=" + count + ", min=" + min + ", mean=" + (long)mean() 
+             + ", p50=" + valueAt(50.0) + ", p99=" + valueAt(99.0) 
+             + ", max=" + max;
+    }
+  }
+}
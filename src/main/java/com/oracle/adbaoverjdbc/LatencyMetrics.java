@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OperationMetrics that keeps a {@link LatencyHistogram} of queue, execute 
+ * and fetch times and counts of rows, errors, cancellations and statement 
+ * cache hits and misses for each normalized SQL string. Normalizing replaces string and numeric literals 
+ * with ? and collapses white space, so SQL that differs only in literal 
+ * values is counted together. For example
+ * <pre>
+ * {@code LatencyMetrics metrics = new LatencyMetrics();
+ * DataSource ds = factory.builder()
+ *   .property(DataSourcePropertiesJdbc.METRICS, metrics)
+ *   ...
+ *   .build();
+ * ...
+ * metrics.snapshot().forEach((sql, s) -> System.out.println(sql + ": " + s));}
+ * </pre>
+ * Recording is lock free.
+ */
+public final class LatencyMetrics implements OperationMetrics {
+  
+  /** the most SQL strings remembered un-normalized */
+  private static final int MAX_CACHED_SQL = 10_000;
+  
+  private final Map<String, SqlStats> byRawSql = new ConcurrentHashMap<>();
+  private final Map<String, SqlStats> byNormalizedSql = new ConcurrentHashMap<>();
+  
+  @Override
+  public void queued(String sql, long nanos) {
+    statsFor(sql).queue.record(nanos);
+  }
+
+  @Override
+  public void prepared(String sql, boolean isCached) {
+    SqlStats s = statsFor(sql);
+    if (isCached) s.statementCacheHits.increment();
+    else s.statementCacheMisses.increment();
+  }
+
+  @Override
+  public void executed(String sql, long nanos) {
+    statsFor(sql).execute.record(nanos);
+  }
+
+  @Override
+  public void fetched(String sql, long nanos, long rows) {
+    SqlStats s = statsFor(sql);
+    s.fetch.record(nanos);
+    s.rows.add(rows);
+  }
+
+  @Override
+  public void failed(String sql, Throwable error) {
+    statsFor(sql).errors.increment();
+  }
+
+  @Override
+  public void canceled(String sql) {
+    statsFor(sql).cancellations.increment();
+  }
+  
+  /**
+   * @return a copy of the current measurements, keyed by normalized SQL in 
+   * SQL order
+   */
+  public Map<String, Snapshot> snapshot() {
+    Map<String, Snapshot> snapshot = new TreeMap<>();
+    byNormalizedSql.forEach((sql, s) -> snapshot.put(sql, s.snapshot()));
+    return snapshot;
+  }
+  
+  private SqlStats statsFor(String sql) {
+    SqlStats s = byRawSql.get(sql);
+    if (s == null) {
+      s = byNormalizedSql.computeIfAbsent(normalize(sql), k -> new SqlStats());
+      if (byRawSql.size() < MAX_CACHED_SQL) byRawSql.putIfAbsent(sql, s);
+    }
+    return s;
+  }
+  
+  /**
+   * Replace literals with ? and collapse white space.
+   * 
+   * @param sql a SQL string
+   * @return the normalized SQL string
+   */
+  static String normalize(String sql) {
+    StringBuilder out = new StringBuilder(sql.length());
+    int n = sql.length();
+    int i = 0;
+    while (i < n) {
+      char c = sql.charAt(i);
+      if (c == '\'') {
+        // string literal. '' is an escaped quote
+        i++;
+        while (i < n) {
+          if (sql.charAt(i) == '\'') {
+            if (i + 1 < n && sql.charAt(i + 1) == '\'') i += 2;
+            else break;
+          }
+          else i++;
+        }
+        i++;
+        out.append('?');
+      }
+      else if (c == '"') {
+        // quoted identifier
+        int end = sql.indexOf('"', i + 1);
+        end = end < 0 ? n : end + 1;
+        out.append(sql, i, end);
+        i = end;
+      }
+      else if (Character.isWhitespace(c)) {
+        while (i < n && Character.isWhitespace(sql.charAt(i))) i++;
+        if (out.length() > 0 && i < n) out.append(' ');
+      }
+      else if (Character.isDigit(c) && !isIdentifierPart(out)) {
+        while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+        out.append('?');
+      }
+      else {
+        out.append(c);
+        i++;
+      }
+    }
+    return out.toString();
+  }
+  
+  private static boolean isIdentifierPart(StringBuilder out) {
+    if (out.length() == 0) return false;
+    char last = out.charAt(out.length() - 1);
+    return Character.isLetterOrDigit(last) || last == '_' || last == '$' || last == '#';
+  }
+  
+  private static final class SqlStats {
+    
+    final LatencyHistogram queue = new LatencyHistogram();
+    final LatencyHistogram execute = new LatencyHistogram();
+    final LatencyHistogram fetch = new LatencyHistogram();
+    final LongAdder rows = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder cancellations = new LongAdder();
+    final LongAdder statementCacheHits = new LongAdder();
+    final LongAdder statementCacheMisses = new LongAdder();
+    
+    Snapshot snapshot() {
+      return new Snapshot(queue.snapshot(), execute.snapshot(), fetch.snapshot(),
+                          rows.sum(), errors.sum(), cancellations.sum(),
+                          statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+  }
+  
+  /**
+   * The measurements of one normalized SQL string.
+   */
+  public static final class Snapshot {
+    
+    private final LatencyHistogram.Snapshot queueTime;
+    private final LatencyHistogram.Snapshot executeTime;
+    private final LatencyHistogram.Snapshot fetchTime;
+    private final long rows;
+    private final long errors;
+    private final long cancellations;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    
+    private Snapshot(LatencyHistogram.Snapshot queueTime, 
+                     LatencyHistogram.Snapshot executeTime,
+                     LatencyHistogram.Snapshot fetchTime,
+                     long rows, long errors, long cancellations,
+                     long statementCacheHits, long statementCacheMisses) {
+      this.queueTime = queueTime;
+      this.executeTime = executeTime;
+      this.fetchTime = fetchTime;
+      this.rows = rows;
+      this.errors = errors;
+      this.cancellations = cancellations;
+      this.statementCacheHits = statementCacheHits;
+      this.statementCacheMisses = statementCacheMisses;
+    }
+    
+    /** @return the times from submit until execution started */
+    public LatencyHistogram.Snapshot queueTime() {
+      return queueTime;
+    }
+    
+    /** @return the times spent executing statements */
+    public LatencyHistogram.Snapshot executeTime() {
+      return executeTime;
+    }
+    
+    /** @return the times spent fetching the rows of queries */
+    public LatencyHistogram.Snapshot fetchTime() {
+      return fetchTime;
+    }
+    
+    /** @return the total number of rows fetched */
+    public long rows() {
+      return rows;
+    }
+    
+    /** @return the number of Operations that failed */
+    public long errors() {
+      return errors;
+    }
+    
+    /** @return the number of Operations that were canceled or skipped */
+    public long cancellations() {
+      return cancellations;
+    }
+    
+    /** @return the number of statements taken from a statement cache */
+    public long statementCacheHits() {
+      return statementCacheHits;
+    }
+    
+    /** @return the number of statements prepared because a statement cache
+     * did not hold one */
+    public long statementCacheMisses() {
+      return statementCacheMisses;
+    }
+    
+    @Override
+    public String toString() {
+      return "queue[" + queueTime + "] execute[" + executeTime + "] fetch[" 
+             + fetchTime + "] rows=" + rows + " errors=" + errors 
+             + " cancellations=" + cancellations 
+             + " statementCacheHits=" + statementCacheHits
+             + " statementCacheMisses=" + statementCacheMisses;
+    }
+  }
+}
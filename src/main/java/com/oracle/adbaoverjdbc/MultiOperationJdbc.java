@@ -74,7 +74,7 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
   // internal state
   
   /** CallableStatement to execute the given SQL */
-  private CallableStatement jdbcStatement;
+  private volatile CallableStatement jdbcStatement;
   
   /** Number of the resultset. 1, 2, 3 etc. */
   private int resultNum = 0;
@@ -111,6 +111,17 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
     sqlString = sql;
     resultOperations = new ConcurrentLinkedQueue<Operation>();
   }
+
+  @Override
+  String sqlString() {
+    return sqlString;
+  }
+
+  @Override
+  boolean cancel() {
+    cancelStatement(jdbcStatement);
+    return super.cancel();
+  }
   
  /**
   * Once the predecessor gets completed (i.e. session gets created successfully),
@@ -142,15 +153,16 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
     boolean queryResult;
     
     checkCanceled();
+    long start = executeStarted();
     try {
-      jdbcStatement = session.prepareCall(sqlString);
+      BindingPlanJdbc plan = bindingPlan(sqlString);
+      jdbcStatement = connection().prepareCall(plan.jdbcSql());
       initFetchSize();
       registerOutParameters(jdbcStatement);
-      setParameters.forEach((String k, ParameterValue v) -> {
-        v.set(jdbcStatement, k);
-      });
+      plan.bind(jdbcStatement, setParameters);
       group.logger.log(Level.FINE, () -> "executeQuery(\"" + sqlString + "\")");
       queryResult = jdbcStatement.execute();
+      executeEnded(start);
     }
     catch (SQLException ex) {
       throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
@@ -252,8 +264,8 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
     // Wait in resultProcesses stage until child operation process the result.
     // Then again move to moreResult stage to process next resultset.
     return resultStage
-             .thenComposeAsync(((ChildRowOperation)operation)::resultProcessed, getExecutor())
-             .thenComposeAsync(this::checkForMoreResults, getExecutor());
+             .thenComposeAsync(((ChildRowOperation)operation)::resultProcessed, getIoExecutor())
+             .thenComposeAsync(this::checkForMoreResults, getIoExecutor());
   }
   
   
@@ -274,7 +286,7 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
             throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
           }
         })
-        .thenComposeAsync(this::moreResults, getExecutor());
+        .thenComposeAsync(this::moreResults, getIoExecutor());
   }
   
   /**
@@ -317,8 +329,8 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
     
       
     return resultStage
-            .thenComposeAsync(((ChildRowCountOperation)operation)::resultCountProcessed, getExecutor())
-            .thenComposeAsync(this::checkForMoreResults, getExecutor());
+            .thenComposeAsync(((ChildRowCountOperation)operation)::resultCountProcessed, getIoExecutor())
+            .thenComposeAsync(this::checkForMoreResults, getIoExecutor());
   }
   
   /**
@@ -332,7 +344,7 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
     // All results are processed.
     // Move to complete query stage
     resultNum--;
-    return CompletableFuture.supplyAsync(this::completeQuery, getExecutor());
+    return CompletableFuture.supplyAsync(this::completeQuery, getIoExecutor());
   }
   
   
@@ -351,7 +363,7 @@ class MultiOperationJdbc<T> extends OutOperationJdbc<T>
       // If there is no output parameter processor then
       // close the statement.
       if(processor == null)
-          jdbcStatement.close();
+          connection().releaseStatement(jdbcStatement);
       
       return  (T)((processor != null) 
                   ? processor.apply(ResultImpl.newOutColumn(this))
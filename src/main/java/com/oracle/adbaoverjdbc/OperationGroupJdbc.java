@@ -16,6 +16,8 @@
 package com.oracle.adbaoverjdbc;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
@@ -24,7 +26,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collector;
 
+import jdk.incubator.sql2.AdbaSessionProperty;
 import jdk.incubator.sql2.ArrayRowCountOperation;
+import jdk.incubator.sql2.BatchRowCountOperation;
 import jdk.incubator.sql2.LocalOperation;
 import jdk.incubator.sql2.MultiOperation;
 import jdk.incubator.sql2.OperationGroup;
@@ -37,8 +41,6 @@ import jdk.incubator.sql2.TransactionCompletion;
 import jdk.incubator.sql2.TransactionOutcome;
 
 /**
- * Only sequential, dependent, unconditional supported.
- * 
  * Each member Operation creates a CompletableFuture that depends on the previous
  * member's CompletableFuture. The first member Operation depends on a distinguished
  * CompletableFuture called the head. When the head is completed
@@ -57,12 +59,25 @@ import jdk.incubator.sql2.TransactionOutcome;
  * When the last member Operation is completed the result of the OperationGroup is
  * computed by applying collector.finisher to the accumulator.
  * 
- * For parallel groups each member Operation should depend directly on the
- * head and the OperationGroup's result should depend on all the member
- * Operations.
+ * For parallel groups each member Operation depends directly on the head and 
+ * memberTail depends on all the member Operations. Members share the 
+ * Session's java.sql.Connection, so a member can bind its parameters and 
+ * prepare its statement while the previous member is executing. The JDBC 
+ * driver serializes the database calls.
+ * 
+ * If the Session is {@link AdbaSessionProperty#READ_ONLY} and 
+ * {@link SessionPropertiesJdbc#PARALLEL_CONNECTIONS} is greater than one, a
+ * parallel group leases additional connections before completing head and 
+ * spreads its members across them round robin. The additional connections 
+ * are given back when all the members have completed. If the DataSource has 
+ * no connection to spare the members use fewer connections; a group never 
+ * waits for a connection since that could deadlock with the Session that 
+ * holds it. Members on an additional connection do not see changes made in 
+ * the Session's current transaction.
  * 
- * For independent groups follows needs to insure the returned CompletableFuture
- * hides any exceptions.
+ * For independent groups memberTail hides the exceptions of the members, so
+ * a member that fails does not cause the members that follow it to be
+ * skipped and does not cause the OperationGroup to fail.
  * 
  * For conditional groups the head should depend on both the predecessor
  * completing and the condition completing with true.
@@ -119,12 +134,33 @@ class OperationGroupJdbc<S, T> extends OperationJdbc<T>
    */
   private CompletionStage<S> memberTail;
   
+  /**
+   * Completed when all member Operations of a parallel group have completed,
+   * normally or exceptionally. Mutable until not isHeld().
+   */
+  private CompletionStage<?> membersSettled;
+  private int memberCount = 0;
+  
+  /**
+   * The run of row count Operations the next member may join. Null unless
+   * the last member submitted is a row count Operation and
+   * {@link SessionPropertiesJdbc#COALESCE_COUNT_OPERATIONS} is set.
+   */
+  private CountOperationJdbc.Batch countBatch = null;
+  
+  /**
+   * The connections the members of a parallel group execute on. Null if the
+   * members use the connection of the enclosing group.
+   */
+  private volatile SessionConnectionJdbc[] lanes = null;
+  
   // used only by Session. Will break if used by any other class.
   protected OperationGroupJdbc() {
     super();
     held = new CompletableFuture();
     head = new CompletableFuture();
     memberTail = head;
+    membersSettled = head;
     collector = DEFAULT_COLLECTOR;
   }
   
@@ -133,6 +169,7 @@ class OperationGroupJdbc<S, T> extends OperationJdbc<T>
     held = new CompletableFuture();
     head = new CompletableFuture();
     memberTail = head;
+    membersSettled = head;
     collector = DEFAULT_COLLECTOR;
   }
   
@@ -216,6 +253,14 @@ class OperationGroupJdbc<S, T> extends OperationJdbc<T>
                                                                 this, sql));
   }
 
+  @Override
+  public <R extends S> BatchRowCountOperation<R> batchRowCountOperation(String sql) {
+    assertOpen();
+    if (sql == null) throw new IllegalArgumentException("Null argument.");
+    return addMember(BatchCountOperationJdbc.newBatchCountOperation(session, 
+                                                                this, sql));
+  }
+
   @Override
   public <R extends S> ParameterizedRowCountOperation<R> rowCountOperation(String sql) {
     assertOpen();
@@ -302,9 +347,31 @@ class OperationGroupJdbc<S, T> extends OperationJdbc<T>
   
   // Internal methods
   
-  Submission<S> submit(OperationJdbc<S> op) {      
-    memberTail = op.attachCompletionHandler(op.follows(memberTail, getExecutor()));
-    return SubmissionJdbc.submit(this::cancel, memberTail);
+  Submission<S> submit(OperationJdbc<S> op) {
+    CompletionStage<?> predecessor = isParallel ? head : memberTail;
+    if (session.tracer() != null) {
+      predecessor = predecessor.whenComplete(
+        (r, t) -> op.trace(OperationTraceListener.Event.PREDECESSOR_COMPLETE));
+    }
+    if (isParallel) op.laneIndex = memberCount++;
+    else if (op instanceof CountOperationJdbc 
+             && session.<Boolean>sessionPropertyValue(
+                  SessionPropertiesJdbc.COALESCE_COUNT_OPERATIONS))
+      countBatch = ((CountOperationJdbc<S>)op).joinBatch(countBatch);
+    else countBatch = null;
+    CompletionStage<S> result = 
+      op.attachCompletionHandler(op.follows(predecessor, getIoExecutor()));
+    CompletionStage<S> member = isIndependent 
+                                ? result.handle((r, t) -> r) 
+                                : result;
+    memberTail = isParallel 
+                 ? memberTail.thenCombine(member, (t, m) -> m) 
+                 : member;
+    if (isParallel) 
+      membersSettled = membersSettled.thenCombine(result.handle((r, t) -> r), 
+                                                  (t, m) -> m);
+    return SubmissionJdbc.submit(op::cancel, 
+                                 session.handOff(op.withTimeout(result)));
   }
 
   @Override
@@ -315,22 +382,94 @@ class OperationGroupJdbc<S, T> extends OperationJdbc<T>
           if (cond == null || !cond) 
             return CompletableFuture.completedFuture(null);
         
-          head.complete(predecessor);
-          return held.thenCompose(h -> memberTail.thenApplyAsync(t -> 
-                                         (T)collector.finisher()
-                                           .apply(accumulator),
-                                         executor));
+          return leaseLanes().thenCompose(x -> {
+            head.complete(predecessor);
+            if (lanes != null) {
+              held.thenCompose(h -> membersSettled)
+                .whenCompleteAsync((v, t) -> releaseLanes(), executor);
+            }
+            return held.thenCompose(h -> memberTail.thenApplyAsync(t -> 
+                                           (T)collector.finisher()
+                                             .apply(accumulator),
+                                           getExecutor()));
+          });
         })
       );
   }
   
+  /**
+   * The connection that a member Operation executes on.
+   * 
+   * @param member a member Operation of this group
+   * @return a connection or null if the Session is not attached
+   */
+  SessionConnectionJdbc memberConnection(OperationJdbc<?> member) {
+    SessionConnectionJdbc[] l = lanes;
+    if (l == null) return group.memberConnection(this);
+    else return l[member.laneIndex % l.length];
+  }
+  
+  /**
+   * If this is a parallel group in a read only Session lease the additional
+   * connections its members execute on. The first lane is the connection of
+   * the enclosing group. 
+   */
+  private CompletionStage<Void> leaseLanes() {
+    int count = isParallel 
+                ? session.<Integer>sessionPropertyValue(
+                    SessionPropertiesJdbc.PARALLEL_CONNECTIONS)
+                : 1;
+    if (count <= 1 
+        || !session.<Boolean>sessionPropertyValue(AdbaSessionProperty.READ_ONLY))
+      return CompletableFuture.completedFuture(null);
+    
+    SessionConnectionJdbc first = group.memberConnection(this);
+    if (first == null) return CompletableFuture.completedFuture(null);
+    
+    List<CompletableFuture<SessionConnectionJdbc>> leases = new ArrayList<>(count - 1);
+    for (int i = 1; i < count; i++) {
+      leases.add(session.leaseAdditionalConnection().toCompletableFuture());
+    }
+    return CompletableFuture.allOf(leases.toArray(new CompletableFuture[0]))
+      .thenRun(() -> {
+        List<SessionConnectionJdbc> l = new ArrayList<>(count);
+        l.add(first);
+        leases.forEach(f -> { 
+          if (f.join() != null) l.add(f.join()); 
+        });
+        logger.log(Level.FINE, () -> "parallel connections: " + l.size()); //DEBUG
+        if (l.size() > 1) lanes = l.toArray(new SessionConnectionJdbc[0]);
+      });
+  }
+  
+  /**
+   * Give back the additional connections leased by {@link #leaseLanes()}.
+   */
+  private void releaseLanes() {
+    SessionConnectionJdbc[] l = lanes;
+    lanes = null;
+    if (l == null) return;
+    for (int i = 1; i < l.length; i++) {
+      session.releaseAdditionalConnection(l[i]);
+    }
+  }
+  
   /**
    * Accumulate the result of a member operation with this group's collector.
    * @param memberResult The result of a member operation.
    */
   void accumulateResult(S memberResult) {
-    collector.accumulator()
-      .accept(accumulator, memberResult);
+    if (isParallel) {
+      // members complete concurrently
+      synchronized (this) {
+        collector.accumulator()
+          .accept(accumulator, memberResult);
+      }
+    }
+    else {
+      collector.accumulator()
+        .accept(accumulator, memberResult);
+    }
   }
   
   /**
@@ -17,6 +17,7 @@ package com.oracle.adbaoverjdbc;
 
 import java.math.BigInteger;
 import java.sql.JDBCType;
+import java.sql.SQLException;
 import java.sql.SQLType;
 import java.time.Duration;
 import java.time.LocalDate;
@@ -26,11 +27,14 @@ import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 
 import jdk.incubator.sql2.AdbaType;
 import jdk.incubator.sql2.Operation;
@@ -49,6 +53,9 @@ import jdk.incubator.sql2.Submission;
  */
 abstract class OperationJdbc<T> implements Operation<T> {
   
+  /** source of trace ids. Shared by all Sessions so ids are unique in the JVM */
+  private static final AtomicLong NEXT_TRACE_ID = new AtomicLong();
+
   private static final Map<Class, SQLType> CLASS_TO_JDBCTYPE = new HashMap<>(20);
   static {
     try {
@@ -90,7 +97,7 @@ abstract class OperationJdbc<T> implements Operation<T> {
     ADBATYPE_TO_JDBCTYPE.put(AdbaType.JAVA_OBJECT, JDBCType.JAVA_OBJECT);
     ADBATYPE_TO_JDBCTYPE.put(AdbaType.LONG_NVARCHAR, JDBCType.LONGNVARCHAR);
     ADBATYPE_TO_JDBCTYPE.put(AdbaType.LONG_VARBINARY, JDBCType.LONGVARBINARY);
-    ADBATYPE_TO_JDBCTYPE.put(AdbaType.LONG_VARCHAR, JDBCType.LONGVARBINARY);
+    ADBATYPE_TO_JDBCTYPE.put(AdbaType.LONG_VARCHAR, JDBCType.LONGVARCHAR);
     ADBATYPE_TO_JDBCTYPE.put(AdbaType.NCHAR, JDBCType.NCHAR);
     ADBATYPE_TO_JDBCTYPE.put(AdbaType.NCLOB, JDBCType.NCLOB);
     ADBATYPE_TO_JDBCTYPE.put(AdbaType.NULL, JDBCType.NULL);
@@ -113,6 +120,11 @@ abstract class OperationJdbc<T> implements Operation<T> {
     ADBATYPE_TO_JDBCTYPE.put(AdbaType.VARCHAR, JDBCType.VARCHAR);
   }
   
+  private static final Map<SQLType, SqlType> JDBCTYPE_TO_ADBATYPE = new HashMap<>(40);
+  static {
+    ADBATYPE_TO_JDBCTYPE.forEach((adba, jdbc) -> JDBCTYPE_TO_ADBATYPE.put(jdbc, adba));
+  }
+  
   /**
    * Find the default SQLType to represent a Java type.
    * 
@@ -149,12 +161,12 @@ abstract class OperationJdbc<T> implements Operation<T> {
    * @return an ADBA type
    */
   static SqlType fromSQLType(SQLType t) {
-    for (Entry<SqlType, SQLType> mapping : ADBATYPE_TO_JDBCTYPE.entrySet()) {
-      if (mapping.getValue() == t)
-        return mapping.getKey();
+    SqlType s = JDBCTYPE_TO_ADBATYPE.get(t);
+    if (s == null) {
+      throw new RuntimeException(
+        "No SqlType mapping is defined for SQLType: " + t);
     }
-    throw new RuntimeException(
-      "No SqlType mapping is defined for SQLType: " + t);
+    return s;
   }
   
   static Throwable unwrapException(Throwable ex) {
@@ -168,7 +180,30 @@ abstract class OperationJdbc<T> implements Operation<T> {
   // internal state
   protected final SessionJdbc session;
   protected final OperationGroupJdbc<T, ?> group;
-  protected OperationLifecycle operationLifecycle = OperationLifecycle.MUTABLE;
+  protected volatile OperationLifecycle operationLifecycle = OperationLifecycle.MUTABLE;
+  
+  /**
+   * Held while the statement an Operation executes is canceled or given 
+   * back to the Session, so a statement that was given back, and may already
+   * be executing another Operation, is never canceled.
+   */
+  protected final Object cancelLock = new Object();
+  
+  /** position in a parallel group, selects the connection */
+  int laneIndex = 0;
+  private SessionConnectionJdbc connection = null;
+  
+  /** when this Operation was submitted. 0 if not measured or already queued */
+  private long submitNanos = 0L;
+  
+  /** identifies this Operation in trace events. 0 if not traced */
+  long traceId = 0L;
+  
+  /** true once either completion or the timeout has settled the outcome */
+  private boolean isSettled = false;
+  
+  /** the error this Operation completed with if its timeout expired */
+  private SqlException timedOut = null;
   
   // used only by Session
   protected OperationJdbc() {
@@ -179,6 +214,7 @@ abstract class OperationJdbc<T> implements Operation<T> {
   OperationJdbc(SessionJdbc session, OperationGroupJdbc operationGroup) {
     this.session = session;
     group = operationGroup;
+    if (session.tracer() != null) traceId = newTraceId();
   }
 
   @Override
@@ -211,6 +247,8 @@ abstract class OperationJdbc<T> implements Operation<T> {
       throw new IllegalStateException("TODO");
     }
     immutable();
+    if (session.metrics() != null) submitNanos = System.nanoTime();
+    trace(OperationTraceListener.Event.SUBMIT);
     return group.submit(this);
   }
 
@@ -241,6 +279,32 @@ abstract class OperationJdbc<T> implements Operation<T> {
   protected Executor getExecutor() {
     return session.getExecutor();
   }
+  
+  /**
+   * @return the Executor for tasks that make blocking JDBC calls. The same as
+   * {@link #getExecutor()} unless the DataSource has an I/O Executor.
+   */
+  protected Executor getIoExecutor() {
+    return session.getIoExecutor();
+  }
+  
+  /**
+   * The connection this Operation executes on. Usually this is the Session's
+   * primary connection. The first call determines the connection and later
+   * calls return the same one, so a statement is always released to the
+   * connection that prepared it.
+   * 
+   * @return the connection this Operation executes on
+   * @throws IllegalStateException if the Session is not attached
+   */
+  SessionConnectionJdbc connection() {
+    if (connection == null) {
+      connection = group.memberConnection(this);
+      if (connection == null) 
+        throw new IllegalStateException("Session is not attached.");
+    }
+    return connection;
+  }
 
   /**
    * Attaches the CompletableFuture that starts this Operation to the tail and
@@ -269,6 +333,24 @@ abstract class OperationJdbc<T> implements Operation<T> {
     }
   }
 
+  /**
+   * Cancel a statement this Operation may be executing. Called on a thread 
+   * other than the one executing the statement, holding 
+   * {@link #cancelLock}. Does nothing once this Operation has finished.
+   * 
+   * @param stmt the statement or null if none has been created or it has
+   * been given back
+   */
+  void cancelStatement(java.sql.Statement stmt) {
+    if (stmt == null || operationLifecycle.isFinished()) return;
+    try {
+      stmt.cancel();
+    }
+    catch (SQLException ex) {
+      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString(), -1);
+    }
+  }
+
   boolean isCanceled() {
     return operationLifecycle.isCanceled();
   }
@@ -307,14 +389,174 @@ abstract class OperationJdbc<T> implements Operation<T> {
     return result.handle((r, t) -> {
       Throwable ex = unwrapException(t);
       checkAbort(ex);
+      if (!isCanceled()) operationLifecycle = OperationLifecycle.COMPLETED;
+      if (timeout != null && !settle(null)) throw timedOut;
       
-      if (t == null)
+      if (t == null) {
+        trace(OperationTraceListener.Event.COMPLETE);
         return handleResult(r);
-      else
+      }
+      else {
+        trace(ex instanceof SqlSkippedException 
+              ? OperationTraceListener.Event.SKIP 
+              : OperationTraceListener.Event.ERROR);
+        measureFailure(ex);
         throw handleError(ex);
+      }
     });
   }
 
+  /**
+   * If this Operation has a timeout, start it. The timeout covers the time 
+   * spent waiting for the predecessor as well as executing. If it expires 
+   * before result completes this Operation is canceled, which cancels any
+   * executing statement, and completes exceptionally. Its error handler is
+   * called with a SqlException with SQLState HYT00. Canceling may block so 
+   * it runs on the I/O Executor. The returned stage is then completed on 
+   * the Session's Executor.
+   * 
+   * @param result the stage returned by {@link #attachCompletionHandler}
+   * @return a stage that completes like result or when the timeout expires,
+   * whichever is first. result if there is no timeout.
+   */
+  CompletionStage<T> withTimeout(CompletionStage<T> result) {
+    if (timeout == null) return result;
+    CompletableFuture<T> timed = new CompletableFuture<>();
+    TimeoutSchedulerJdbc.Timeout expiry = 
+      session.timeoutScheduler().schedule(timeout, () -> expire(timed), getIoExecutor());
+    result.whenComplete((r, t) -> {
+      expiry.cancel();
+      // once expired, expire completes timed
+      if (hasExpired()) return;
+      if (t == null) timed.complete(r);
+      else timed.completeExceptionally(t);
+    });
+    return timed;
+  }
+  
+  private void expire(CompletableFuture<T> timed) {
+    SqlException ex = new SqlException("Operation timed out after " 
+                                       + timeout.toMillis() + " ms", 
+                                       null, "HYT00", -1, sqlString(), -1);
+    if (!settle(ex)) return;
+    group.logger.log(Level.FINE, () -> "Operation timed out after " + timeout); //DEBUG
+    try {
+      trace(OperationTraceListener.Event.ERROR);
+      measureFailure(ex);
+      if (errorHandler != null) errorHandler.accept(ex);
+      try {
+        cancel();
+      }
+      catch (RuntimeException cancelEx) {
+        group.logger.log(Level.FINE, () -> "cancel failed: " + cancelEx.getMessage()); //DEBUG
+      }
+    }
+    finally {
+      try {
+        getExecutor().execute(() -> timed.completeExceptionally(timedOut));
+      }
+      catch (RejectedExecutionException rejected) {
+        timed.completeExceptionally(timedOut);
+      }
+    }
+  }
+  
+  /**
+   * Called by completion and by expiry of the timeout. Only the first caller
+   * decides the outcome.
+   * 
+   * @param error the error to complete with if the timeout expired, null on
+   * completion
+   * @return true if this is the first call
+   */
+  private synchronized boolean settle(SqlException error) {
+    if (isSettled) return false;
+    isSettled = true;
+    timedOut = error;
+    return true;
+  }
+  
+  /**
+   * @return true if the timeout expired before this Operation completed
+   */
+  private synchronized boolean hasExpired() {
+    return timedOut != null;
+  }
+  
+  /**
+   * @return the SQL this Operation executes or null if it doesn't execute SQL
+   */
+  String sqlString() {
+    return null;
+  }
+  
+  /**
+   * Called when this Operation starts executing its SQL. Reports the time 
+   * since submit to the DataSource's metrics, if any, the first time it is
+   * called.
+   * 
+   * @return the current time or 0 if this Operation is not measured
+   */
+  long executeStarted() {
+    trace(OperationTraceListener.Event.EXECUTE_START);
+    OperationMetrics metrics = session.metrics();
+    if (metrics == null) return 0L;
+    long now = System.nanoTime();
+    if (submitNanos != 0L) {
+      metrics.queued(sqlString(), now - submitNanos);
+      submitNanos = 0L;
+    }
+    return now;
+  }
+  
+  /**
+   * Called when a statement has been executed.
+   * 
+   * @param start the value returned by {@link #executeStarted()}
+   */
+  void executeEnded(long start) {
+    if (start != 0L) session.metrics().executed(sqlString(), System.nanoTime() - start);
+  }
+  
+  /**
+   * Called when a statement that may write has been executed, successfully
+   * or not. Removes the query results the statement may have changed from 
+   * the DataSource's {@link QueryResultCache}, if any, now and again when 
+   * the transaction ends.
+   */
+  void executedWrite() {
+    session.wrote(sqlString());
+  }
+  
+  static long newTraceId() {
+    return NEXT_TRACE_ID.incrementAndGet();
+  }
+  
+  /**
+   * Report a step of this Operation to the DataSource's trace listener, if 
+   * any.
+   * 
+   * @param event the step
+   */
+  final void trace(OperationTraceListener.Event event) {
+    OperationTraceListener tracer = session.tracer();
+    if (tracer == null) return;
+    try {
+      tracer.onEvent(event, System.nanoTime(), traceId, group.traceId, sqlString());
+    }
+    catch (RuntimeException ex) {
+      group.logger.log(Level.FINE, () -> "trace listener failed: " + ex.getMessage()); //DEBUG
+    }
+  }
+  
+  private void measureFailure(Throwable ex) {
+    OperationMetrics metrics = session.metrics();
+    String sql = sqlString();
+    if (metrics == null || sql == null) return;
+    if (ex instanceof SqlSkippedException || isCanceled()) metrics.canceled(sql);
+    else metrics.failed(sql, ex);
+  }
+  
   /**
    * Check if the session has been aborted.
    * @param suppressed A Throwable to be added as a suppressed exception if 
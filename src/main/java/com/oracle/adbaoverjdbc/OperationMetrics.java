@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+/**
+ * Receives measurements of the Operations of all Sessions of a DataSource. 
+ * Register an implementation with {@link DataSourcePropertiesJdbc#METRICS}.
+ * {@link LatencyMetrics} is a ready made implementation.
+ * 
+ * Only Operations that execute SQL are measured. Methods are called from the
+ * threads that execute the Operations, often concurrently, so 
+ * implementations must be thread safe and should return quickly. Times are
+ * in nanoseconds.
+ */
+public interface OperationMetrics {
+  
+  /**
+   * An Operation started executing.
+   * 
+   * @param sql the SQL the Operation executes
+   * @param nanos the time from the Operation being submitted until it 
+   * started executing. Includes waiting for preceding Operations, for a 
+   * connection and for an Executor thread.
+   */
+  public void queued(String sql, long nanos);
+  
+  /**
+   * A statement was taken from the statement cache of a Session's 
+   * connection or, if the cache did not hold one, prepared. The default 
+   * does nothing.
+   * 
+   * @param sql the SQL of the statement
+   * @param isCached true if the statement was taken from the cache
+   * @see SessionPropertiesJdbc#STATEMENT_CACHE_SIZE
+   */
+  public default void prepared(String sql, boolean isCached) {}
+  
+  /**
+   * A statement was executed.
+   * 
+   * @param sql the SQL executed
+   * @param nanos the time spent preparing, binding and executing the 
+   * statement. Does not include fetching rows.
+   */
+  public void executed(String sql, long nanos);
+  
+  /**
+   * All rows of a query were fetched.
+   * 
+   * @param sql the SQL of the query
+   * @param nanos the time spent reading rows and passing them to the 
+   * collector or Subscriber
+   * @param rows the number of rows read
+   */
+  public void fetched(String sql, long nanos, long rows);
+  
+  /**
+   * An Operation completed exceptionally for a reason other than being 
+   * canceled or skipped.
+   * 
+   * @param sql the SQL of the Operation
+   * @param error the reason
+   */
+  public void failed(String sql, Throwable error);
+  
+  /**
+   * An Operation was canceled or skipped.
+   * 
+   * @param sql the SQL of the Operation
+   */
+  public void canceled(String sql);
+}
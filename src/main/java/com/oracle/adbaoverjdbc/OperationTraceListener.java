@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+/**
+ * Receives an event at each step of every Operation of all Sessions of a 
+ * DataSource. Register an implementation with 
+ * {@link DataSourcePropertiesJdbc#TRACE_LISTENER}. Plotting the events of a
+ * Session against their timestamps shows where its pipeline of Operations
+ * stalls.
+ * 
+ * Events are delivered synchronously on the thread where the step happened,
+ * often concurrently, so implementations must be thread safe and should 
+ * return quickly, eg by appending to a buffer. No object is allocated to 
+ * deliver an event and nothing at all is done if no listener is registered.
+ * An exception thrown by the listener is ignored.
+ */
+public interface OperationTraceListener {
+  
+  /**
+   * The steps of an Operation, in the order they usually happen.
+   */
+  public static enum Event {
+    /** the Operation was submitted */
+    SUBMIT,
+    /** the Operation's predecessor completed, so it may start */
+    PREDECESSOR_COMPLETE,
+    /** the Operation started executing its SQL */
+    EXECUTE_START,
+    /** the first row of the result was read */
+    FIRST_ROW,
+    /** all rows of the result were read */
+    LAST_ROW,
+    /** the Operation completed normally */
+    COMPLETE,
+    /** the Operation completed exceptionally */
+    ERROR,
+    /** the Operation was skipped or canceled */
+    SKIP
+  }
+  
+  /**
+   * An Operation took a step.
+   * 
+   * @param event the step
+   * @param nanoTime the value of System.nanoTime() when the step happened
+   * @param operationId identifies the Operation. Unique within the JVM.
+   * @param groupId the operationId of the OperationGroup, or Session, the 
+   * Operation is a member of. A Session is a member of itself.
+   * @param sql the SQL the Operation executes or null if it doesn't execute
+   * SQL
+   */
+  public void onEvent(Event event, long nanoTime, long operationId, 
+                      long groupId, String sql);
+}
@@ -56,7 +56,7 @@ public class OutOperationJdbc<T> extends ParameterizedOperationJdbc<T>
     private final String sqlString;
     private final Map<String, SqlType> outParameters = new HashMap<>();
     protected Function<Result.OutColumn, ? extends T> processor = null;
-    private CallableStatement jdbcCallableStmt;
+    private volatile CallableStatement jdbcCallableStmt;
     
     OutOperationJdbc(SessionJdbc session, OperationGroupJdbc operationGroup, String sql) {
         super(session, operationGroup);
@@ -119,9 +119,16 @@ public class OutOperationJdbc<T> extends ParameterizedOperationJdbc<T>
         return jdbcCallableStmt;
     }
     
+    @Override
     String sqlString() {
         return sqlString;
     }
+
+    @Override
+    boolean cancel() {
+        cancelStatement(jdbcCallableStmt);
+        return super.cancel();
+    }
     
     /**
      * Executes the CallableStatement.
@@ -130,15 +137,19 @@ public class OutOperationJdbc<T> extends ParameterizedOperationJdbc<T>
      */
     private T execute(Object ignore) {
         checkCanceled();
+        long start = executeStarted();
         try {
-            jdbcCallableStmt = session.prepareCall(sqlString);
+            jdbcCallableStmt = connection().prepareCall(bindingPlan(sqlString).jdbcSql());
             
             registerOutParameters();
             bindParameters();
             
             group.logger.log(Level.FINE, () -> "execute(\"" + sqlString + "\")");
             jdbcCallableStmt.execute();
-            return processor.apply(ResultImpl.newOutColumn(this));
+            executeEnded(start);
+            T result = processor.apply(ResultImpl.newOutColumn(this));
+            connection().releaseStatement(jdbcCallableStmt);
+            return result;
         } 
         catch (SQLException ex) {
             throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
@@ -175,11 +186,8 @@ public class OutOperationJdbc<T> extends ParameterizedOperationJdbc<T>
     /**
      * Sets the designated parameters to the given values.
      */
-    private void bindParameters() {
-        for(Map.Entry<String, ParameterValue> entry: setParameters.entrySet()) {
-            ParameterValue param = entry.getValue();
-            param.set(jdbcCallableStmt, entry.getKey());
-        }
+    private void bindParameters() throws SQLException {
+        bindingPlan(sqlString).bind(jdbcCallableStmt, setParameters);
     }
     
 }
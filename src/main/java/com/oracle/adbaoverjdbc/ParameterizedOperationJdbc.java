@@ -15,25 +15,28 @@
  */
 package com.oracle.adbaoverjdbc;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletionStage;
 
 import jdk.incubator.sql2.AdbaType;
 import jdk.incubator.sql2.ParameterizedOperation;
-import jdk.incubator.sql2.SqlException;
 import jdk.incubator.sql2.SqlType;
 
 /**
- *
+ * An Operation with parameters. The values are bound to the statement by the
+ * {@link BindingPlanJdbc} for the Operation's SQL.
  */
 public abstract class ParameterizedOperationJdbc<T> extends OperationJdbc<T>
         implements ParameterizedOperation<T> {
 
   protected final Map<String, ParameterValue> setParameters;
   protected CompletionStage futureParameters;
+  
+  /** true once a parameter id is a name rather than a position */
+  private boolean isNamed = false;
 
   ParameterizedOperationJdbc(SessionJdbc session, OperationGroupJdbc operationGroup) {
     super(session, operationGroup);
@@ -53,6 +56,7 @@ public abstract class ParameterizedOperationJdbc<T> extends OperationJdbc<T>
     if (id == null || (type != null && !(type instanceof AdbaType))) {
       throw new IllegalArgumentException("TODO");
     }
+    if (!isNamed) isNamed = !BindingPlanJdbc.isPosition(id);
     if (value instanceof CompletionStage) {
       if (futureParameters == null) {
         futureParameters = ((CompletionStage)value)
@@ -70,6 +74,22 @@ public abstract class ParameterizedOperationJdbc<T> extends OperationJdbc<T>
     return this;
   }
   
+  /**
+   * @return true if a parameter id is a name rather than a position
+   */
+  boolean isNamed() {
+    return isNamed;
+  }
+  
+  /**
+   * @param sql the SQL of this Operation
+   * @return the plan that binds the parameters of this Operation to sql. The 
+   * plan rewrites named markers only if a parameter id is a name
+   */
+  BindingPlanJdbc bindingPlan(String sql) {
+    return BindingPlanJdbc.forSql(sql, isNamed);
+  }
+  
   @Override
   public ParameterizedOperationJdbc<T> set(String id, CompletionStage<?> source, SqlType type) {
     return set(id, (Object) source, type);
@@ -95,34 +115,16 @@ public abstract class ParameterizedOperationJdbc<T> extends OperationJdbc<T>
       type = typ;
     }
     
-    void set(PreparedStatement stmt, String id) {
-      try {
-        try {
-          setByPosition(stmt, Integer.parseInt(id));
-        }
-        catch (NumberFormatException ex) {
-          setByName(stmt, id);
-        }
-      }
-      catch (SQLException ex) {
-        throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), null, -1);
-      }
-    }
-                    
-    void setByPosition(PreparedStatement stmt, int index) throws SQLException {
-      if (type == null) {
-        stmt.setObject(index, value, toSQLType(value.getClass()));
-      }
-      else if (type instanceof AdbaType) {
-         stmt.setObject(index, value, toSQLType((AdbaType)type));
-      }
-      else {
-        throw new IllegalArgumentException("TODO");
-      }
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ParameterValue)) return false;
+      ParameterValue v = (ParameterValue)other;
+      return type == v.type && Objects.deepEquals(value, v.value);
     }
     
-    void setByName(PreparedStatement stmt, String id) throws SQLException {
-      throw new UnsupportedOperationException("Not supported yet.");
+    @Override
+    public int hashCode() {
+      return Arrays.deepHashCode(new Object[] { value, type });
     }
   }
   
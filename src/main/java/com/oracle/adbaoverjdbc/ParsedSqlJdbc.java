@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL text with its named parameter markers, eg {@code :id}, rewritten to 
+ * JDBC's positional {@code ?}. A marker is a colon followed by a name made of
+ * letters, digits, '_' and '$'. Markers are not recognized inside string 
+ * literals, quoted identifiers, Oracle q-quoted literals or comments, or
+ * after a second colon or before '=' so {@code x::int} and PL/SQL 
+ * {@code v := 1} are left alone. Every marker and every {@code ?} is a JDBC
+ * parameter position, numbered from 1 in the order they appear.
+ * 
+ * Parsing is done once per SQL by {@link BindingPlanJdbc}, and only for SQL
+ * executed with a named parameter id.
+ */
+final class ParsedSqlJdbc {
+  
+  /**
+   * @param sql SQL text that may contain named parameter markers
+   * @return sql parsed
+   */
+  static ParsedSqlJdbc parse(String sql) {
+    if (sql.indexOf(':') < 0) return new ParsedSqlJdbc(sql, Collections.emptyMap());
+    return new Lexer(sql).parse();
+  }
+  
+  /**
+   * @param sql SQL text bound by position only
+   * @return sql as it is, without any markers
+   */
+  static ParsedSqlJdbc unparsed(String sql) {
+    return new ParsedSqlJdbc(sql, Collections.emptyMap());
+  }
+  
+  /** the SQL to prepare, with every named marker replaced by ? */
+  final String jdbcSql;
+  
+  /** the 1-based positions of each name, in order */
+  private final Map<String, int[]> names;
+  
+  private ParsedSqlJdbc(String jdbcSql, Map<String, int[]> names) {
+    this.jdbcSql = jdbcSql;
+    this.names = names;
+  }
+  
+  /**
+   * @param name a parameter name, without the colon
+   * @return the positions of name or null if the SQL has no such marker
+   */
+  int[] positions(String name) {
+    return names.get(name);
+  }
+  
+  private static final class Lexer {
+    
+    private final String sql;
+    private final StringBuilder out;
+    private final Map<String, List<Integer>> found = new HashMap<>();
+    private int i = 0;
+    private int position = 0;
+    
+    Lexer(String sql) {
+      this.sql = sql;
+      out = new StringBuilder(sql.length());
+    }
+    
+    ParsedSqlJdbc parse() {
+      int n = sql.length();
+      while (i < n) {
+        char c = sql.charAt(i);
+        if (c == '\'') {
+          copyQuoted('\'');
+        }
+        else if (c == '"') {
+          copyQuoted('"');
+        }
+        else if ((c == 'q' || c == 'Q') && isQQuote()) {
+          copyQQuoted();
+        }
+        else if (c == '-' && peek(1) == '-') {
+          copyUntil("\n");
+        }
+        else if (c == '/' && peek(1) == '*') {
+          copyUntil("*/");
+        }
+        else if (c == '?') {
+          position++;
+          out.append(c);
+          i++;
+        }
+        else if (c == ':' && isMarker()) {
+          int start = ++i;
+          while (i < n && isNameChar(sql.charAt(i))) i++;
+          found.computeIfAbsent(sql.substring(start, i), k -> new ArrayList<>())
+               .add(++position);
+          out.append('?');
+        }
+        else {
+          out.append(c);
+          i++;
+        }
+      }
+      if (found.isEmpty()) return new ParsedSqlJdbc(sql, Collections.emptyMap());
+      Map<String, int[]> names = new HashMap<>(found.size() * 2);
+      found.forEach((name, list) -> 
+        names.put(name, list.stream().mapToInt(Integer::intValue).toArray()));
+      return new ParsedSqlJdbc(out.toString(), names);
+    }
+    
+    private char peek(int ahead) {
+      int j = i + ahead;
+      return j < sql.length() ? sql.charAt(j) : '\0';
+    }
+    
+    private boolean isMarker() {
+      char previous = i > 0 ? sql.charAt(i - 1) : '\0';
+      char next = peek(1);
+      return previous != ':' && next != ':' && next != '=' && isNameChar(next);
+    }
+    
+    private static boolean isNameChar(char c) {
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+    
+    /** a q-quote starts q' and is not the end of an identifier, eg seq' */
+    private boolean isQQuote() {
+      char previous = i > 0 ? sql.charAt(i - 1) : '\0';
+      return peek(1) == '\'' && peek(2) != '\0' && !isNameChar(previous);
+    }
+    
+    /** copy a literal or quoted identifier. A doubled quote is an escape */
+    private void copyQuoted(char quote) {
+      int end = i + 1;
+      int n = sql.length();
+      while (end < n) {
+        if (sql.charAt(end) == quote) {
+          if (end + 1 < n && sql.charAt(end + 1) == quote) end += 2;
+          else break;
+        }
+        else end++;
+      }
+      copyTo(end + 1);
+    }
+    
+    /** copy q'Xtext X' where X is [, {, ( or < paired, or any other char */
+    private void copyQQuoted() {
+      char open = sql.charAt(i + 2);
+      char close = open == '[' ? ']' 
+                   : open == '{' ? '}' 
+                   : open == '(' ? ')' 
+                   : open == '<' ? '>' 
+                   : open;
+      int end = sql.indexOf(close + "'", i + 3);
+      copyTo(end < 0 ? sql.length() : end + 2);
+    }
+    
+    private void copyUntil(String terminator) {
+      int end = sql.indexOf(terminator, i + 2);
+      copyTo(end < 0 ? sql.length() : end + terminator.length());
+    }
+    
+    private void copyTo(int end) {
+      end = Math.min(end, sql.length());
+      out.append(sql, i, end);
+      i = end;
+    }
+  }
+}
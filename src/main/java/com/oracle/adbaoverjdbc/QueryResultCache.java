@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.oracle.adbaoverjdbc.ParameterizedOperationJdbc.ParameterValue;
+
+/**
+ * A read through cache of the rows of queries, shared by all Sessions of a
+ * DataSource. Only queries that are declared with {@link #cache} are cached,
+ * keyed by SQL text and parameter values. For example
+ * <pre>
+ * {@code QueryResultCache cache = new QueryResultCache(1000, Duration.ofMinutes(5))
+ *   .cache("SELECT code, name FROM country WHERE region = :r", "country");
+ * DataSource ds = factory.builder()
+ *   .property(DataSourcePropertiesJdbc.RESULT_CACHE, cache)
+ *   ...
+ *   .build();}
+ * </pre>
+ * A row Operation that finds its rows in the cache passes copies of them to
+ * its Collector on the thread that completed its predecessor. It does not use
+ * a java.sql.Connection or an Executor. Operations that use 
+ * {@link jdk.incubator.sql2.ParameterizedRowOperation#collectChunks} are not
+ * cached.
+ * 
+ * A query's rows are removed when they are older than the time to live, when
+ * the cache is full and they are the least recently used, or when a table
+ * the query was declared with is written. Every row count Operation of
+ * the DataSource writes the tables declared for its
+ * SQL with {@link #writes}, or else the table following INSERT INTO, UPDATE,
+ * DELETE FROM, MERGE INTO or TRUNCATE TABLE. Any other SQL writes every 
+ * table. Writes by other programs are not seen, so the time to live bounds 
+ * how stale the rows can be. Rows that read a table a transaction wrote 
+ * are removed again when it commits or rolls back, and until then the 
+ * Session that wrote it neither reads nor fills the cache.
+ * 
+ * Table names are compared without their schema. Unquoted names are not case
+ * sensitive. The values returned by ResultSet.getObject(int) are cached, so
+ * queries that return LOBs or other values that depend on the 
+ * java.sql.Connection should not be cached.
+ */
+public final class QueryResultCache {
+  
+  /** the table following the DML keywords, possibly schema qualified */
+  private static final Pattern WRITTEN_TABLE = Pattern.compile(
+    "\\s*(?:INSERT\\s*(?:/\\*.*?\\*/)?\\s*INTO|UPDATE\\s*(?:/\\*.*?\\*/)?"
+      + "|DELETE\\s*(?:/\\*.*?\\*/)?\\s*(?:FROM)?|MERGE\\s*(?:/\\*.*?\\*/)?\\s*INTO"
+      + "|TRUNCATE\\s+TABLE)\\s+((?:\"[^\"]+\"|[\\w$#]+)(?:\\.(?:\"[^\"]+\"|[\\w$#]+))*)",
+    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  
+  private final int maxEntries;
+  private final long timeToLiveNanos;
+  
+  /** incremented when every table is written */
+  private final AtomicLong allTables = new AtomicLong();
+  
+  /** incremented when the table is written. Only declared tables */
+  private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+  private final Map<String, Query> queries = new ConcurrentHashMap<>();
+  private final Map<String, String[]> writes = new ConcurrentHashMap<>();
+  
+  // All guarded by this
+  private final LinkedHashMap<Key, Entry> entries;
+  private long hits = 0L;
+  private long misses = 0L;
+  
+  /**
+   * @param maxEntries the most distinct SQL and parameter value combinations
+   * that are cached
+   * @param timeToLive how long the rows of a query are cached
+   */
+  public QueryResultCache(int maxEntries, Duration timeToLive) {
+    if (maxEntries < 1) throw new IllegalArgumentException("maxEntries < 1");
+    if (timeToLive.isNegative() || timeToLive.isZero()) 
+      throw new IllegalArgumentException("timeToLive not positive");
+    this.maxEntries = maxEntries;
+    timeToLiveNanos = timeToLive.toNanos();
+    entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+  
+  /**
+   * Cache the rows of a query.
+   * 
+   * @param sql the SQL text of the query, exactly as passed to 
+   * {@link jdk.incubator.sql2.OperationGroup#rowOperation}
+   * @param tables the tables the query reads
+   * @return this
+   */
+  public QueryResultCache cache(String sql, String... tables) {
+    AtomicLong[] versions = new AtomicLong[tables.length];
+    for (int i = 0; i < tables.length; i++) {
+      versions[i] = tableVersions.computeIfAbsent(tag(tables[i]), 
+                                                  t -> new AtomicLong());
+    }
+    queries.put(sql, new Query(versions));
+    return this;
+  }
+  
+  /**
+   * Declare the tables a SQL statement writes. Only needed if the tables
+   * can't be found in the SQL text, eg for a procedure call, or to declare
+   * that the statement writes no cached table.
+   * 
+   * @param sql the SQL text, exactly as passed to 
+   * {@link jdk.incubator.sql2.OperationGroup#rowCountOperation} or 
+   * {@link jdk.incubator.sql2.OperationGroup#arrayRowCountOperation}
+   * @param tables the tables the statement writes. May be empty.
+   * @return this
+   */
+  public QueryResultCache writes(String sql, String... tables) {
+    String[] tags = new String[tables.length];
+    for (int i = 0; i < tables.length; i++) tags[i] = tag(tables[i]);
+    writes.put(sql, tags);
+    return this;
+  }
+  
+  /**
+   * Remove the rows of every query that reads a table.
+   * 
+   * @param table a table name
+   */
+  public void invalidate(String table) {
+    AtomicLong version = tableVersions.get(tag(table));
+    if (version != null) version.incrementAndGet();
+  }
+  
+  /**
+   * Remove the rows of every query.
+   */
+  public void clear() {
+    allTables.incrementAndGet();
+    synchronized (this) {
+      entries.clear();
+    }
+  }
+  
+  /**
+   * @return the number of row Operations that found their rows in the cache
+   */
+  public synchronized long hits() {
+    return hits;
+  }
+  
+  /**
+   * @return the number of row Operations of cached queries that did not find
+   * their rows in the cache
+   */
+  public synchronized long misses() {
+    return misses;
+  }
+  
+  @Override
+  public synchronized String toString() {
+    return "QueryResultCache[size=" + entries.size() + ", hits=" + hits
+           + ", misses=" + misses + "]";
+  }
+  
+  /**
+   * @param sql the SQL text of a query
+   * @return true if the rows of the query are cached
+   */
+  boolean isCached(String sql) {
+    return queries.containsKey(sql);
+  }
+  
+  /**
+   * Look up the rows of a query. If there are none the returned Fill stores
+   * the rows read by the query unless one of its tables is written while it
+   * executes.
+   * 
+   * @param sql the SQL text of a query for which {@link #isCached} is true
+   * @param parameters the values bound to the query
+   * @return the cached rows or a Fill
+   */
+  Lookup lookup(String sql, Map<String, ParameterValue> parameters) {
+    Query query = queries.get(sql);
+    Key key = new Key(sql, parameters);
+    long now = System.nanoTime();
+    synchronized (this) {
+      Entry e = entries.get(key);
+      if (e != null && now - e.created < timeToLiveNanos 
+          && query.isCurrent(allTables, e.versions)) {
+        hits++;
+        return e;
+      }
+      if (e != null) entries.remove(key);
+      misses++;
+    }
+    return new Fill(key, query.versions(allTables));
+  }
+  
+  /**
+   * Record that a SQL statement was executed. Removes the rows of every 
+   * query that reads a table the statement writes.
+   * 
+   * @param sql the SQL text of a statement that may write
+   * @return true if the statement may write a table a cached query reads
+   */
+  boolean written(String sql) {
+    String[] tables = writes.get(sql);
+    if (tables == null) {
+      Matcher m = WRITTEN_TABLE.matcher(sql);
+      if (!m.lookingAt()) {
+        allTables.incrementAndGet();
+        return true;
+      }
+      tables = new String[] { tag(m.group(1)) };
+    }
+    boolean isRead = false;
+    for (String table : tables) {
+      AtomicLong version = tableVersions.get(table);
+      if (version != null) {
+        version.incrementAndGet();
+        isRead = true;
+      }
+    }
+    return isRead;
+  }
+  
+  private synchronized void put(Key key, Entry e) {
+    entries.put(key, e);
+    if (entries.size() > maxEntries) {
+      entries.remove(entries.keySet().iterator().next());
+    }
+  }
+  
+  /**
+   * @param table a table name, possibly schema qualified and quoted
+   * @return the name the table is compared by
+   */
+  static String tag(String table) {
+    String name = table.trim();
+    if (name.endsWith("\"")) {
+      int start = name.lastIndexOf('"', name.length() - 2);
+      return name.substring(start + 1, name.length() - 1);
+    }
+    return name.substring(name.lastIndexOf('.') + 1).toUpperCase(Locale.ROOT);
+  }
+  
+  /**
+   * The result of {@link #lookup}, either an {@link Entry} or a 
+   * {@link Fill}.
+   */
+  static abstract class Lookup {}
+  
+  /**
+   * The cached rows of a query.
+   */
+  static final class Entry extends Lookup {
+    
+    final ResultImpl.RowMetaData metaData;
+    final Object[][] rows;
+    private final long[] versions;
+    private final long created;
+    
+    private Entry(ResultImpl.RowMetaData metaData, Object[][] rows, 
+                  long[] versions) {
+      this.metaData = metaData;
+      this.rows = rows;
+      this.versions = versions;
+      created = System.nanoTime();
+    }
+  }
+  
+  /**
+   * Collects the rows read by a query that was not found in the cache.
+   */
+  final class Fill extends Lookup {
+    
+    private final Key key;
+    
+    /** the versions of the query's tables before it executed */
+    private final long[] versions;
+    private Object[][] rows = new Object[8][];
+    private int rowCount = 0;
+    
+    private Fill(Key key, long[] versions) {
+      this.key = key;
+      this.versions = versions;
+    }
+    
+    void add(Object[] row) {
+      if (rowCount == rows.length) {
+        rows = Arrays.copyOf(rows, rowCount * 2);
+      }
+      rows[rowCount++] = row;
+    }
+    
+    /**
+     * Cache the rows. 
+     * 
+     * @param metaData describes the rows. Must not need the ResultSet.
+     */
+    void complete(ResultImpl.RowMetaData metaData) {
+      put(key, new Entry(metaData, Arrays.copyOf(rows, rowCount), 
+                         versions));
+    }
+  }
+  
+  /**
+   * The tables a cached query reads.
+   */
+  private static final class Query {
+    
+    private final AtomicLong[] tables;
+    
+    Query(AtomicLong[] tables) {
+      this.tables = tables;
+    }
+    
+    long[] versions(AtomicLong allTables) {
+      long[] versions = new long[tables.length + 1];
+      versions[0] = allTables.get();
+      for (int i = 0; i < tables.length; i++) {
+        versions[i + 1] = tables[i].get();
+      }
+      return versions;
+    }
+    
+    boolean isCurrent(AtomicLong allTables, long[] versions) {
+      if (versions[0] != allTables.get()) return false;
+      for (int i = 0; i < tables.length; i++) {
+        if (versions[i + 1] != tables[i].get()) return false;
+      }
+      return true;
+    }
+  }
+  
+  private static final class Key {
+    
+    final String sql;
+    final Map<String, ParameterValue> parameters;
+    private final int hash;
+    
+    Key(String sql, Map<String, ParameterValue> parameters) {
+      this.sql = sql;
+      this.parameters = parameters.isEmpty() 
+                          ? Collections.emptyMap() : new HashMap<>(parameters);
+      hash = sql.hashCode() * 31 + this.parameters.hashCode();
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) return false;
+      Key k = (Key)other;
+      return hash == k.hash && sql.equals(k.sql) 
+             && parameters.equals(k.parameters);
+    }
+    
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -15,8 +15,23 @@
  */
 package com.oracle.adbaoverjdbc;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.JDBCType;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import jdk.incubator.sql2.Result;
@@ -33,10 +48,97 @@ abstract class ResultImpl {
         return new ResultImpl.RowCountJdbc(c);
     }
     
+    /**
+     * A row Operation creates one RowColumn and reuses it for every row, see
+     * {@link RowBaseOperationImpl#beginRow()}.
+     */
     static ResultImpl.RowColumnJdbc newRowColumn(RowBaseOperationImpl op) {
         return new ResultImpl.RowColumnJdbc(op);
     }
     
+    /**
+     * Copy the current row of the Operation's ResultSet. The copy remains 
+     * valid after the ResultSet moves to another row.
+     */
+    static Result.RowColumn newSnapshotRow(RowBaseOperationImpl op) {
+      if (op.rowCount() == 0) op.trace(OperationTraceListener.Event.FIRST_ROW);
+      return new ResultImpl.SnapshotRowColumnJdbc(op, op.rowMetaData(), 
+                                                  copyRow(op), 
+                                                  op.rowCount());
+    }
+    
+    /**
+     * A row of a {@link QueryResultCache} passed to the Collector of op. 
+     */
+    static Result.RowColumn newCachedRow(RowBaseOperationImpl op,
+                                         ResultImpl.RowMetaData metaData, 
+                                         Object[] values, long rowNumber) {
+      return new ResultImpl.SnapshotRowColumnJdbc(op, metaData, values, 
+                                                  rowNumber);
+    }
+    
+    /**
+     * Copy the current row of the Operation's ResultSet. Each value is read
+     * with the Java type of its column, see {@link RowMetaData#valueType}, 
+     * so that it can be converted the way ResultSet.getObject(int, Class) 
+     * would convert it.
+     * 
+     * @return the values of the current row
+     */
+    static Object[] copyRow(RowBaseOperationImpl op) {
+      try {
+        ResultSet rs = op.resultSet();
+        RowMetaData metaData = op.rowMetaData();
+        Object[] values = new Object[metaData.columnCount()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = readValue(rs, metaData, i + 1);
+        }
+        return values;
+      }
+      catch (SQLException ex) {
+        throw new SqlException(ex.getMessage(), ex, ex.getSQLState(),
+                               ex.getErrorCode(), op.sqlString(), -1);
+      }
+    }
+    
+    private static Object readValue(ResultSet rs, RowMetaData metaData, 
+                                    int index) throws SQLException {
+      Class<?> type = metaData.valueType(index);
+      if (type != Object.class) {
+        try {
+          return rs.getObject(index, type);
+        }
+        catch (SQLException ex) {
+          // the driver can't convert the column to its standard type
+          metaData.untyped(index);
+        }
+      }
+      Object value = rs.getObject(index);
+      if (value instanceof java.sql.Timestamp) 
+        return ((java.sql.Timestamp)value).toLocalDateTime();
+      if (value instanceof java.sql.Date) 
+        return ((java.sql.Date)value).toLocalDate();
+      if (value instanceof java.sql.Time) 
+        return ((java.sql.Time)value).toLocalTime();
+      return value;
+    }
+    
+    static ResultImpl.RowMetaData newRowMetaData(ResultSetMetaData metaData) 
+      throws SQLException {
+        return new ResultImpl.RowMetaData(metaData);
+    }
+    
+    static ResultImpl.ColumnChunkJdbc newColumnChunk(RowBaseOperationImpl op, 
+                                                     int capacity) {
+      try {
+        return new ResultImpl.ColumnChunkJdbc(op, capacity);
+      }
+      catch (SQLException ex) {
+        throw new SqlException(ex.getMessage(), ex, ex.getSQLState(),
+                               ex.getErrorCode(), op.sqlString(), -1);
+      }
+    }
+    
     static Result.OutColumn newOutColumn(OutOperationJdbc op) {
       try {
         return new ResultImpl.OutColumnJdbc(op, 
@@ -85,7 +187,7 @@ abstract class ResultImpl {
     private static abstract class ColumnJdbc 
       implements Result.Column, AutoCloseable {
 
-      private volatile boolean isClosed = false; // all slices and clones share this
+      private volatile boolean isClosed = false;
       private int columnIndex = -1;
       private int columnOffset = 0; // used by slices
       private int lastColumn = Integer.MAX_VALUE;
@@ -96,9 +198,19 @@ abstract class ResultImpl {
        * @param sequenceLength The number columns in this sequence.
        */
       ColumnJdbc(int sequenceLength) {
+        resetSequence(sequenceLength);
+      }
+      
+      /**
+       * Make this a de novo, open sequence. Used to reuse a RowColumn for the
+       * next row.
+       * @param sequenceLength The number columns in this sequence.
+       */
+      final void resetSequence(int sequenceLength) {
         columnIndex = sequenceLength > 0 ? 1 : 0;
         columnOffset = 0;
         lastColumn = sequenceLength;
+        isClosed = false;
       }
 
       @Override
@@ -161,16 +273,19 @@ abstract class ResultImpl {
           throw new IllegalArgumentException("id can not be null");
         
         int matchIndex = -1;
-        for (int index = 1; index <= lastColumn; index++) {
-          String nextId = identifier(index + columnOffset);
-          if (nextId.equals(id)) {
-            if (matchIndex == -1) {
-              matchIndex = index;
-            }
-            else {
-              throw new NoSuchElementException (
-                "Multiple columns match the identifier: " + id);
-            }
+        int[] candidates = absoluteIndexesOf(id);
+        if (candidates == null) {
+          for (int index = 1; index <= lastColumn; index++) {
+            String nextId = identifier(index + columnOffset);
+            if (nextId.equals(id)) 
+              matchIndex = match(id, matchIndex, index);
+          }
+        }
+        else {
+          for (int absoluteIndex : candidates) {
+            int index = absoluteIndex - columnOffset;
+            if (index >= 1 && index <= lastColumn)
+              matchIndex = match(id, matchIndex, index);
           }
         }
         
@@ -184,6 +299,24 @@ abstract class ResultImpl {
         return this;
       }
       
+      private static int match(String id, int previousMatch, int index) {
+        if (previousMatch != -1) {
+          throw new NoSuchElementException (
+            "Multiple columns match the identifier: " + id);
+        }
+        return index;
+      }
+      
+      /**
+       * @param id an identifier
+       * @return the absolute indexes of all columns with the identifier, 
+       * including columns outside this sequence, or null to have 
+       * {@link #at(String)} compare the identifier of each column.
+       */
+      int[] absoluteIndexesOf(String id) {
+        return null;
+      }
+      
       @Override
       public final Column at(int index) {
         assertOpen();
@@ -281,6 +414,54 @@ abstract class ResultImpl {
        */
       abstract <T> T get(int index, Class<T> type);
       
+      @Override
+      public final int getInt() {
+        assertNotEmpty();
+        return getInt(absoluteIndex());
+      }
+      
+      @Override
+      public final long getLong() {
+        assertNotEmpty();
+        return getLong(absoluteIndex());
+      }
+      
+      @Override
+      public final double getDouble() {
+        assertNotEmpty();
+        return getDouble(absoluteIndex());
+      }
+      
+      @Override
+      public final boolean getBoolean() {
+        assertNotEmpty();
+        return getBoolean(absoluteIndex());
+      }
+      
+      /**
+       * Subclasses override the primitive getters if the underlying JDBC 
+       * object can return the value without boxing it.
+       * 
+       * @param index Absolute index of a column.
+       * @return The value of the column at the specified index.
+       * @throws NullPointerException if the value is SQL NULL.
+       */
+      int getInt(int index) {
+        return get(index, Integer.class);
+      }
+      
+      long getLong(int index) {
+        return get(index, Long.class);
+      }
+      
+      double getDouble(int index) {
+        return get(index, Double.class);
+      }
+      
+      boolean getBoolean(int index) {
+        return get(index, Boolean.class);
+      }
+      
       @Override
       public final String identifier() {
         assertNotEmpty();
@@ -297,24 +478,55 @@ abstract class ResultImpl {
        * Throws IllegalStateException if this Column has been closed.
        */
       final void assertOpen() {
-        if (isClosed) 
+        if (isClosed || isStale()) 
           throw new IllegalStateException("Closed");
       }
       
+      /**
+       * @return true if the value this Column refers to is no longer 
+       * available even though this Column was not closed
+       */
+      boolean isStale() {
+        return false;
+      }
+      
       private void assertNotEmpty() {
         if (lastColumn == 0)
           throw new IllegalStateException("Empty column seqeunce");
       }
     }
     
+    /**
+     * A RowColumn is reused for every row of its Operation. Each row has a
+     * generation number. A RowColumn, and every clone and slice of it, refers
+     * to the row whose generation it was reset to and is closed when the
+     * Operation moves to the next generation.
+     */
     static final class RowColumnJdbc extends ColumnJdbc 
       implements Result.RowColumn {
         
       private final RowBaseOperationImpl rowOp;
+      private long generation;
       
       RowColumnJdbc(RowBaseOperationImpl op) {
-        super(op.getIdentifiers().length);
+        super(op.rowMetaData().columnCount());
         rowOp = op;
+        generation = op.rowGeneration();
+      }
+      
+      /**
+       * Make this the RowColumn of the current row.
+       * @return this
+       */
+      RowColumnJdbc reset() {
+        resetSequence(rowOp.rowMetaData().columnCount());
+        generation = rowOp.rowGeneration();
+        return this;
+      }
+      
+      @Override
+      boolean isStale() {
+        return generation != rowOp.rowGeneration();
       }
       
       @Override
@@ -327,17 +539,77 @@ abstract class ResultImpl {
         }
       }
       
+      @Override
+      int getInt(int index) {
+        try {
+          ResultSet rs = rowOp.resultSet();
+          int value = rs.getInt(index);
+          if (value == 0 && rs.wasNull()) throw nullValue(index);
+          return value;
+        } catch (SQLException ex) {
+          throw new SqlException(ex.getMessage(), ex, ex.getSQLState(),
+                                 ex.getErrorCode(), rowOp.sqlString(), -1);
+        }
+      }
+      
+      @Override
+      long getLong(int index) {
+        try {
+          ResultSet rs = rowOp.resultSet();
+          long value = rs.getLong(index);
+          if (value == 0L && rs.wasNull()) throw nullValue(index);
+          return value;
+        } catch (SQLException ex) {
+          throw new SqlException(ex.getMessage(), ex, ex.getSQLState(),
+                                 ex.getErrorCode(), rowOp.sqlString(), -1);
+        }
+      }
+      
+      @Override
+      double getDouble(int index) {
+        try {
+          ResultSet rs = rowOp.resultSet();
+          double value = rs.getDouble(index);
+          if (value == 0.0d && rs.wasNull()) throw nullValue(index);
+          return value;
+        } catch (SQLException ex) {
+          throw new SqlException(ex.getMessage(), ex, ex.getSQLState(),
+                                 ex.getErrorCode(), rowOp.sqlString(), -1);
+        }
+      }
+      
+      @Override
+      boolean getBoolean(int index) {
+        try {
+          ResultSet rs = rowOp.resultSet();
+          boolean value = rs.getBoolean(index);
+          if (!value && rs.wasNull()) throw nullValue(index);
+          return value;
+        } catch (SQLException ex) {
+          throw new SqlException(ex.getMessage(), ex, ex.getSQLState(),
+                                 ex.getErrorCode(), rowOp.sqlString(), -1);
+        }
+      }
+      
+      private NullPointerException nullValue(int index) {
+        return new NullPointerException(
+          "Column " + index + " is SQL NULL");
+      }
+      
       @Override
       public String identifier(int index) {
-          return rowOp.getIdentifiers()[index - 1];
+          return rowOp.rowMetaData().label(index);
+      }
+      
+      @Override
+      int[] absoluteIndexesOf(String id) {
+        return rowOp.rowMetaData().indexesOf(id);
       }
 
       @Override
       SqlType sqlType(int index) {
         try {
-          int jdbcType = rowOp.resultSet.getMetaData()
-                           .getColumnType(index);
-          return OperationJdbc.fromSQLType(JDBCType.valueOf(jdbcType));
+          return rowOp.rowMetaData().sqlType(index);
         }
         catch (SQLException ex) {
           throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), 
@@ -348,8 +620,7 @@ abstract class ResultImpl {
       @Override
       long length(int index) {
         try {
-          return rowOp.resultSet.getMetaData()
-                   .getColumnDisplaySize(index);
+          return rowOp.rowMetaData().length(index);
         }
         catch (SQLException ex) {
           throw new UnsupportedOperationException(ex);
@@ -365,7 +636,603 @@ abstract class ResultImpl {
       @Override
       public void cancel() {
         assertOpen();
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        rowOp.cancelRows();
+      }
+    }
+    
+    /**
+     * A copy of one row of a ResultSet. The values are read with the 
+     * standard Java type of each column, see {@link RowMetaData#valueType},
+     * and converted when they are accessed. A value accessed as its column's
+     * type is the same as ResultSet.getObject(int, Class) returns. Other 
+     * types are converted by {@link ResultImpl#convert}.
+     */
+    private static final class SnapshotRowColumnJdbc extends ColumnJdbc 
+      implements Result.RowColumn {
+      
+      private final RowBaseOperationImpl rowOp;
+      private final RowMetaData metaData;
+      private final Object[] values;
+      private final long rowNumber;
+      
+      SnapshotRowColumnJdbc(RowBaseOperationImpl op, RowMetaData metaData, 
+                            Object[] values, long rowNumber) {
+        super(values.length);
+        rowOp = op;
+        this.metaData = metaData;
+        this.values = values;
+        this.rowNumber = rowNumber;
+      }
+      
+      @Override
+      <T> T get(int index, Class<T> type) {
+        return convert(values[index - 1], type, rowOp.sqlString());
+      }
+      
+      @Override
+      String identifier(int index) {
+        return metaData.label(index);
+      }
+      
+      @Override
+      int[] absoluteIndexesOf(String id) {
+        return metaData.indexesOf(id);
+      }
+      
+      @Override
+      SqlType sqlType(int index) {
+        try {
+          return metaData.sqlType(index);
+        }
+        catch (SQLException ex) {
+          throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), 
+                                 ex.getErrorCode(), rowOp.sqlString(), -1);
+        }
+      }
+      
+      @Override
+      long length(int index) {
+        try {
+          return metaData.length(index);
+        }
+        catch (SQLException ex) {
+          throw new UnsupportedOperationException(ex);
+        }
+      }
+      
+      @Override
+      public long rowNumber() {
+        assertOpen();
+        return rowNumber;
+      }
+      
+      @Override
+      public void cancel() {
+        assertOpen();
+        rowOp.cancelRows();
+      }
+    }
+    
+    /**
+     * Convert a value read by {@link #readValue} to type. Mirrors the 
+     * conversions of ResultSet.getObject(int, Class) between the standard
+     * Java types of SQL values. A snapshot may be shared, eg by the hits of
+     * a {@link QueryResultCache} entry, so a mutable value is copied.
+     */
+    private static <T> T convert(Object value, Class<T> type, String sql) {
+      if (value == null) return null;
+      if (type.isInstance(value)) return type.cast(copyOf(value));
+      Object converted = null;
+      if (value instanceof Number) converted = fromNumber((Number)value, type);
+      else if (value instanceof String) converted = fromString((String)value, type);
+      else if (value instanceof Boolean) converted = fromBoolean((Boolean)value, type);
+      else if (value instanceof byte[]) converted = fromBytes((byte[])value, type);
+      else if (value instanceof LocalDateTime) 
+        converted = fromLocalDateTime((LocalDateTime)value, type);
+      else if (value instanceof LocalDate) 
+        converted = fromLocalDateTime(((LocalDate)value).atStartOfDay(), type);
+      else if (value instanceof LocalTime) converted = fromLocalTime((LocalTime)value, type);
+      else if (value instanceof OffsetDateTime) 
+        converted = fromOffsetDateTime((OffsetDateTime)value, type);
+      else if (type == String.class) converted = value.toString();
+      if (converted == null) {
+        throw new SqlException("Can not convert " + value.getClass().getName() 
+                               + " to " + type.getName(), null, null, -1, sql, -1);
+      }
+      return type.cast(converted);
+    }
+    
+    /**
+     * @return a copy of value if it is a mutable type that can be read from 
+     * a ResultSet, otherwise value
+     */
+    private static Object copyOf(Object value) {
+      if (value instanceof byte[]) return ((byte[])value).clone();
+      if (value instanceof Object[]) return ((Object[])value).clone();
+      if (value instanceof java.util.Date) return ((java.util.Date)value).clone();
+      return value;
+    }
+    
+    private static Object fromNumber(Number n, Class<?> type) {
+      if (type == Integer.class) return n.intValue();
+      if (type == Long.class) return n.longValue();
+      if (type == Double.class) return n.doubleValue();
+      if (type == Float.class) return n.floatValue();
+      if (type == Short.class) return n.shortValue();
+      if (type == Byte.class) return n.byteValue();
+      if (type == Boolean.class) return n.doubleValue() != 0.0d;
+      if (type == BigDecimal.class) return toBigDecimal(n);
+      if (type == BigInteger.class) return toBigDecimal(n).toBigInteger();
+      if (type == String.class) 
+        return n instanceof BigDecimal ? ((BigDecimal)n).toPlainString() : n.toString();
+      return null;
+    }
+    
+    private static BigDecimal toBigDecimal(Number n) {
+      if (n instanceof BigDecimal) return (BigDecimal)n;
+      if (n instanceof BigInteger) return new BigDecimal((BigInteger)n);
+      if (n instanceof Double || n instanceof Float) 
+        return BigDecimal.valueOf(n.doubleValue());
+      return BigDecimal.valueOf(n.longValue());
+    }
+    
+    private static Object fromString(String s, Class<?> type) {
+      try {
+        String t = s.trim();
+        if (type == Integer.class) return Integer.valueOf(t);
+        if (type == Long.class) return Long.valueOf(t);
+        if (type == Double.class) return Double.valueOf(t);
+        if (type == Float.class) return Float.valueOf(t);
+        if (type == Short.class) return Short.valueOf(t);
+        if (type == Byte.class) return Byte.valueOf(t);
+        if (type == BigDecimal.class) return new BigDecimal(t);
+        if (type == BigInteger.class) return new BigInteger(t);
+        if (type == Boolean.class) return "1".equals(t) || "true".equalsIgnoreCase(t);
+      }
+      catch (NumberFormatException ex) {
+        return null;
+      }
+      return null;
+    }
+    
+    private static Object fromBoolean(Boolean b, Class<?> type) {
+      if (type == String.class) return b.toString();
+      return fromNumber(b ? 1 : 0, type);
+    }
+    
+    /**
+     * Binary values are converted to String as hexadecimal, like SQL 
+     * converts RAW to VARCHAR.
+     */
+    private static Object fromBytes(byte[] bytes, Class<?> type) {
+      if (type != String.class) return null;
+      StringBuilder hex = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes) {
+        hex.append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+           .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+      }
+      return hex.toString();
+    }
+    
+    /**
+     * A TIMESTAMP without time zone is in the JVM's default time zone, as 
+     * in JDBC.
+     */
+    private static Object fromLocalDateTime(LocalDateTime t, Class<?> type) {
+      if (type == LocalDateTime.class) return t;
+      if (type == LocalDate.class) return t.toLocalDate();
+      if (type == LocalTime.class) return t.toLocalTime();
+      if (type == java.sql.Timestamp.class) return java.sql.Timestamp.valueOf(t);
+      if (type == java.sql.Date.class) return java.sql.Date.valueOf(t.toLocalDate());
+      if (type == java.sql.Time.class) return java.sql.Time.valueOf(t.toLocalTime());
+      if (type == java.util.Date.class) return java.sql.Timestamp.valueOf(t);
+      if (type == OffsetDateTime.class) 
+        return t.atZone(ZoneId.systemDefault()).toOffsetDateTime();
+      if (type == ZonedDateTime.class) return t.atZone(ZoneId.systemDefault());
+      if (type == Instant.class) return t.atZone(ZoneId.systemDefault()).toInstant();
+      if (type == String.class) return java.sql.Timestamp.valueOf(t).toString();
+      return null;
+    }
+    
+    private static Object fromLocalTime(LocalTime t, Class<?> type) {
+      if (type == java.sql.Time.class) return java.sql.Time.valueOf(t);
+      if (type == String.class) return t.toString();
+      return null;
+    }
+    
+    private static Object fromOffsetDateTime(OffsetDateTime t, Class<?> type) {
+      if (type == ZonedDateTime.class) return t.toZonedDateTime();
+      if (type == Instant.class) return t.toInstant();
+      if (type == LocalDateTime.class) return t.toLocalDateTime();
+      if (type == LocalDate.class) return t.toLocalDate();
+      if (type == LocalTime.class) return t.toLocalTime();
+      if (type == java.sql.Timestamp.class || type == java.util.Date.class) 
+        return java.sql.Timestamp.from(t.toInstant());
+      if (type == String.class) return t.toString();
+      return null;
+    }
+    
+    /**
+     * A snapshot of the metadata of a ResultSet. The column labels and the 
+     * label to index map are computed when the snapshot is created. The 
+     * SqlType and length of a column are computed the first time they are
+     * used since not every type has a SqlType. Indexes are absolute.
+     */
+    static final class RowMetaData {
+      
+      private static final int[] NO_INDEXES = new int[0];
+      private static final long UNKNOWN_LENGTH = Long.MIN_VALUE;
+      
+      private final ResultSetMetaData metaData;
+      private final String[] labels;
+      private final Map<String, int[]> indexes;
+      
+      // lazily computed. Races are benign, every thread computes the same value
+      private final SqlType[] sqlTypes;
+      private final long[] lengths;
+      private final Class<?>[] valueTypes;
+      
+      private RowMetaData(ResultSetMetaData metaData) throws SQLException {
+        this.metaData = metaData;
+        int count = metaData.getColumnCount();
+        labels = new String[count];
+        indexes = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+          String label = metaData.getColumnLabel(i + 1);
+          labels[i] = label;
+          int[] previous = indexes.getOrDefault(label, NO_INDEXES);
+          int[] current = Arrays.copyOf(previous, previous.length + 1);
+          current[previous.length] = i + 1;
+          indexes.put(label, current);
+        }
+        sqlTypes = new SqlType[count];
+        lengths = new long[count];
+        valueTypes = new Class<?>[count];
+        Arrays.fill(lengths, UNKNOWN_LENGTH);
+      }
+      
+      int columnCount() {
+        return labels.length;
+      }
+      
+      String label(int index) {
+        return labels[index - 1];
+      }
+      
+      /**
+       * @param label a column label
+       * @return the indexes of the columns with label in ascending order. 
+       * Empty if there are none.
+       */
+      int[] indexesOf(String label) {
+        return indexes.getOrDefault(label, NO_INDEXES);
+      }
+      
+      SqlType sqlType(int index) throws SQLException {
+        SqlType type = sqlTypes[index - 1];
+        if (type == null) {
+          type = OperationJdbc.fromSQLType(
+                   JDBCType.valueOf(metaData.getColumnType(index)));
+          sqlTypes[index - 1] = type;
+        }
+        return type;
+      }
+      
+      /**
+       * @param index a column index
+       * @return the element type of the ColumnChunk vector for the column.
+       * Integral values are stored as int or long only if every value of the
+       * column's type fits.
+       * @throws SQLException 
+       */
+      Class<?> vectorType(int index) throws SQLException {
+        switch (metaData.getColumnType(index)) {
+          case Types.TINYINT:
+          case Types.SMALLINT:
+          case Types.INTEGER:
+            return int.class;
+          case Types.BIGINT:
+            return long.class;
+          case Types.REAL:
+          case Types.FLOAT:
+          case Types.DOUBLE:
+            return double.class;
+          case Types.NUMERIC:
+          case Types.DECIMAL:
+            int precision = metaData.getPrecision(index);
+            if (metaData.getScale(index) != 0 || precision <= 0) 
+              return Object.class;
+            else if (precision < 10) 
+              return int.class;
+            else if (precision < 19)
+              return long.class;
+            else
+              return Object.class;
+          case Types.CHAR:
+          case Types.VARCHAR:
+          case Types.LONGVARCHAR:
+          case Types.NCHAR:
+          case Types.NVARCHAR:
+          case Types.LONGNVARCHAR:
+            return String.class;
+          default:
+            return Object.class;
+        }
+      }
+      
+      long length(int index) throws SQLException {
+        long length = lengths[index - 1];
+        if (length == UNKNOWN_LENGTH) {
+          length = metaData.getColumnDisplaySize(index);
+          lengths[index - 1] = length;
+        }
+        return length;
+      }
+
+      /**
+       * @param index a column index
+       * @return the standard Java type of the column's values, the type 
+       * a row copy reads them as. Object if the column has no standard type
+       * or the driver can't return it.
+       * @throws SQLException 
+       */
+      Class<?> valueType(int index) throws SQLException {
+        Class<?> type = valueTypes[index - 1];
+        if (type == null) {
+          type = standardType(metaData.getColumnType(index));
+          valueTypes[index - 1] = type;
+        }
+        return type;
+      }
+      
+      /**
+       * Read the column with ResultSet.getObject(int) from now on.
+       */
+      void untyped(int index) {
+        valueTypes[index - 1] = Object.class;
+      }
+      
+      private static Class<?> standardType(int jdbcType) {
+        switch (jdbcType) {
+          case Types.CHAR:
+          case Types.VARCHAR:
+          case Types.LONGVARCHAR:
+          case Types.NCHAR:
+          case Types.NVARCHAR:
+          case Types.LONGNVARCHAR:
+          case Types.CLOB:
+          case Types.NCLOB:
+            return String.class;
+          case Types.TINYINT:
+          case Types.SMALLINT:
+          case Types.INTEGER:
+            return Integer.class;
+          case Types.BIGINT:
+            return Long.class;
+          case Types.REAL:
+            return Float.class;
+          case Types.FLOAT:
+          case Types.DOUBLE:
+            return Double.class;
+          case Types.NUMERIC:
+          case Types.DECIMAL:
+            return BigDecimal.class;
+          case Types.BIT:
+          case Types.BOOLEAN:
+            return Boolean.class;
+          case Types.DATE:
+            return LocalDate.class;
+          case Types.TIME:
+            return LocalTime.class;
+          case Types.TIMESTAMP:
+            return LocalDateTime.class;
+          case Types.TIMESTAMP_WITH_TIMEZONE:
+            return OffsetDateTime.class;
+          case Types.BINARY:
+          case Types.VARBINARY:
+          case Types.LONGVARBINARY:
+          case Types.BLOB:
+            return byte[].class;
+          default:
+            return Object.class;
+        }
+      }
+      
+      /**
+       * Compute the SqlType and length of every column now, so they are
+       * available after the ResultSet is closed. A column without a SqlType
+       * still computes it when it is used.
+       *
+       * @return this
+       * @throws SQLException
+       */
+      RowMetaData resolveAll() throws SQLException {
+        for (int index = 1; index <= labels.length; index++) {
+          try {
+            sqlType(index);
+          }
+          catch (RuntimeException ex) {
+            // no SqlType mapping
+          }
+          length(index);
+          valueType(index);
+        }
+        return this;
+      }
+    }
+    
+    /**
+     * A RowOperation in chunk mode creates one ColumnChunk and refills it, and
+     * its vectors, for every block of rows. Like RowColumnJdbc it is closed 
+     * when the Operation moves to the next row generation.
+     */
+    static final class ColumnChunkJdbc implements Result.ColumnChunk {
+      
+      private final RowBaseOperationImpl rowOp;
+      private final int capacity;
+      private final Class<?>[] types;
+      private final Object[] vectors;
+      private final boolean[][] nulls;
+      
+      private int rowCount = 0;
+      private long firstRowNumber = 0L;
+      private long generation;
+      
+      private ColumnChunkJdbc(RowBaseOperationImpl op, int capacity) 
+        throws SQLException {
+        rowOp = op;
+        this.capacity = capacity;
+        RowMetaData metaData = op.rowMetaData();
+        int count = metaData.columnCount();
+        types = new Class<?>[count];
+        vectors = new Object[count];
+        nulls = new boolean[count][capacity];
+        for (int i = 0; i < count; i++) {
+          Class<?> type = metaData.vectorType(i + 1);
+          types[i] = type;
+          if (type == int.class) vectors[i] = new int[capacity];
+          else if (type == long.class) vectors[i] = new long[capacity];
+          else if (type == double.class) vectors[i] = new double[capacity];
+          else if (type == String.class) vectors[i] = new String[capacity];
+          else vectors[i] = new Object[capacity];
+        }
+        generation = op.rowGeneration() - 1; // closed until filled
+      }
+      
+      /**
+       * Read up to capacity rows of the ResultSet into the vectors.
+       * 
+       * @param rs positioned before the first row of this chunk
+       * @param firstRow row number of the first row
+       * @return false if the ResultSet has no more rows
+       * @throws SQLException 
+       */
+      boolean fill(ResultSet rs, long firstRow) throws SQLException {
+        generation = rowOp.rowGeneration();
+        firstRowNumber = firstRow;
+        rowCount = 0;
+        while (rowCount < capacity) {
+          if (!rs.next()) return false;
+          int row = rowCount;
+          for (int i = 0; i < types.length; i++) {
+            Class<?> type = types[i];
+            int index = i + 1;
+            if (type == int.class) {
+              int value = rs.getInt(index);
+              ((int[])vectors[i])[row] = value;
+              nulls[i][row] = value == 0 && rs.wasNull();
+            }
+            else if (type == long.class) {
+              long value = rs.getLong(index);
+              ((long[])vectors[i])[row] = value;
+              nulls[i][row] = value == 0L && rs.wasNull();
+            }
+            else if (type == double.class) {
+              double value = rs.getDouble(index);
+              ((double[])vectors[i])[row] = value;
+              nulls[i][row] = value == 0.0d && rs.wasNull();
+            }
+            else if (type == String.class) {
+              String value = rs.getString(index);
+              ((String[])vectors[i])[row] = value;
+              nulls[i][row] = value == null;
+            }
+            else {
+              Object value = rs.getObject(index);
+              ((Object[])vectors[i])[row] = value;
+              nulls[i][row] = value == null;
+            }
+          }
+          rowCount++;
+        }
+        return true;
+      }
+      
+      @Override
+      public int rowCount() {
+        assertOpen();
+        return rowCount;
+      }
+      
+      @Override
+      public long firstRowNumber() {
+        assertOpen();
+        return firstRowNumber;
+      }
+      
+      @Override
+      public int columnCount() {
+        assertOpen();
+        return types.length;
+      }
+      
+      @Override
+      public String identifier(int index) {
+        assertOpen();
+        assertColumn(index);
+        return rowOp.rowMetaData().label(index);
+      }
+      
+      @Override
+      public Class<?> vectorType(int index) {
+        assertOpen();
+        assertColumn(index);
+        return types[index - 1];
+      }
+      
+      @Override
+      public boolean isNull(int index, int row) {
+        assertOpen();
+        assertColumn(index);
+        if (row < 0 || row >= rowCount) 
+          throw new NoSuchElementException("No row: " + row);
+        return nulls[index - 1][row];
+      }
+      
+      @Override
+      public int[] intVector(int index) {
+        return (int[])vector(index, int.class);
+      }
+      
+      @Override
+      public long[] longVector(int index) {
+        return (long[])vector(index, long.class);
+      }
+      
+      @Override
+      public double[] doubleVector(int index) {
+        return (double[])vector(index, double.class);
+      }
+      
+      @Override
+      public String[] stringVector(int index) {
+        return (String[])vector(index, String.class);
+      }
+      
+      @Override
+      public Object[] objectVector(int index) {
+        return (Object[])vector(index, Object.class);
+      }
+      
+      private Object vector(int index, Class<?> type) {
+        assertOpen();
+        assertColumn(index);
+        if (types[index - 1] != type) {
+          throw new IllegalStateException(
+            "Column " + index + " is stored as " + types[index - 1].getName() 
+            + "[]");
+        }
+        return vectors[index - 1];
+      }
+      
+      private void assertColumn(int index) {
+        if (index < 1 || index > types.length)
+          throw new NoSuchElementException("No column: " + index);
+      }
+      
+      private void assertOpen() {
+        if (generation != rowOp.rowGeneration()) 
+          throw new IllegalStateException("Closed");
       }
     }
     
@@ -38,14 +38,29 @@ public abstract class RowBaseOperationImpl<T> extends ParameterizedOperationJdbc
   protected int fetchSize;
   
   // internal state
-  private PreparedStatement jdbcStatement;
+  private volatile PreparedStatement jdbcStatement;
   private ResultSetMetaData resultSetMetaData;
-  private String[] identifiers;
+  private ResultImpl.RowMetaData rowMetaData;
 
   protected ResultSet resultSet;
   protected long rowCount;
+  
+  /** time spent reading rows, for metrics */
+  protected long fetchNanos;
   protected boolean rowsRemain;
   
+  /** set by RowColumn.cancel, no further rows are processed */
+  private volatile boolean isRowsCanceled = false;
+  
+  /** reused for every row, see beginRow */
+  private ResultImpl.RowColumnJdbc rowColumn;
+  
+  /** 
+   * incremented after each row is processed. Only accessed by the thread 
+   * processing the rows.
+   */
+  private long rowGeneration = 0L;
+  
   protected static final int NOT_SET = -1;
   
   RowBaseOperationImpl(SessionJdbc session, OperationGroupJdbc operationGroup, String sql) {
@@ -72,13 +87,15 @@ public abstract class RowBaseOperationImpl<T> extends ParameterizedOperationJdbc
   }
   
   protected void JdbcCancel() {
-    try {
+    synchronized (cancelLock) {
+      try {
         if (jdbcStatement != null) {
           jdbcStatement.cancel();
         }
-    }
-    catch (SQLException ex) {
-      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      }
+      catch (SQLException ex) {
+        throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      }
     }
   }
   
@@ -87,20 +104,29 @@ public abstract class RowBaseOperationImpl<T> extends ParameterizedOperationJdbc
   
   protected void executeJdbcQuery() {
     checkCanceled();
+    long start = executeStarted();
     try {
-      jdbcStatement = session.prepareStatement(sqlString);
+      BindingPlanJdbc plan = bindingPlan(sqlString);
+      jdbcStatement = connection().prepareStatement(plan.jdbcSql());
       initFetchSize();
-      setParameters.forEach((String k, ParameterValue v) -> {
-        v.set(jdbcStatement, k);
-      });
+      plan.bind(jdbcStatement, setParameters);
       group.logger.log(Level.FINE, () -> "executeQuery(\"" + sqlString + "\")");
       resultSet = jdbcStatement.executeQuery();
+      executeEnded(start);
       resultSetMetaData = resultSet.getMetaData();
+      rowMetaData = null;
       rowsRemain = true;
       rowCount = 0;
+      fetchNanos = 0L;
     }
     catch (SQLException ex) {
-      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      SqlException sqlEx = new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      closeAfterError(sqlEx);
+      throw sqlEx;
+    }
+    catch (RuntimeException ex) {
+      closeAfterError(ex);
+      throw ex;
     }
   }
   
@@ -110,8 +136,10 @@ public abstract class RowBaseOperationImpl<T> extends ParameterizedOperationJdbc
       initFetchSize();     
       this.resultSet = resultSet;
       resultSetMetaData = this.resultSet.getMetaData();
+      rowMetaData = null;
       rowsRemain = true;
       rowCount = 0;
+      fetchNanos = 0L;
     }
     catch (SQLException ex) {
       throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
@@ -122,38 +150,106 @@ public abstract class RowBaseOperationImpl<T> extends ParameterizedOperationJdbc
   abstract T completeQuery();
   
   protected void completeJdbcQuery() throws SqlException {
+    trace(OperationTraceListener.Event.LAST_ROW);
     JdbcClose();
     checkCanceled();
+    OperationMetrics metrics = session.metrics();
+    if (metrics != null) metrics.fetched(sqlString, fetchNanos, rowCount);
+  }
+  
+  /**
+   * Add the time since start to the time spent reading rows.
+   */
+  void fetchTime(long start) {
+    fetchNanos += System.nanoTime() - start;
+  }
+
+  /**
+   * Close the ResultSet and give back the statement after an error. A 
+   * failure to close is added to the error rather than hiding it.
+   * 
+   * @param t the error
+   */
+  void closeAfterError(Throwable t) {
+    try {
+      JdbcClose();
+    }
+    catch (RuntimeException closeEx) {
+      t.addSuppressed(closeEx);
+    }
   }
 
   protected void JdbcClose() {
     try {
-      // Closing a statement, also close resultset associated with the statement
-      jdbcStatement.close();
+      // The statement may be reused so close the resultset explicitly
+      if (resultSet != null) resultSet.close();
+      synchronized (cancelLock) {
+        PreparedStatement stmt = jdbcStatement;
+        jdbcStatement = null;
+        if (stmt != null) connection().releaseStatement(stmt);
+      }
     }
     catch (SQLException ex) {
       throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
     }
   }
 
-  String[] getIdentifiers() {
-    if (identifiers == null) {
+  /**
+   * Get the RowColumn for the current row. The same object is returned for
+   * every row so no allocation is done per row. The caller must call endRow
+   * when it is done with the row.
+   * 
+   * @return the RowColumn for the current row
+   */
+  ResultImpl.RowColumnJdbc beginRow() {
+    if (rowCount == 0) trace(OperationTraceListener.Event.FIRST_ROW);
+    if (rowColumn == null) rowColumn = ResultImpl.newRowColumn(this);
+    return rowColumn.reset();
+  }
+  
+  /**
+   * Close the RowColumn returned by beginRow and all clones and slices of it.
+   */
+  void endRow() {
+    rowGeneration++;
+  }
+  
+  long rowGeneration() {
+    return rowGeneration;
+  }
+  
+  /**
+   * Process no further rows. The Operation completes normally as though the
+   * current row were the last. See RowColumn.cancel.
+   */
+  void cancelRows() {
+    isRowsCanceled = true;
+  }
+  
+  boolean isRowsCanceled() {
+    return isRowsCanceled;
+  }
+  
+  /**
+   * The metadata of the current ResultSet. Computed once per ResultSet and
+   * shared by the RowColumn and all its clones and slices.
+   * 
+   * @return the metadata of the current ResultSet
+   */
+  ResultImpl.RowMetaData rowMetaData() {
+    if (rowMetaData == null) {
       try {
         if (resultSet == null) {
           throw new IllegalStateException("TODO");
         }
         group.logger.log(Level.FINE, () -> "ResultSet.getMetaData()"); //DEBUG
-        int count = resultSetMetaData.getColumnCount();
-        identifiers = new String[count];
-        for (int i = 0; i < count; i++) {
-          identifiers[i] = resultSetMetaData.getColumnLabel(i + 1);
-        }
+        rowMetaData = ResultImpl.newRowMetaData(resultSetMetaData);
       }
       catch (SQLException ex) {
         throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
       }
     }
-    return identifiers;
+    return rowMetaData;
   }
   
   String enquoteIdentifier(String id) {
@@ -178,6 +274,7 @@ public abstract class RowBaseOperationImpl<T> extends ParameterizedOperationJdbc
     return resultSet;
   }
   
+  @Override
   String sqlString() {
     return sqlString;
   }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.LongSummaryStatistics;
+import java.util.stream.Collector;
+
+import jdk.incubator.sql2.Result;
+
+/**
+ * Collectors for {@link jdk.incubator.sql2.ParameterizedRowOperation#collect}
+ * that read a numeric column of each row with the primitive getters of
+ * {@link Result.Column}, so no value is boxed. For example
+ * <pre>
+ * {@code session.<Long>rowOperation("SELECT amount FROM orders")
+ *   .collect(RowCollectors.summingLong("AMOUNT"))
+ *   .submit();}
+ * </pre>
+ * A SQL NULL value causes a NullPointerException.
+ */
+public final class RowCollectors {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private RowCollectors() {}
+
+  /**
+   * @param id identifies the column
+   * @return a Collector that sums the column as a long
+   */
+  public static Collector<Result.RowColumn, ?, Long> summingLong(String id) {
+    return Collector.of(
+      () -> new long[1],
+      (a, row) -> a[0] += row.at(id).getLong(),
+      (a, b) -> { a[0] += b[0]; return a; },
+      a -> a[0]);
+  }
+
+  /**
+   * @param id identifies the column
+   * @return a Collector that sums the column as a double
+   */
+  public static Collector<Result.RowColumn, ?, Double> summingDouble(String id) {
+    return Collector.of(
+      () -> new double[1],
+      (a, row) -> a[0] += row.at(id).getDouble(),
+      (a, b) -> { a[0] += b[0]; return a; },
+      a -> a[0]);
+  }
+
+  /**
+   * @param id identifies the column
+   * @return a Collector that computes the count, sum, min, max and average of
+   * the column as a long
+   */
+  public static Collector<Result.RowColumn, ?, LongSummaryStatistics>
+    summarizingLong(String id) {
+    return Collector.of(
+      LongSummaryStatistics::new,
+      (s, row) -> s.accept(row.at(id).getLong()),
+      (s, t) -> { s.combine(t); return s; });
+  }
+
+  /**
+   * @param id identifies the column
+   * @return a Collector that computes the count, sum, min, max and average of
+   * the column as a double
+   */
+  public static Collector<Result.RowColumn, ?, DoubleSummaryStatistics>
+    summarizingDouble(String id) {
+    return Collector.of(
+      DoubleSummaryStatistics::new,
+      (s, row) -> s.accept(row.at(id).getDouble()),
+      (s, t) -> { s.combine(t); return s; });
+  }
+
+  /**
+   * @param id identifies the column
+   * @return a Collector that collects the column of every row into an int[]
+   * in row order
+   */
+  public static Collector<Result.RowColumn, ?, int[]> toIntArray(String id) {
+    return Collector.of(
+      IntArrayBuilder::new,
+      (b, row) -> b.add(row.at(id).getInt()),
+      IntArrayBuilder::addAll,
+      IntArrayBuilder::toArray);
+  }
+
+  /**
+   * @param id identifies the column
+   * @return a Collector that collects the column of every row into a long[]
+   * in row order
+   */
+  public static Collector<Result.RowColumn, ?, long[]> toLongArray(String id) {
+    return Collector.of(
+      LongArrayBuilder::new,
+      (b, row) -> b.add(row.at(id).getLong()),
+      LongArrayBuilder::addAll,
+      LongArrayBuilder::toArray);
+  }
+
+  /**
+   * @param id identifies the column
+   * @return a Collector that collects the column of every row into a double[]
+   * in row order
+   */
+  public static Collector<Result.RowColumn, ?, double[]> toDoubleArray(String id) {
+    return Collector.of(
+      DoubleArrayBuilder::new,
+      (b, row) -> b.add(row.at(id).getDouble()),
+      DoubleArrayBuilder::addAll,
+      DoubleArrayBuilder::toArray);
+  }
+
+  private static final class IntArrayBuilder {
+
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) values = Arrays.copyOf(values, size * 2);
+      values[size++] = value;
+    }
+
+    IntArrayBuilder addAll(IntArrayBuilder other) {
+      for (int i = 0; i < other.size; i++) add(other.values[i]);
+      return this;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  private static final class LongArrayBuilder {
+
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    void add(long value) {
+      if (size == values.length) values = Arrays.copyOf(values, size * 2);
+      values[size++] = value;
+    }
+
+    LongArrayBuilder addAll(LongArrayBuilder other) {
+      for (int i = 0; i < other.size; i++) add(other.values[i]);
+      return this;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  private static final class DoubleArrayBuilder {
+
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int size = 0;
+
+    void add(double value) {
+      if (size == values.length) values = Arrays.copyOf(values, size * 2);
+      values[size++] = value;
+    }
+
+    DoubleArrayBuilder addAll(DoubleArrayBuilder other) {
+      for (int i = 0; i < other.size; i++) add(other.values[i]);
+      return this;
+    }
+
+    double[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
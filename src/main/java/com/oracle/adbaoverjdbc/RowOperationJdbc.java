@@ -21,6 +21,7 @@ import java.sql.SQLException;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.stream.Collector;
 
@@ -31,15 +32,30 @@ import jdk.incubator.sql2.SqlType;
 
 
 /**
- * Creates separate CompletionStages to execute the query, to fetch and process
- * each block of fetchSize rows and to compute the final result. Yes, these are
- * all synchronous actions so there is no theoretical requirement to do them in 
- * separate CompletionStages. This class does so to break up this large synchronous
- * action into smaller tasks so as to avoid hogging a thread.
+ * Creates a CompletionStage to execute the query and a single CompletionStage
+ * that is completed with the final result. The rows are fetched and processed
+ * by a drain loop that runs as an ordinary Executor task rather than as a
+ * chain of CompletionStages, so the number of stages does not depend on the
+ * number of rows. The loop processes blocks of fetchSize rows for at most
+ * {@link SessionPropertiesJdbc#ROW_DRAIN_TIME_SLICE} and then resubmits itself
+ * to the Executor so as to avoid hogging a thread. It also stops if the
+ * Operation is canceled.
+ * 
+ * If the Collector was set by collectChunks each block of rows is read into
+ * a single reused ColumnChunk which is passed to the accumulator once per
+ * block instead of once per row.
+ * 
+ * If the SQL is cached by the DataSource's {@link QueryResultCache} the 
+ * cache is checked when the predecessor completes. On a hit the cached rows
+ * are collected right away, without a connection or an Executor task. On a
+ * miss the query is executed as usual and a copy of each row is cached.
  */
 class RowOperationJdbc<T>  extends RowBaseOperationImpl<T> 
         implements ParameterizedRowOperation<T> {
 
+  /** rows per block if neither the user nor the driver specify a fetchSize */
+  private static final int DEFAULT_FETCH_SIZE = 10;
+  
   static final Collector DEFAULT_COLLECTOR = Collector.of(
           () -> null,
           (a, v) -> {},
@@ -51,31 +67,106 @@ class RowOperationJdbc<T>  extends RowBaseOperationImpl<T>
   
   // attributes
   private Collector collector;
+  private boolean isChunked = false;
   
   // internal state
   private Object accumulator;
+  private ResultImpl.ColumnChunkJdbc chunk;
+  private CompletableFuture<T> queryResult;
+  private long timeSliceNanos;
+  
+  /** collects the rows for the QueryResultCache. null if not caching */
+  private QueryResultCache.Fill cacheFill;
   
   protected RowOperationJdbc(SessionJdbc session, OperationGroupJdbc grp, String sql) {
     super(session, grp, sql);
     collector = DEFAULT_COLLECTOR;
   }
   
+  @Override
+  CompletionStage<T> follows(CompletionStage<?> predecessor, Executor executor) {
+    QueryResultCache cache = session.resultCache();
+    if (cache == null || isChunked || !cache.isCached(sqlString)) {
+      return super.follows(predecessor, executor);
+    }
+    return attachFutureParameters(predecessor)
+             .thenCompose(x -> cachedOrQuery(cache, executor));
+  }
+  
   /**
-   * Return a CompletionStage that fetches the next block of rows. If there are
-   * no more rows to fetch return a CompletionStage that completes the query.
+   * Collect the cached rows if there are any, else execute the query and 
+   * cache its rows. A Session with uncommitted writes always executes the 
+   * query and caches nothing.
+   */
+  private CompletionStage<T> cachedOrQuery(QueryResultCache cache, 
+                                           Executor executor) {
+    if (session.hasUncommittedWrites()) {
+      return CompletableFuture.runAsync(this::executeQuery, executor)
+                              .thenCompose(this::moreRows);
+    }
+    QueryResultCache.Lookup lookup = cache.lookup(sqlString, setParameters);
+    if (lookup instanceof QueryResultCache.Entry) {
+      return CompletableFuture.completedFuture(
+               collectCached((QueryResultCache.Entry)lookup));
+    }
+    cacheFill = (QueryResultCache.Fill)lookup;
+    return CompletableFuture.runAsync(this::executeQuery, executor)
+                            .thenCompose(this::moreRows);
+  }
+  
+  private T collectCached(QueryResultCache.Entry cached) {
+    checkCanceled();
+    Object container = collector.supplier().get();
+    Object[][] rows = cached.rows;
+    for (int i = 0; i < rows.length && !isRowsCanceled(); i++) {
+      collector.accumulator().accept(container, 
+        ResultImpl.newCachedRow(this, cached.metaData, rows[i], i));
+    }
+    return (T) collector.finisher().apply(container);
+  }
+  
+  /**
+   * Start draining the rows. Called when the query has been executed, which
+   * for some subclasses may be on a user thread, so the drain loop is always
+   * started as a new Executor task.
    * 
    * @param x ignored
-   * @return the next Completion stage in the processing of the query.
+   * @return a CompletionStage that is completed with the result of the query 
+   * when all rows have been processed
    */
   @Override
   protected CompletionStage<T> moreRows(Object x) {
-    checkCanceled();
-    if (rowsRemain) {
-      return CompletableFuture.runAsync(this::handleFetchRows, getExecutor())
-              .thenComposeAsync(this::moreRows, getExecutor());
+    queryResult = new CompletableFuture<>();
+    Duration slice = session.sessionPropertyValue(
+                       SessionPropertiesJdbc.ROW_DRAIN_TIME_SLICE);
+    timeSliceNanos = slice.toNanos();
+    getIoExecutor().execute(this::drainRows);
+    return queryResult;
+  }
+  
+  /**
+   * Process blocks of rows until there are no more rows or the time slice is
+   * used up. In the latter case resubmit to the Executor so that other tasks
+   * get a chance to run. At least one block is processed each time.
+   */
+  private void drainRows() {
+    try {
+      long start = System.nanoTime();
+      do {
+        checkCanceled();
+        if (!rowsRemain) {
+          fetchTime(start);
+          queryResult.complete(completeQuery());
+          return;
+        }
+        handleFetchRows();
+      } while (System.nanoTime() - start < timeSliceNanos);
+      fetchTime(start);
+      getIoExecutor().execute(this::drainRows);
     }
-    else {
-      return CompletableFuture.supplyAsync(this::completeQuery, getExecutor());
+    catch (Throwable t) {
+      closeAfterError(t);
+      queryResult.completeExceptionally(t);
     }
   }
   
@@ -88,6 +179,7 @@ class RowOperationJdbc<T>  extends RowBaseOperationImpl<T>
   protected void initRowOperationResultSet(PreparedStatement jdbcStatement, ResultSet resultSet) {
     super.initRowOperationResultSet(jdbcStatement, resultSet);
     accumulator = collector.supplier().get();
+    chunk = null;
   }
 
   
@@ -102,10 +194,43 @@ class RowOperationJdbc<T>  extends RowBaseOperationImpl<T>
    * @throws SQLException
    */
   private Object handleFetchRows() {
+    int blockSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+    if (isChunked) return handleFetchChunk(blockSize);
     try {
-      for (int i = 0; i < fetchSize && (rowsRemain = resultSet.next()); i++) {
+      for (int i = 0; i < blockSize && (rowsRemain = resultSet.next()); i++) {
         handleRow();
         rowCount++;
+        if (isRowsCanceled()) {
+          rowsRemain = false;
+          break;
+        }
+      }
+    }
+    catch (SQLException ex) {
+      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+    }
+    return null;
+  }
+  
+  /**
+   * Fill the ColumnChunk with the next block of rows and pass it to the 
+   * accumulator. The same ColumnChunk is used for every block.
+   */
+  private Object handleFetchChunk(int blockSize) {
+    checkCanceled();
+    try {
+      if (chunk == null) chunk = ResultImpl.newColumnChunk(this, blockSize);
+      rowsRemain = chunk.fill(resultSet, rowCount);
+      int count = chunk.rowCount();
+      if (count > 0) {
+        if (rowCount == 0) trace(OperationTraceListener.Event.FIRST_ROW);
+        try {
+          collector.accumulator().accept(accumulator, chunk);
+        }
+        finally {
+          endRow();
+        }
+        rowCount += count;
       }
     }
     catch (SQLException ex) {
@@ -116,14 +241,30 @@ class RowOperationJdbc<T>  extends RowBaseOperationImpl<T>
   
   private void handleRow() throws SQLException {
     checkCanceled();
-    try (ResultImpl.RowColumnJdbc row = ResultImpl.newRowColumn(this)) {
-      collector.accumulator().accept(accumulator, row);
+    if (cacheFill != null) cacheFill.add(ResultImpl.copyRow(this));
+    try {
+      collector.accumulator().accept(accumulator, beginRow());
+    }
+    finally {
+      endRow();
     }
   }
   
   @Override
   T completeQuery() {
+    // a query whose rows were canceled read only some of them
+    if (isRowsCanceled()) cacheFill = null;
+    ResultImpl.RowMetaData cachedMetaData = null;
+    if (cacheFill != null) {
+      try {
+        cachedMetaData = rowMetaData().resolveAll();
+      }
+      catch (SQLException ex) {
+        throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+      }
+    }
     completeJdbcQuery();
+    if (cacheFill != null) cacheFill.complete(cachedMetaData);
     return (T) collector.finisher().apply(accumulator);
   }
   
@@ -142,6 +283,15 @@ class RowOperationJdbc<T>  extends RowBaseOperationImpl<T>
     return this;
   }
 
+  @Override
+  public <A, S extends T> ParameterizedRowOperation<T> collectChunks(Collector<? super Result.ColumnChunk, A, S> c) {
+    if (isImmutable() || collector != DEFAULT_COLLECTOR) throw new IllegalStateException("TODO");
+    if (c == null) throw new IllegalArgumentException("TODO");
+    collector = c;
+    isChunked = true;
+    return this;
+  }
+
   @Override
   public RowOperationJdbc<T> onError(Consumer<Throwable> handler) {
     return (RowOperationJdbc<T>)super.onError(handler);
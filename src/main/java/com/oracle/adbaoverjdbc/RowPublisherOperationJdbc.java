@@ -17,12 +17,15 @@ package com.oracle.adbaoverjdbc;
 
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Flow;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -33,11 +36,30 @@ import jdk.incubator.sql2.SqlException;
 import jdk.incubator.sql2.SqlType;
 
 /**
- * Creates separate CompletionStages to execute the query, to fetch and process
- * each block of fetchSize rows and to compute the final result. Yes, these are
- * all synchronous actions so there is no theoretical requirement to do them in 
- * separate CompletionStages. This class does so to break up this large synchronous
- * action into smaller tasks so as to avoid hogging a thread.
+ * Publishes the rows of a query to a Flow.Subscriber.
+ * 
+ * All signals to the Subscriber are made by a drain loop. A call to 
+ * request or cancel, from any thread, only records the demand or the 
+ * cancellation and then makes sure the drain loop runs, so the Subscriber is
+ * never signaled concurrently or recursively. The loop runs as an Executor 
+ * task. It emits as many rows as there is demand, for at most
+ * {@link SessionPropertiesJdbc#ROW_DRAIN_TIME_SLICE}, and then exits. When 
+ * there is no demand no thread is held; the next request starts a new task.
+ * 
+ * If {@link SessionPropertiesJdbc#ROW_PUBLISHER_PREFETCH} is greater than 
+ * zero the loop reads up to that many rows ahead of demand. Rows read ahead
+ * are copied out of the ResultSet, see {@link ResultImpl#newSnapshotRow}, and
+ * are emitted in bulk when demand arrives. Rows emitted without read ahead
+ * use the same reused RowColumn as RowOperation.
+ * 
+ * If {@link SessionPropertiesJdbc#ROW_PUBLISHER_BUFFER} is greater than zero
+ * the ResultSet is instead read by a separate fetch task that copies rows 
+ * into a bounded ring buffer, regardless of demand, until the buffer is full.
+ * The drain loop only takes rows from the buffer, so a slow Subscriber does
+ * not hold up the cursor and fetching the next rows overlaps with the 
+ * Subscriber processing the previous ones. The buffer size bounds the memory
+ * used by the query. Each task gives up its thread when it can make no 
+ * progress and is restarted by the other one.
  */
 class RowPublisherOperationJdbc<T>  extends RowBaseOperationImpl<T> 
         implements ParameterizedRowPublisherOperation<T> {
@@ -45,11 +67,11 @@ class RowPublisherOperationJdbc<T>  extends RowBaseOperationImpl<T>
   
   private static Logger logger = OperationGroupJdbc.NULL_LOGGER;
 
+  /** rows per round trip if neither the user nor the driver specify a fetchSize */
+  private static final int DEFAULT_FETCH_SIZE = 10;
 
   static final Subscriber<? super Result.RowColumn> DEFAULT_SUBSCRIBER = new Flow.Subscriber<Result.RowColumn>() {
     
-          private Subscription subscription;
-
           @Override    
           public void onComplete() {
             logger.log(Level.FINE, () -> "onComplete");
@@ -63,15 +85,11 @@ class RowPublisherOperationJdbc<T>  extends RowBaseOperationImpl<T>
           @Override
           public void onNext(Result.RowColumn row) {  
             // Process a row. We just ignore the row in the default implementation.
-
-            // Request more row
-            subscription.request(1);
           }
 
           @Override
           public void onSubscribe(Subscription subscription) {
-            this.subscription = subscription;
-            subscription.request(1);
+            subscription.request(Long.MAX_VALUE);
           }            
     };
   
@@ -84,166 +102,379 @@ class RowPublisherOperationJdbc<T>  extends RowBaseOperationImpl<T>
   CompletionStage<? extends T> result;
   
   // internal state
-  private final AtomicLong demand;
-  private int currentBatchFetchCount;
-  private CompletableFuture<T> demandStage;
-  private boolean cancelSubscription;
+  
+  /** unfulfilled requests. Long.MAX_VALUE means unbounded */
+  private final AtomicLong demand = new AtomicLong(0L);
+  
+  /** non-zero while the drain loop is scheduled or running */
+  private final AtomicInteger wip = new AtomicInteger(0);
+  
+  private volatile boolean isCanceled = false;
+  private volatile IllegalArgumentException requestError = null;
+  
+  /** an exception thrown by the drain loop while the fetch task was running */
+  private volatile Throwable drainError = null;
+  
+  /** non-null if rows are fetched by the fetch task */
+  private RowBuffer buffer = null;
+  
+  /** non-zero while the fetch task is scheduled or running */
+  private final AtomicInteger fetchWip = new AtomicInteger(0);
+  
+  /** set by the fetch task once it will not touch the ResultSet again */
+  private volatile boolean isFetchDone = false;
+  private volatile Throwable fetchError = null;
+  
+  // only accessed by the drain loop
+  private final ArrayDeque<Result.RowColumn> prefetched = new ArrayDeque<>();
+  private CompletableFuture<T> queryResult;
+  private volatile boolean isStarted = false;
+  private boolean isTerminated = false;
+  private int prefetchLimit;
+  private long timeSliceNanos;
   
 
   protected RowPublisherOperationJdbc(SessionJdbc session, OperationGroupJdbc grp, String sql) {
     super(session, grp, sql);
     subscriber = DEFAULT_SUBSCRIBER;
     result = null;
-    demand = new AtomicLong(0L);
-    currentBatchFetchCount = 0;
-    cancelSubscription = false;
-    demandStage = new CompletableFuture();
   }
   
   /**
-   * Return a CompletionStage that fetches the next block of rows. If there are
-   * no more rows to fetch return a CompletionStage that completes the query.
+   * Start the drain loop. Called when the query has been executed. Any 
+   * demand requested before then is honored now.
    * 
    * @param x ignored
-   * @return the next Completion stage in the processing of the query.
+   * @return a CompletionStage that is completed with the result of this
+   * Operation
    */
   @Override
   CompletionStage<T> moreRows(Object x) {
     checkCanceled();
-    if (rowsRemain) {
-      return CompletableFuture.runAsync(this::handleFetchRows, getExecutor())
-              .thenComposeAsync(this::demandExist, getExecutor())
-              .thenComposeAsync(this::moreRows, getExecutor());
+    queryResult = new CompletableFuture<>();
+    prefetchLimit = session.<Integer>sessionPropertyValue(
+                      SessionPropertiesJdbc.ROW_PUBLISHER_PREFETCH);
+    timeSliceNanos = session.<Duration>sessionPropertyValue(
+                       SessionPropertiesJdbc.ROW_DRAIN_TIME_SLICE).toNanos();
+    int bufferSize = session.<Integer>sessionPropertyValue(
+                       SessionPropertiesJdbc.ROW_PUBLISHER_BUFFER);
+    if (bufferSize > 0) buffer = new RowBuffer(bufferSize);
+    if (subscriber == DEFAULT_SUBSCRIBER) demand.set(Long.MAX_VALUE);
+    isStarted = true;
+    if (buffer != null) signalFetch();
+    signalDrain();
+    return queryResult;
+  }
+  
+  /**
+   * Record demand. Called by the Subscription.
+   */
+  void request(long n) {
+    if (n <= 0) {
+      requestError = new IllegalArgumentException("non-positive subscription request");
     }
     else {
-      return CompletableFuture.supplyAsync(this::completeQuery, getExecutor());
+      demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
     }
+    signalDrain();
   }
-
+  
+  void cancelSubscription() {
+    isCanceled = true;
+    signalDrain();
+  }
+  
   /**
-   * Return a CompletionStage that check for the demand exist or not. If there is
-   * a demand then return a CompletionStage that moves to do next stage i.e. moreRows.
-   * If there is no demand exist then it stays in incomplete stage and becomes complete
-   * when subscribe demands more rows, which trigger next stage i.e. moreRows.
-   * 
-   * @param x ignored
-   * @return the next Completion stage in the processing of the query.
+   * Make sure the drain loop runs after this call. If it is already
+   * scheduled or running it will loop again.
+   */
+  private void signalDrain() {
+    if (wip.getAndIncrement() == 0) {
+      getIoExecutor().execute(this::drain);
+    }
+  }
+  
+  /**
+   * The only code that signals the Subscriber. Unless there is a fetch task
+   * also the only code that reads the ResultSet after the query is executed.
    */
-  CompletionStage<T> demandExist(Object x) {
+  private void drain() {
+    int missed = 1;
+    long start = System.nanoTime();
+    while (true) {
+      try {
+        if (isStarted && !isTerminated) {
+          if (buffer == null ? drainOnce(start) : drainBuffer(start)) {
+            // time slice used up. Continue in a new task without decrementing wip
+            getIoExecutor().execute(this::drain);
+            return;
+          }
+        }
+      }
+      catch (Throwable t) {
+        if (buffer == null || isFetchDone) {
+          terminate(t);
+        }
+        else if (drainError == null) {
+          // the ResultSet can't be closed until the fetch task has stopped
+          drainError = t;
+          signalFetch();
+        }
+      }
+      missed = wip.addAndGet(-missed);
+      if (missed == 0) return;
+    }
+  }
+  
+  /**
+   * @return true if there is more work but the time slice is used up
+   */
+  private boolean drainOnce(long sliceStart) throws SQLException {
+    if (isCanceled) {
+      logger.log(Level.FINE, () -> "subscription canceled"); //DEBUG
+      rowsRemain = false;
+      prefetched.clear();
+      finish();
+      return false;
+    }
+    if (requestError != null) {
+      throw requestError;
+    }
     checkCanceled();
     
-    if(demand.get() == 0) {
-      request(0);
+    long start = System.nanoTime();
+    long requested = demand.get();
+    long emitted = 0L;
+    while (emitted < requested && !isCanceled && !isRowsCanceled()) {
+      Result.RowColumn row = prefetched.poll();
+      if (row != null) {
+        subscriber.onNext(row);
+      }
+      else if (rowsRemain && (rowsRemain = resultSet.next())) {
+        try {
+          subscriber.onNext(beginRow());
+        }
+        finally {
+          endRow();
+        }
+        rowCount++;
+      }
+      else {
+        break;
+      }
+      emitted++;
+      if ((emitted & 0x3F) == 0 && System.nanoTime() - sliceStart > timeSliceNanos) {
+        break;
+      }
+    }
+    if (emitted > 0 && requested != Long.MAX_VALUE) {
+      demand.addAndGet(-emitted);
+    }
+    if (isRowsCanceled()) {
+      // the last row was canceled, complete as though there were no more
+      rowsRemain = false;
+      prefetched.clear();
     }
     
-    return demandStage;
+    if (!isCanceled && demand.get() == 0L) prefetch();
+    fetchTime(start);
+    
+    if (!isCanceled && !rowsRemain && prefetched.isEmpty()) {
+      finish();
+      return false;
+    }
+    return !isCanceled && demand.get() > 0L 
+           && System.nanoTime() - sliceStart > timeSliceNanos;
   }
   
-  // Need synchronization because demandStage can be updated 
-  // simulateneously by moreRows() and subscriber.request() calls.
-  synchronized void request(long n) {
-    checkCanceled();
-
-    // do the right thing if n == 0      
-    if(demand.addAndGet(n) > 0) {
-      // Mark completion of demand stage.
-      demandStage.complete(null);
+  /**
+   * Emit rows from the buffer. Stopping, for whatever reason, waits for the 
+   * fetch task to stop first.
+   * 
+   * @return true if there is more work but the time slice is used up
+   */
+  private boolean drainBuffer(long start) throws Throwable {
+    if (isStopping()) {
+      buffer.clear();
+      if (!isFetchDone) {
+        signalFetch();
+        return false;
+      }
+      if (isCanceled || drainError == null && requestError == null) {
+        logger.log(Level.FINE, () -> "subscription or rows canceled"); //DEBUG
+        rowsRemain = false;
+        finish();
+        return false;
+      }
+      throw drainError != null ? drainError : requestError;
     }
-    else {
-      // New demand stage created, which will be complete when demand > 0
-      demandStage = new CompletableFuture();
+    
+    long requested = demand.get();
+    long emitted = 0L;
+    Result.RowColumn row;
+    while (emitted < requested && !isCanceled && !isRowsCanceled()) {
+      // the fetch task stops when the buffer is full, restart it before a 
+      // possibly slow onNext
+      boolean wasFull = buffer.isFull();
+      if ((row = buffer.poll()) == null) break;
+      if (wasFull && !isFetchDone) signalFetch();
+      subscriber.onNext(row);
+      emitted++;
+      if ((emitted & 0x3F) == 0 && System.nanoTime() - start > timeSliceNanos) {
+        break;
+      }
+    }
+    if (emitted > 0 && requested != Long.MAX_VALUE) {
+      demand.addAndGet(-emitted);
+    }
+    if (isCanceled) return false; // loop again and stop
+    if (isRowsCanceled()) {
+      // canceled by onNext, nothing else will signal
+      signalDrain();
+      return false;
+    }
+    if (emitted > 0 && !isFetchDone) signalFetch();
+    
+    if (isFetchDone && buffer.isEmpty()) {
+      if (fetchError != null) throw fetchError;
+      finish();
+      return false;
     }
+    return demand.get() > 0L && !buffer.isEmpty()
+           && System.nanoTime() - start > timeSliceNanos;
   }
   
-  void signalOnError(Throwable th) {
-    if(!cancelSubscription) {
-      subscriber.onError(th);
-      // Termination state, no more signal to subscriber.
-      cancelSubscription();
-    }
+  private boolean isStopping() {
+    return isCanceled || isRowsCanceled() 
+           || requestError != null || drainError != null;
   }
-
-  void signalOnComplete() {
-    if(!cancelSubscription) {
-      subscriber.onComplete();
-      // Termination state, no more signal to subscriber.
-      cancelSubscription();
+  
+  /**
+   * Make sure the fetch task runs after this call. If it is already 
+   * scheduled or running it will loop again.
+   */
+  private void signalFetch() {
+    if (fetchWip.getAndIncrement() == 0) {
+      getIoExecutor().execute(this::fetch);
     }
   }
   
-  void cancelSubscription() {
-    try {
-    checkCanceled();
-    }
-    catch(SqlException sqe) {
-      // Log the exception
-      logger.log(Level.FINE, () -> sqe.getMessage());
+  /**
+   * Copy rows from the ResultSet into the buffer until it is full. Only used 
+   * if there is a buffer, in which case this is the only code that reads 
+   * the ResultSet.
+   */
+  private void fetch() {
+    int missed = 1;
+    long start = System.nanoTime();
+    while (true) {
+      if (!isFetchDone) {
+        try {
+          if (fetchOnce(start)) {
+            getIoExecutor().execute(this::fetch);
+            return;
+          }
+        }
+        catch (Throwable t) {
+          fetchError = t;
+          isFetchDone = true;
+          signalDrain();
+        }
+      }
+      missed = fetchWip.addAndGet(-missed);
+      if (missed == 0) return;
     }
-    
-    cancelSubscription = true;
-    rowsRemain = false;
-    demandStage.complete(null);
   }
   
-  @Override
-  void executeQuery() {
-    executeJdbcQuery();
+  /**
+   * @return true if the buffer is not full but the time slice is used up
+   */
+  private boolean fetchOnce(long sliceStart) throws SQLException {
+    long start = System.nanoTime();
+    int blockSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+    int fetched = 0;
+    while (rowsRemain && !isStopping() && !buffer.isFull()) {
+      if (rowsRemain = resultSet.next()) {
+        buffer.offer(ResultImpl.newSnapshotRow(this));
+        rowCount++;
+        if (++fetched % blockSize == 0) {
+          // a round trip's worth of rows is ready
+          if (System.nanoTime() - sliceStart > timeSliceNanos) {
+            fetchTime(start);
+            signalDrain();
+            return true;
+          }
+          signalDrain();
+        }
+      }
+    }
+    fetchTime(start);
+    if (!rowsRemain || isStopping()) isFetchDone = true;
+    if (fetched > 0 || isFetchDone) signalDrain();
+    return false;
   }
   
   /**
-   * Process fetchSize rows. If the fetches are in sync then all the rows will
-   * be in memory after the first is fetched up through the last row processed.
-   * The subsequent row, the one after the last row processed should not be in
-   * memory and will require a database roundtrip to fetch. This is all assuming
-   * the rows are fetched fetchSize rows per roundtrip which may not be the case.
-   *
-   * @return true if more rows remain
-   * @throws SQLException
+   * Read rows ahead of demand up to the prefetch limit, at most one round 
+   * trip's worth each time.
    */
-   private Object handleFetchRows() {
-    try {
-      
-      checkCanceled();
-      
-      // Do not fetch more rows, if no demand is pending or subscription get cancel.
-      if(!cancelSubscription 
-              && demand.get() > 0) {
-        if(currentBatchFetchCount == fetchSize)
-          currentBatchFetchCount = 0;
-        for (; (demand.get() > 0) 
-                && (currentBatchFetchCount < fetchSize) 
-                && (rowsRemain = resultSet.next()); currentBatchFetchCount++) {
-          handleRow();
-          rowCount++;
-        }
+  private void prefetch() throws SQLException {
+    int blockSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+    int room = Math.min(prefetchLimit - prefetched.size(), blockSize);
+    for (int i = 0; i < room && rowsRemain; i++) {
+      if (rowsRemain = resultSet.next()) {
+        prefetched.add(ResultImpl.newSnapshotRow(this));
+        rowCount++;
       }
     }
-    catch (SQLException ex) {
-      signalOnError(ex);
-      throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
+  }
+  
+  /**
+   * Close the query, signal onComplete unless the subscription was canceled
+   * and complete this Operation with the value of result.
+   */
+  private void finish() {
+    T value = completeQuery();
+    isTerminated = true;
+    if (result == null) {
+      queryResult.complete(value);
+    }
+    else {
+      result.whenComplete((v, t) -> {
+        if (t == null) queryResult.complete(v);
+        else queryResult.completeExceptionally(t);
+      });
     }
-    return null;
   }
   
-  private void handleRow() throws SQLException {
-    checkCanceled();
-    try (ResultImpl.RowColumnJdbc row = ResultImpl.newRowColumn(this)) {
-      subscriber.onNext(row);
-      demand.decrementAndGet();
+  private void terminate(Throwable t) {
+    if (!isTerminated) {
+      isTerminated = true;
+      try {
+        JdbcClose();
+      }
+      catch (RuntimeException closeEx) {
+        t.addSuppressed(closeEx);
+      }
+      if (!isCanceled) subscriber.onError(t);
+    }
+    if (t instanceof SQLException) {
+      SQLException ex = (SQLException)t;
+      t = new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), sqlString, -1);
     }
+    if (queryResult != null) queryResult.completeExceptionally(t);
+  }
+  
+  @Override
+  void executeQuery() {
+    executeJdbcQuery();
   }
   
   @Override
   T completeQuery() {
-    try {
-      completeJdbcQuery();
-      signalOnComplete();
-      return (T) result; 
-    }
-    catch (SqlException ex) {
-      signalOnError(ex);
-      throw ex;
-    }
+    completeJdbcQuery();
+    if (!isCanceled) subscriber.onComplete();
+    return null;
   }
   
 
@@ -257,7 +488,7 @@ class RowPublisherOperationJdbc<T>  extends RowBaseOperationImpl<T>
     if (s == null) throw new NullPointerException("TODO");
     
     subscriber = s;
-    subscriber.onSubscribe(new RowColumnSubscription(this));
+    subscriber.onSubscribe(new RowColumnSubscription());
     this.result = result;
     
     return this;
@@ -293,34 +524,63 @@ class RowPublisherOperationJdbc<T>  extends RowBaseOperationImpl<T>
     return (RowPublisherOperationJdbc<T>)super.set(id, value);
   }
 
-  private class RowColumnSubscription implements Subscription {
-    private final RowPublisherOperationJdbc publisher;
-    private boolean isCancelled;
+  /**
+   * A bounded, single producer, single consumer ring buffer of rows. The 
+   * fetch task is the only producer and the drain loop the only consumer.
+   */
+  private static final class RowBuffer {
     
+    private final AtomicReferenceArray<Result.RowColumn> slots;
+    
+    /** the next slot to poll. Only written by the consumer */
+    private final AtomicLong head = new AtomicLong(0L);
+    
+    /** the next slot to fill. Only written by the producer */
+    private final AtomicLong tail = new AtomicLong(0L);
+    
+    RowBuffer(int capacity) {
+      slots = new AtomicReferenceArray<>(capacity);
+    }
     
-    public RowColumnSubscription(RowPublisherOperationJdbc publisher) {
-      this.publisher = publisher;
-      isCancelled = false;
+    boolean isFull() {
+      return tail.get() - head.get() >= slots.length();
     }
     
+    boolean isEmpty() {
+      return head.get() == tail.get();
+    }
+    
+    void offer(Result.RowColumn row) {
+      long t = tail.get();
+      slots.lazySet((int)(t % slots.length()), row);
+      tail.lazySet(t + 1);
+    }
+    
+    Result.RowColumn poll() {
+      long h = head.get();
+      if (h == tail.get()) return null;
+      int index = (int)(h % slots.length());
+      Result.RowColumn row = slots.get(index);
+      slots.lazySet(index, null);
+      head.lazySet(h + 1);
+      return row;
+    }
+    
+    void clear() {
+      while (poll() != null);
+    }
+  }
+  
+  private class RowColumnSubscription implements Subscription {
+    
     @Override
     public void request(long n) {
-      if (!isCancelled) {
-        if (n <= 0) {
-          signalOnError(new IllegalArgumentException("non-positive subscription request"));
-        }
-        else {
-          publisher.request(n);
-        }
-      }
+      RowPublisherOperationJdbc.this.request(n);
     }
     
     @Override
     public void cancel() {
-      if (!isCancelled) {
-        isCancelled = true;
-        publisher.cancelSubscription();
-      }
+      cancelSubscription();
     }
   }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+/**
+ * A java.sql.Connection leased by a Session together with the statements
+ * cached on it. Every Session has a primary connection which is leased by its
+ * attach Operation. Members of a parallel, read only OperationGroup may also
+ * execute on additional connections leased for the duration of the group, see
+ * {@link OperationGroupJdbc}.
+ *
+ * Operations get their statements from the connection returned by
+ * {@link OperationJdbc#connection()} rather than directly from the Session.
+ */
+class SessionConnectionJdbc {
+
+  static SessionConnectionJdbc newSessionConnection(SessionJdbc session,
+                                     ConnectionPoolJdbc.PooledConnection conn) {
+    return new SessionConnectionJdbc(session, conn);
+  }
+
+  final ConnectionPoolJdbc.PooledConnection pooledConnection;
+  final java.sql.Connection jdbcConnection;
+
+  private final SessionJdbc session;
+  private final StatementCacheJdbc statementCache;
+
+  private SessionConnectionJdbc(SessionJdbc session,
+                                ConnectionPoolJdbc.PooledConnection conn) {
+    this.session = session;
+    pooledConnection = conn;
+    jdbcConnection = conn.connection;
+    statementCache = StatementCacheJdbc.newStatementCache(
+      session.sessionPropertyValue(SessionPropertiesJdbc.STATEMENT_CACHE_SIZE),
+      this::discardStatement);
+  }
+
+  PreparedStatement prepareStatement(String sqlString) throws SQLException {
+    PreparedStatement stmt = statementCache.borrow(sqlString, false);
+    prepared(sqlString, stmt != null);
+    if (stmt != null) return stmt;
+    session.logger.log(Level.FINE, () -> "Session.prepareStatement(\"" + sqlString + "\")"); //DEBUG
+    return statementCache.borrowed(sqlString, false,
+      pooledConnection.track(jdbcConnection.prepareStatement(sqlString)));
+  }
+
+  CallableStatement prepareCall(String sqlString) throws SQLException {
+    CallableStatement stmt = (CallableStatement)statementCache.borrow(sqlString, true);
+    prepared(sqlString, stmt != null);
+    if (stmt != null) return stmt;
+    session.logger.log(Level.FINE, () -> "Session.prepareCall(\"" + sqlString + "\")"); //DEBUG
+    return statementCache.borrowed(sqlString, true,
+      pooledConnection.track(jdbcConnection.prepareCall(sqlString)));
+  }
+
+  PreparedStatement prepareStatement(String sqlString, String[] auotKeyColNames) throws SQLException {
+    session.logger.log(Level.FINE, () -> "Session.prepareStatement(\"" + sqlString + "\")"); //DEBUG
+    return pooledConnection.track(jdbcConnection.prepareStatement(sqlString, auotKeyColNames));
+  }
+
+  /**
+   * Release a statement created by one of the prepare methods. The statement
+   * is kept in the statement cache if it came from the cache, otherwise it is
+   * closed. Any statement that is not released by this method is closed when
+   * the connection is reset.
+   *
+   * @param stmt
+   * @throws SQLException
+   */
+  void releaseStatement(PreparedStatement stmt) throws SQLException {
+    if (!statementCache.giveBack(stmt)) {
+      pooledConnection.untrack(stmt);
+      stmt.close();
+    }
+  }
+
+  StatementCacheJdbc statementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Report a statement cache hit or miss to the DataSource's metrics.
+   */
+  private void prepared(String sqlString, boolean isCached) {
+    OperationMetrics metrics = session.metrics();
+    if (metrics != null) metrics.prepared(sqlString, isCached);
+  }
+
+  /**
+   * Close all cached statements. Called before the connection is given back
+   * to the DataSource.
+   */
+  void clearStatements() {
+    statementCache.clear();
+    session.logger.log(Level.FINE, () -> statementCache.toString()); //DEBUG
+  }
+
+  /**
+   * Close a statement evicted from the statement cache.
+   */
+  private void discardStatement(PreparedStatement stmt) {
+    try {
+      pooledConnection.untrack(stmt);
+      stmt.close();
+    }
+    catch (SQLException ex) {
+      session.logger.log(Level.FINE, () -> "close failed: " + ex.getMessage()); //DEBUG
+    }
+  }
+}
@@ -15,9 +15,6 @@
  */
 package com.oracle.adbaoverjdbc;
 
-import java.sql.CallableStatement;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,12 +22,14 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
 import java.util.function.LongConsumer;
 import java.util.logging.Level;
 
 import jdk.incubator.sql2.AdbaSessionProperty;
+import jdk.incubator.sql2.AdbaSessionProperty.Caching;
 import jdk.incubator.sql2.Operation;
 import jdk.incubator.sql2.OperationGroup;
 import jdk.incubator.sql2.Session;
@@ -69,10 +68,17 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
   private final DataSourceJdbc dataSource;
   private final Map<SessionProperty, Object> properties;
 
+  private SessionConnectionJdbc primaryConnection;
+  private ConnectionPoolJdbc.PooledConnection pooledConnection;
   private java.sql.Connection jdbcConnection;
 
   private final Executor executor;
+  private final Executor ioExecutor;
+  private final Caching caching;
   private CompletableFuture<Object> sessionCF;
+  
+  /** the SQL of the writes of the current transaction. Only if results are cached */
+  private final Set<String> uncommittedWrites = ConcurrentHashMap.newKeySet();
 
   // CONSTRUCTORS
   private SessionJdbc(DataSourceJdbc ds,
@@ -82,7 +88,17 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
     dataSource = ds;
     this.properties = properties;
     SessionProperty execProp = AdbaSessionProperty.EXECUTOR;
-    executor = (Executor) properties.getOrDefault(execProp, execProp.defaultValue());
+    if (sessionPropertyValue(SessionPropertiesJdbc.EXECUTOR_MODE) 
+          == SessionPropertiesJdbc.ExecutorMode.VIRTUAL_THREADS) {
+      executor = ExecutorsJdbc.virtualThreadExecutor();
+      ioExecutor = executor;
+    }
+    else {
+      executor = (Executor) properties.getOrDefault(execProp, execProp.defaultValue());
+      ioExecutor = ds.ioExecutor() == null ? executor : ds.ioExecutor();
+    }
+    caching = sessionPropertyValue(AdbaSessionProperty.CACHING);
+    if (ds.tracer() != null) traceId = newTraceId();
   }
 
   // PUBLIC
@@ -93,9 +109,7 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
       throw new IllegalStateException(
         "Session lifecycle is: " + getSessionLifecycle());
     }
-    return addMember(
-      SimpleOperationImpl.<Void>newOperation(
-        this, this, this::jdbcConnect));
+    return addMember(new AttachOperation());
   }
 
   @Override
@@ -197,6 +211,26 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
   }
   
   // INTERNAL
+  
+  /**
+   * Close this Session unless it is already closing. Used by 
+   * {@link DataSourceJdbc#close()}, which must not shut down the I/O pool 
+   * before the Session has ended its transaction and given back its 
+   * connection.
+   * 
+   * @return a stage completed, normally, when this Session is done
+   */
+  CompletionStage<Void> closeAsync() {
+    try {
+      if (!isImmutable()) close();
+    }
+    catch (IllegalStateException ex) {
+      // closed concurrently by the user
+    }
+    if (sessionCF == null) return CompletableFuture.completedFuture(null);
+    return sessionCF.handle((r, t) -> null);
+  }
+  
   protected SessionJdbc setLifecycle(Lifecycle next) {
     Lifecycle previous = sessionLifecycle;
     sessionLifecycle = next;
@@ -216,22 +250,115 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
       throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), null, -1);
     }
     finally {
+      detachConnection(false);
       dataSource.deregisterSession(this);
+      endedTransaction();
     }
     return this;
   }
+  
+  /**
+   * Give the connection back to the DataSource.
+   * 
+   * @param isReusable false if the connection must not be leased again
+   */
+  private void detachConnection(boolean isReusable) {
+    SessionConnectionJdbc conn;
+    synchronized (this) {
+      conn = primaryConnection;
+      primaryConnection = null;
+      pooledConnection = null;
+      jdbcConnection = null;
+    }
+    if (conn != null) {
+      conn.clearStatements();
+      dataSource.releaseConnection(conn.pooledConnection, isReusable);
+    }
+  }
 
   @Override
   protected Executor getExecutor() {
     return executor;
   }
 
+  @Override
+  protected Executor getIoExecutor() {
+    return ioExecutor;
+  }
+  
+  /**
+   * Make sure continuations of a stage returned to user code run on the 
+   * Session's Executor rather than on the thread that made the last 
+   * blocking call.
+   * 
+   * @param stage completed by a blocking call
+   * @return a stage completed with the same result
+   */
+  <V> CompletionStage<V> handOff(CompletionStage<V> stage) {
+    if (ioExecutor == executor) return stage;
+    return stage.whenCompleteAsync((r, t) -> {}, executor);
+  }
+  
+  OperationMetrics metrics() {
+    return dataSource.metrics();
+  }
+  
+  OperationTraceListener tracer() {
+    return dataSource.tracer();
+  }
+  
+  QueryResultCache resultCache() {
+    return dataSource.resultCache();
+  }
+  
+  /**
+   * Record that a statement that may write was executed in the current 
+   * transaction. If it may write a table a cached query reads, this Session 
+   * neither reads nor fills the DataSource's {@link QueryResultCache} until
+   * the transaction ends, as the cached rows don't show its writes and its 
+   * rows show writes that may be rolled back.
+   * 
+   * @param sql the SQL text of the statement
+   */
+  void wrote(String sql) {
+    QueryResultCache cache = resultCache();
+    if (cache != null && cache.written(sql)) uncommittedWrites.add(sql);
+  }
+  
+  /**
+   * @return true if a statement that may write a cached table was executed
+   * in the current transaction
+   */
+  boolean hasUncommittedWrites() {
+    return !uncommittedWrites.isEmpty();
+  }
+  
+  /**
+   * Called when the transaction ends by commit, rollback or abort. Removes 
+   * the rows other Sessions cached while it was open, which may include 
+   * its writes if they committed, or exclude them if they didn't.
+   */
+  private void endedTransaction() {
+    QueryResultCache cache = resultCache();
+    if (cache == null) return;
+    for (String sql : uncommittedWrites) {
+      cache.written(sql);
+      uncommittedWrites.remove(sql);
+    }
+  }
+  
+  TimeoutSchedulerJdbc timeoutScheduler() {
+    return dataSource.timeoutScheduler();
+  }
+
   @Override
   Submission<Object> submit(OperationJdbc<Object> op) {
     if (op == this) {
       // submitting the Session OperationGroup
-      sessionCF = (CompletableFuture<Object>)attachCompletionHandler(op.follows(ROOT, getExecutor()));
-      return SubmissionJdbc.submit(this::cancel, sessionCF);
+      sessionCF = (CompletableFuture<Object>)attachCompletionHandler(op.follows(ROOT, getIoExecutor()));
+      dataSource.registerSession(this);
+      sessionCF.whenComplete((r, t) -> dataSource.deregisterSession(this));
+      return SubmissionJdbc.submit(this::cancel, handOff(sessionCF));
     }
     else {
       return super.submit(op);
@@ -250,30 +377,96 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
   
   // JDBC operations. These are all blocking
   
+  private CompletionStage<ConnectionPoolJdbc.PooledConnection> jdbcLease(
+    OperationJdbc<Void> op) {
+    op.checkCanceled();
+    ConnectionPoolJdbc.ConnectionKey key = connectionKey();
+    group.logger.log(Level.FINE, () -> "DataSource.leaseConnection(\"" + key.url + "\")");
+    return dataSource.leaseConnection(key, caching, getIoExecutor());
+  }
+  
+  /**
+   * Lease an additional connection for the members of a parallel, read only
+   * OperationGroup. Unlike attach this never waits for some other Session to
+   * release a connection. The connection is set read only.
+   * 
+   * @return a CompletionStage that is completed with the connection, or with
+   * null if the DataSource has no connection to spare
+   */
+  CompletionStage<SessionConnectionJdbc> leaseAdditionalConnection() {
+    ConnectionPoolJdbc.ConnectionKey key = connectionKey();
+    group.logger.log(Level.FINE, () -> "DataSource.tryLeaseConnection(\"" + key.url + "\")"); //DEBUG
+    CompletionStage<ConnectionPoolJdbc.PooledConnection> lease = 
+      dataSource.tryLeaseConnection(key, getIoExecutor());
+    if (lease == null) return CompletableFuture.completedFuture(null);
+    return lease
+      .thenApplyAsync(conn -> {
+        try {
+          if (conn.isDirty()) conn.reset();
+          conn.connection.setReadOnly(true);
+          return SessionConnectionJdbc.newSessionConnection(this, conn);
+        }
+        catch (SQLException ex) {
+          dataSource.releaseConnection(conn, false);
+          throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), null, -1);
+        }
+      }, getIoExecutor())
+      .exceptionally(t -> {
+        group.logger.log(Level.FINE, () -> "additional connection failed: " + t.getMessage()); //DEBUG
+        return null;
+      });
+  }
+  
+  /**
+   * Give back a connection returned by {@link #leaseAdditionalConnection()}.
+   * The transaction is rolled back and the connection is reset.
+   * 
+   * @param conn 
+   */
+  void releaseAdditionalConnection(SessionConnectionJdbc conn) {
+    boolean isReusable = true;
+    try {
+      conn.clearStatements();
+      conn.jdbcConnection.rollback();
+      conn.pooledConnection.reset();
+    }
+    catch (SQLException ex) {
+      isReusable = false;
+    }
+    dataSource.releaseConnection(conn.pooledConnection, isReusable);
+  }
+  
+  /**
+   * @return identifies the physical connection this Session requires
+   */
+  private ConnectionPoolJdbc.ConnectionKey connectionKey() {
+    Properties info = (Properties)properties.get(ConnectionPropertiesJdbc.JDBC_CONNECTION_PROPERTIES);
+    info = (Properties)(info == null ? ConnectionPropertiesJdbc.JDBC_CONNECTION_PROPERTIES.defaultValue() 
+                                     : info.clone());
+    
+    Properties sensitiveInfo = (Properties)properties.get(
+      ConnectionPropertiesJdbc.SENSITIVE_JDBC_CONNECTION_PROPERTIES);
+    if (sensitiveInfo != null)
+      info.putAll(sensitiveInfo);
+    
+    String user = (String) properties.get(AdbaSessionProperty.USER);
+    if (user != null)
+      info.setProperty("user", user);
+    
+    String password = (String) properties.get(AdbaSessionProperty.PASSWORD);
+    if (password != null)
+      info.setProperty("password", password);
+    
+    String url = (String) properties.get(AdbaSessionProperty.URL);
+    return new ConnectionPoolJdbc.ConnectionKey(url, info);
+  }
+  
   private Void jdbcConnect(OperationJdbc<Void> op) {
     try {
-      Properties info = (Properties)properties.get(ConnectionPropertiesJdbc.JDBC_CONNECTION_PROPERTIES);
-      info = (Properties)(info == null ? ConnectionPropertiesJdbc.JDBC_CONNECTION_PROPERTIES.defaultValue() 
-                                       : info.clone());
-      
-      Properties sensitiveInfo = (Properties)properties.get(
-        ConnectionPropertiesJdbc.SENSITIVE_JDBC_CONNECTION_PROPERTIES);
-      if (sensitiveInfo != null)
-        info.putAll(sensitiveInfo);
-      
-      String user = (String) properties.get(AdbaSessionProperty.USER);
-      if (user != null)
-        info.setProperty("user", user);
-      
-      String password = (String) properties.get(AdbaSessionProperty.PASSWORD);
-      if (password != null)
-        info.setProperty("password", password);
-      
-      String url = (String) properties.get(AdbaSessionProperty.URL);
-      Properties p = info;
-      group.logger.log(Level.FINE, () -> "DriverManager.getSession(\"" + url + "\", " + p +")");
-      jdbcConnection = DriverManager.getConnection(url, info);
-      jdbcConnection.setAutoCommit(false);
+      if (caching == Caching.AS_NEW && pooledConnection.isDirty()) {
+        group.logger.log(Level.FINE, () -> "reset"); //DEBUG
+        pooledConnection.reset();
+      }
       
       if (sessionLifecycle == Lifecycle.ABORTING)
         closeImmediate();
@@ -283,6 +476,7 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
       return null;
     }
     catch (SQLException ex) {
+      detachConnection(false);
       setLifecycle(Session.Lifecycle.CLOSED);
       throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), null, -1);
     }
@@ -318,9 +512,11 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
   
   
   protected <T> T jdbcExecute(OperationJdbc<T> op, String sql) {
-    try (java.sql.Statement stmt = jdbcConnection.createStatement()) {
-      int timeoutSeconds = (int) (op.getTimeoutMillis() / 1000L);
-      if (timeoutSeconds < 0) stmt.setQueryTimeout(timeoutSeconds);
+    try (java.sql.Statement stmt = 
+           op.connection().jdbcConnection.createStatement()) {
+      // round up so a sub-second timeout isn't 0, ie no timeout
+      int timeoutSeconds = (int) ((op.getTimeoutMillis() + 999L) / 1000L);
+      if (timeoutSeconds > 0) stmt.setQueryTimeout(timeoutSeconds);
       group.logger.log(Level.FINE, () -> "Statement.execute(\"" + sql + "\")"); //DEBUG
       stmt.execute(sql);
     }
@@ -334,8 +530,26 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
     try {
       setLifecycle(sessionLifecycle.close());
       if (jdbcConnection != null) {
+        // the connection outlives the Session so end the transaction here
+        if (this.<Boolean>sessionPropertyValue(AdbaSessionProperty.COMMIT_ON_CLOSE)) {
+          group.logger.log(Level.FINE, () -> "commit"); //DEBUG
+          jdbcConnection.commit();
+        }
+        else {
+          group.logger.log(Level.FINE, () -> "rollback"); //DEBUG
+          jdbcConnection.rollback();
+        }
+        // CACHED leaves the state for the next Session. Otherwise reset now
+        // so an AS_NEW Session can use the connection as is.
+        if (caching == Caching.CACHED) {
+          pooledConnection.markDirty();
+        }
+        else {
+          group.logger.log(Level.FINE, () -> "reset"); //DEBUG
+          pooledConnection.reset();
+        }
         group.logger.log(Level.FINE, () -> "Session.close"); //DEBUG
-        jdbcConnection.close();
+        detachConnection(true);
       }
     }
     catch (SQLException ex) {
@@ -348,21 +562,15 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
     return null;
   }
 
-  PreparedStatement prepareStatement(String sqlString) throws SQLException {
-    logger.log(Level.FINE, () -> "Session.prepareStatement(\"" + sqlString + "\")"); //DEBUG
-    return jdbcConnection.prepareStatement(sqlString);
-  }
-  
-  CallableStatement prepareCall(String sqlString) throws SQLException {
-      logger.log(Level.FINE, () -> "Session.prepareCall(\"" + sqlString + "\")"); //DEBUG
-      return jdbcConnection.prepareCall(sqlString);
+  /**
+   * @return the connection leased by the attach Operation or null if the
+   * Session is not attached
+   */
+  @Override
+  SessionConnectionJdbc memberConnection(OperationJdbc<?> member) {
+    return primaryConnection;
   }
 
-  PreparedStatement prepareStatement(String sqlString, String[] auotKeyColNames) throws SQLException {
-    logger.log(Level.FINE, () -> "Session.prepareStatement(\"" + sqlString + "\")"); //DEBUG
-    return jdbcConnection.prepareStatement(sqlString, auotKeyColNames);
-  }
-  
   TransactionOutcome jdbcEndTransaction(SimpleOperationImpl<TransactionOutcome> op, TransactionCompletionJdbc trans) {
     try {
       if (trans.endWithCommit(this)) {
@@ -379,6 +587,9 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
     catch (SQLException ex) {
       throw new SqlException(ex.getMessage(), ex, ex.getSQLState(), ex.getErrorCode(), null, -1);
     }
+    finally {
+      endedTransaction();
+    }
   }
 
   /**
@@ -395,4 +606,35 @@ class SessionJdbc extends OperationGroupJdbc<Object, Object> implements Session
   protected Object handleResult(Object result) {
     return result;
   }
+
+  /**
+   * Attaching a Session leases a connection from the DataSource. If none is
+   * available the lease waits without holding an Executor thread until some
+   * other Session releases one.
+   */
+  private class AttachOperation extends SimpleOperationImpl<Void> {
+    
+    AttachOperation() {
+      super(SessionJdbc.this, SessionJdbc.this, SessionJdbc.this::jdbcConnect);
+    }
+    
+    @Override
+    CompletionStage<Void> follows(CompletionStage<?> tail, Executor executor) {
+      return tail
+        .thenCompose(x -> jdbcLease(this)
+                            .whenComplete((conn, ex) -> {
+                              if (ex != null) 
+                                setLifecycle(Session.Lifecycle.CLOSED);
+                            }))
+        .thenApplyAsync(conn -> {
+          synchronized (SessionJdbc.this) {
+            primaryConnection = 
+              SessionConnectionJdbc.newSessionConnection(SessionJdbc.this, conn);
+            pooledConnection = conn;
+            jdbcConnection = conn.connection;
+          }
+          return get();
+        }, executor);
+    }
+  }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import jdk.incubator.sql2.SessionProperty;
+
+/**
+ * AoJ specific SessionProperties. These configure how a {@link SessionJdbc}
+ * uses its java.sql.Connection.
+ */
+public enum SessionPropertiesJdbc implements SessionProperty {
+
+  /**
+   * The maximum number of PreparedStatements and CallableStatements that a
+   * Session keeps open for reuse. Statements are cached by SQL text and the
+   * least recently used statement is closed when the cache is full. A value
+   * of 0 disables the cache. The default is 20.
+   */
+  STATEMENT_CACHE_SIZE(Integer.class,
+          v -> v instanceof Integer && (int) v >= 0,
+          20,
+          false),
+
+  /**
+   * The maximum number of java.sql.Connections the members of a parallel
+   * OperationGroup are spread across. Only applies if the Session is
+   * {@link jdk.incubator.sql2.AdbaSessionProperty#READ_ONLY}. Connections in
+   * addition to the Session's own are leased from the DataSource only if
+   * they are available without waiting. The default is 1, ie all members
+   * share the Session's connection.
+   */
+  PARALLEL_CONNECTIONS(Integer.class,
+          v -> v instanceof Integer && (int) v >= 1,
+          1,
+          false),
+
+  /**
+   * The longest time a row Operation processes rows before giving up its
+   * Executor thread. Rows are processed in blocks of fetchSize rows and at
+   * least one block is processed each time, so a zero Duration gives up the
+   * thread after every block. The default is 10 milliseconds.
+   */
+  ROW_DRAIN_TIME_SLICE(Duration.class,
+          v -> v instanceof Duration && !((Duration) v).isNegative(),
+          Duration.ofMillis(10),
+          false),
+
+  /**
+   * The maximum number of rows a row publisher Operation reads from the
+   * ResultSet ahead of the Subscriber's demand. Rows read ahead are copied
+   * so they can be delivered in bulk when demand arrives. A value of 0
+   * reads a row only when it has been requested. The default is 0.
+   */
+  ROW_PUBLISHER_PREFETCH(Integer.class,
+          v -> v instanceof Integer && (int) v >= 0,
+          0,
+          false),
+
+  /**
+   * The number of rows a row publisher Operation buffers between fetching
+   * them from the ResultSet and delivering them to the Subscriber. If
+   * greater than 0 rows are fetched by a separate Executor task, independent
+   * of the Subscriber's demand, until the buffer is full, and
+   * {@link #ROW_PUBLISHER_PREFETCH} is ignored. A value of 0 fetches and
+   * delivers rows in the same task. The default is 0.
+   */
+  ROW_PUBLISHER_BUFFER(Integer.class,
+          v -> v instanceof Integer && (int) v >= 0,
+          0,
+          false),
+
+  /**
+   * The maximum number of rows an ArrayRowCountOperation adds to one JDBC
+   * batch. Larger inputs are executed as several batches so the driver only
+   * holds one chunk of rows at a time. A value of 0 executes all rows in a
+   * single batch. The default is 0.
+   */
+  ARRAY_COUNT_CHUNK_SIZE(Integer.class,
+          v -> v instanceof Integer && (int) v >= 0,
+          0,
+          false),
+
+  /**
+   * If true an ArrayRowCountOperation that executes more than one chunk adds
+   * the next chunk to a second statement while the previous chunk executes.
+   * Only useful if the JDBC driver allows a statement to be bound while
+   * another statement on the same connection is executing. The default is
+   * false.
+   */
+  ARRAY_COUNT_PIPELINE(Boolean.class,
+          v -> v instanceof Boolean,
+          false,
+          false),
+
+  /**
+   * If true a run of adjacent row count Operations with the same SQL, 
+   * submitted to a sequential OperationGroup or the Session, is executed as 
+   * one JDBC batch. Each Operation's Submission still completes with its own 
+   * count. An Operation joins the run only if its parameter values are all
+   * set when it is submitted, it doesn't return generated keys and the run 
+   * has not started executing, so a run includes the Operations submitted 
+   * while the previous member of the group executes. If the batch fails the
+   * Operations the driver did not report a count for fail with the same 
+   * error. The default is false.
+   */
+  COALESCE_COUNT_OPERATIONS(Boolean.class,
+          v -> v instanceof Boolean,
+          false,
+          false),
+
+  /**
+   * Selects the Executor that runs a Session's Operations, including every 
+   * blocking JDBC call. The default, {@link ExecutorMode#PROPERTY}, uses
+   * {@link jdk.incubator.sql2.AdbaSessionProperty#EXECUTOR}. 
+   * {@link ExecutorMode#VIRTUAL_THREADS} runs each step on a new virtual
+   * thread and ignores EXECUTOR. Building a Session with VIRTUAL_THREADS 
+   * throws UnsupportedOperationException if the JVM is older than Java 21.
+   */
+  EXECUTOR_MODE(ExecutorMode.class,
+          v -> v instanceof ExecutorMode,
+          ExecutorMode.PROPERTY,
+          false);
+
+  /**
+   * The values of {@link #EXECUTOR_MODE}.
+   */
+  public static enum ExecutorMode {
+    /** use the Executor set by {@link jdk.incubator.sql2.AdbaSessionProperty#EXECUTOR} */
+    PROPERTY,
+    /** run each step in a new virtual thread */
+    VIRTUAL_THREADS
+  }
+
+  private final Class<?> range;
+  private final Function<Object, Boolean> validator;
+  private final Object defaultValue;
+  private final boolean isSensitive;
+
+  private SessionPropertiesJdbc(Class<?> range,
+          Function<Object, Boolean> validator,
+          Object value,
+          boolean isSensitive) {
+    this.range = range;
+    this.validator = validator;
+    this.defaultValue = value;
+    this.isSensitive = isSensitive;
+  }
+
+  @Override
+  public Class<?> range() {
+    return range;
+  }
+
+  @Override
+  public boolean validate(Object value) {
+    return validator.apply(value);
+  }
+
+  @Override
+  public Object defaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  public boolean isSensitive() {
+    return isSensitive;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A least recently used cache of PreparedStatements and CallableStatements
+ * keyed by SQL text. A statement is removed from the cache while it is
+ * borrowed by an Operation so two Operations with the same SQL executing at
+ * the same time each get their own statement. A statement that is given back
+ * has its parameters and warnings cleared. When the cache is full the least
+ * recently used statement is passed to the discard action.
+ *
+ * The cache does not create statements. A miss returns null and the caller
+ * prepares a new statement which it registers with {@link #borrowed}.
+ */
+class StatementCacheJdbc {
+
+  static StatementCacheJdbc newStatementCache(int maxSize,
+                                              Consumer<PreparedStatement> discard) {
+    return new StatementCacheJdbc(maxSize, discard);
+  }
+
+  private final int maxSize;
+  private final Consumer<PreparedStatement> discard;
+
+  // internal state. All guarded by this
+  private final LinkedHashMap<Key, Entry> idle;
+  private final Map<PreparedStatement, Entry> borrowed = new IdentityHashMap<>();
+  private long hits = 0L;
+  private long misses = 0L;
+
+  private StatementCacheJdbc(int maxSize, Consumer<PreparedStatement> discard) {
+    this.maxSize = maxSize;
+    this.discard = discard;
+    idle = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * @param sql the SQL text
+   * @param isCall true for a CallableStatement
+   * @return a cached statement or null if there is none
+   */
+  synchronized PreparedStatement borrow(String sql, boolean isCall) {
+    Entry e = idle.remove(new Key(sql, isCall));
+    if (e == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    borrowed.put(e.statement, e);
+    return e.statement;
+  }
+
+  /**
+   * Register a newly prepared statement so that it is cached when it is
+   * given back.
+   *
+   * @param sql the SQL text used to prepare stmt
+   * @param isCall true if stmt is a CallableStatement
+   * @param stmt a newly prepared statement
+   * @return stmt
+   * @throws SQLException
+   */
+  <S extends PreparedStatement> S borrowed(String sql, boolean isCall, S stmt)
+    throws SQLException {
+    Entry e = new Entry(new Key(sql, isCall), stmt, stmt.getFetchSize());
+    synchronized (this) {
+      borrowed.put(stmt, e);
+    }
+    return stmt;
+  }
+
+  /**
+   * Return a statement to the cache.
+   *
+   * @param stmt a statement
+   * @return false if stmt was not borrowed from this cache, in which case the
+   * caller is responsible for closing it. A statement that can't be reset is
+   * discarded rather than cached
+   * @throws SQLException
+   */
+  boolean giveBack(PreparedStatement stmt) throws SQLException {
+    Entry e;
+    synchronized (this) {
+      e = borrowed.remove(stmt);
+    }
+    if (e == null) return false;
+
+    try {
+      stmt.clearParameters();
+      stmt.clearWarnings();
+      if (stmt.getFetchSize() != e.fetchSize) stmt.setFetchSize(e.fetchSize);
+    }
+    catch (SQLException ex) {
+      // a statement that can't be reset is not reused
+      discard.accept(stmt);
+      return true;
+    }
+
+    List<PreparedStatement> discarded = new ArrayList<>(2);
+    synchronized (this) {
+      Entry displaced = idle.put(e.key, e);
+      if (displaced != null) discarded.add(displaced.statement);
+      if (idle.size() > maxSize) {
+        Map.Entry<Key, Entry> eldest = idle.entrySet().iterator().next();
+        idle.remove(eldest.getKey());
+        discarded.add(eldest.getValue().statement);
+      }
+    }
+    discarded.forEach(discard);
+    return true;
+  }
+
+  /**
+   * Discard all cached statements. Statements that are currently borrowed are
+   * forgotten and will not be cached when given back.
+   */
+  void clear() {
+    List<PreparedStatement> discarded;
+    synchronized (this) {
+      discarded = new ArrayList<>(idle.size());
+      idle.values().forEach(e -> discarded.add(e.statement));
+      idle.clear();
+      borrowed.clear();
+    }
+    discarded.forEach(discard);
+  }
+
+  synchronized long hits() {
+    return hits;
+  }
+
+  synchronized long misses() {
+    return misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "StatementCache[size=" + idle.size() + ", hits=" + hits
+           + ", misses=" + misses + "]";
+  }
+
+  private static final class Key {
+
+    final String sql;
+    final boolean isCall;
+
+    Key(String sql, boolean isCall) {
+      this.sql = sql;
+      this.isCall = isCall;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) return false;
+      Key k = (Key)other;
+      return isCall == k.isCall && sql.equals(k.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return isCall ? ~sql.hashCode() : sql.hashCode();
+    }
+  }
+
+  private static final class Entry {
+
+    final Key key;
+    final PreparedStatement statement;
+
+    /** the fetch size the statement was prepared with */
+    final int fetchSize;
+
+    Entry(Key key, PreparedStatement statement, int fetchSize) {
+      this.key = key;
+      this.statement = statement;
+      this.fetchSize = fetchSize;
+    }
+  }
+}
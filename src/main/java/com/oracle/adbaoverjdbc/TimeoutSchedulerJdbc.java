@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel that runs an action when a timeout expires. One 
+ * scheduler is shared by all Sessions of a DataSource. Its thread is started
+ * by the first call to {@link #schedule} and sleeps while no timeout is
+ * pending.
+ * 
+ * The wheel has {@link #WHEEL_SIZE} buckets of {@link #TICK_NANOS} each. A 
+ * timeout is put in the bucket of the tick it expires in and is checked each
+ * time the wheel passes that bucket, so scheduling and canceling are O(1) 
+ * however many timeouts are pending. A canceled timeout is only flagged and
+ * is dropped the next time its bucket is checked.
+ * 
+ * An expired action runs on the Executor it was scheduled with, so that an
+ * action that blocks, eg in Statement.cancel, doesn't delay other timeouts
+ * and never runs on a thread the caller didn't choose.
+ */
+class TimeoutSchedulerJdbc {
+  
+  static TimeoutSchedulerJdbc newTimeoutScheduler() {
+    return new TimeoutSchedulerJdbc();
+  }
+  
+  /** the resolution of the wheel */
+  static final long TICK_NANOS = 1_000_000L;
+  
+  /** the number of buckets. Must be a power of 2 */
+  private static final int WHEEL_SIZE = 512;
+  private static final int MASK = WHEEL_SIZE - 1;
+  
+  /** newly scheduled timeouts, not yet in a bucket */
+  private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+  private final long startNanos = System.nanoTime();
+  private volatile boolean isShutdown = false;
+  
+  // guarded by this
+  private Thread worker = null;
+  
+  // accessed only by the worker thread
+  private final List<Queue<Timeout>> wheel = new ArrayList<>(WHEEL_SIZE);
+  private long tick = 0L;
+  private int scheduled = 0;
+  
+  private TimeoutSchedulerJdbc() {
+    for (int i = 0; i < WHEEL_SIZE; i++) wheel.add(new ArrayDeque<>());
+  }
+  
+  /**
+   * Run an action after a delay unless the returned Timeout is canceled first.
+   * 
+   * @param delay how long to wait. Rounded up to a whole tick
+   * @param action run when the timeout expires
+   * @param executor runs action
+   * @return the scheduled Timeout
+   * @throws IllegalStateException if the scheduler has been shut down
+   */
+  Timeout schedule(Duration delay, Runnable action, Executor executor) {
+    if (isShutdown) throw new IllegalStateException("TimeoutScheduler is shut down.");
+    Timeout timeout = 
+      new Timeout(System.nanoTime() + delay.toNanos(), action, executor);
+    added.add(timeout);
+    LockSupport.unpark(worker());
+    return timeout;
+  }
+  
+  /**
+   * Stop the worker thread. Pending timeouts never expire.
+   */
+  void shutdown() {
+    isShutdown = true;
+    Thread w;
+    synchronized (this) {
+      w = worker;
+    }
+    if (w != null) LockSupport.unpark(w);
+  }
+  
+  private synchronized Thread worker() {
+    if (worker == null) {
+      worker = new Thread(this::run, "AoJ-timeout");
+      worker.setDaemon(true);
+      worker.start();
+    }
+    return worker;
+  }
+  
+  private void run() {
+    while (!isShutdown) {
+      transferAdded();
+      long nowTick = (System.nanoTime() - startNanos) / TICK_NANOS;
+      if (scheduled == 0) {
+        // every bucket is empty, so skip the ticks that passed while idle
+        tick = nowTick + 1;
+        if (added.isEmpty()) LockSupport.park(this);
+      }
+      else {
+        while (tick <= nowTick) expire(tick++);
+        long wait = startNanos + tick * TICK_NANOS - System.nanoTime();
+        if (wait > 0 && added.isEmpty()) LockSupport.parkNanos(this, wait);
+      }
+    }
+  }
+  
+  private void transferAdded() {
+    Timeout t;
+    while ((t = added.poll()) != null) {
+      if (t.isCanceled()) continue;
+      long due = (t.deadlineNanos - startNanos + TICK_NANOS - 1) / TICK_NANOS;
+      t.deadlineTick = Math.max(due, tick);
+      wheel.get((int)(t.deadlineTick & MASK)).add(t);
+      scheduled++;
+    }
+  }
+  
+  private void expire(long now) {
+    Queue<Timeout> bucket = wheel.get((int)(now & MASK));
+    for (int n = bucket.size(); n > 0; n--) {
+      Timeout t = bucket.poll();
+      if (t.isCanceled()) {
+        scheduled--;
+      }
+      else if (t.deadlineTick <= now) {
+        scheduled--;
+        if (t.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) run(t);
+      }
+      else {
+        bucket.add(t);
+      }
+    }
+  }
+  
+  private static void run(Timeout t) {
+    try {
+      t.executor.execute(t.action);
+    }
+    catch (RejectedExecutionException ex) {
+      // the Executor is shut down, so is whatever the action would act on
+    }
+  }
+  
+  /**
+   * A scheduled action.
+   */
+  static final class Timeout {
+    
+    private static final int PENDING = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELED = 2;
+    
+    private final long deadlineNanos;
+    private final Runnable action;
+    private final Executor executor;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    
+    /** accessed only by the worker thread */
+    private long deadlineTick;
+    
+    private Timeout(long deadlineNanos, Runnable action, Executor executor) {
+      this.deadlineNanos = deadlineNanos;
+      this.action = action;
+      this.executor = executor;
+    }
+    
+    /**
+     * Prevent the action from running.
+     * 
+     * @return false if the action has already been started
+     */
+    boolean cancel() {
+      return state.compareAndSet(PENDING, CANCELED) || isCanceled();
+    }
+    
+    boolean isCanceled() {
+      return state.get() == CANCELED;
+    }
+  }
+}
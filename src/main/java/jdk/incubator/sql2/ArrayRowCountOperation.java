@@ -25,7 +25,9 @@
 package jdk.incubator.sql2;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
 import java.util.stream.Collector;
@@ -116,6 +118,60 @@ public interface ArrayRowCountOperation<T> extends Operation<T> {
    */
   public <S> ArrayRowCountOperation<T> set(String id, S[] values);
 
+  /**
+   * Set a sequence of int parameter values. Use the default SQL type for
+   * Integer. The array is captured and should not be modified before the
+   * {@link Operation} is completed. An implementation may bind the values
+   * without boxing them.
+   *
+   * @param id the identifier of the parameter marker to be set
+   * @param values the sequence of values the parameter is to be set to
+   * @return this Operation
+   * @throws IllegalArgumentException if the length of values is not the same as
+   * the length of the previously set parameter sequences or if the same id was
+   * passed in a previous call.
+   * @throws IllegalStateException if the {@link Operation} has been submitted
+   */
+  public default ArrayRowCountOperation<T> set(String id, int[] values) {
+    return set(id, Arrays.stream(values).boxed().collect(Collectors.toList()));
+  }
+
+  /**
+   * Set a sequence of long parameter values. Use the default SQL type for
+   * Long. The array is captured and should not be modified before the
+   * {@link Operation} is completed. An implementation may bind the values
+   * without boxing them.
+   *
+   * @param id the identifier of the parameter marker to be set
+   * @param values the sequence of values the parameter is to be set to
+   * @return this Operation
+   * @throws IllegalArgumentException if the length of values is not the same as
+   * the length of the previously set parameter sequences or if the same id was
+   * passed in a previous call.
+   * @throws IllegalStateException if the {@link Operation} has been submitted
+   */
+  public default ArrayRowCountOperation<T> set(String id, long[] values) {
+    return set(id, Arrays.stream(values).boxed().collect(Collectors.toList()));
+  }
+
+  /**
+   * Set a sequence of double parameter values. Use the default SQL type for
+   * Double. The array is captured and should not be modified before the
+   * {@link Operation} is completed. An implementation may bind the values
+   * without boxing them.
+   *
+   * @param id the identifier of the parameter marker to be set
+   * @param values the sequence of values the parameter is to be set to
+   * @return this Operation
+   * @throws IllegalArgumentException if the length of values is not the same as
+   * the length of the previously set parameter sequences or if the same id was
+   * passed in a previous call.
+   * @throws IllegalStateException if the {@link Operation} has been submitted
+   */
+  public default ArrayRowCountOperation<T> set(String id, double[] values) {
+    return set(id, Arrays.stream(values).boxed().collect(Collectors.toList()));
+  }
+
   /**
    * Provide a source for a sequence of parameter values.
    *
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c)  2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ * 
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ * 
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jdk.incubator.sql2;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * A database operation that executes a single SQL statement once for each 
+ * row of parameter values supplied by a {@link Flow.Publisher}. The SQL must
+ * return an update count. Rows are requested from the {@link Flow.Publisher}
+ * in batches, each batch is sent to the database in one round trip, and the
+ * next batch is requested only when the previous one has been executed. So
+ * the number of rows held at any time is bounded by the batch size no matter
+ * how many rows the {@link Flow.Publisher} supplies.
+ * 
+ * Each row is a {@link List} of parameter values. The first element is the 
+ * value of parameter marker "1", the second the value of parameter marker 
+ * "2" and so on. The SQL type of each value is the default SQL type for its
+ * Java type.
+ * 
+ * The row counts are reduced by the {@link Collector} in the order the rows
+ * were supplied. The {@link Operation} completes when the 
+ * {@link Flow.Publisher} completes and every batch has been executed. If the
+ * {@link Flow.Publisher} signals an error the {@link Operation} completes 
+ * exceptionally with that error. If a batch fails the subscription is
+ * canceled and the {@link Operation} completes exceptionally.
+ *
+ * @param <T> the type of the result of collecting the counts
+ */
+public interface BatchRowCountOperation<T> extends Operation<T> {
+
+  /**
+   * Provide the rows of parameter values. The {@link Operation} subscribes to
+   * source when it is executed.
+   *
+   * @param source supplies the rows of parameter values. Not null.
+   * @return this Operation
+   * @throws IllegalStateException if this method has been called previously or
+   * this {@link Operation} has been submitted
+   */
+  public BatchRowCountOperation<T> publisher(Flow.Publisher<? extends List<?>> source);
+
+  /**
+   * Set the number of rows requested from the {@link Flow.Publisher} and 
+   * executed in one round trip. The default is implementation dependent.
+   *
+   * @param rows the number of rows in a batch. Greater than 0.
+   * @return this Operation
+   * @throws IllegalArgumentException if rows is not greater than 0
+   * @throws IllegalStateException if this {@link Operation} has been submitted
+   */
+  public BatchRowCountOperation<T> batchSize(int rows);
+
+  /**
+   * Provides a {@link Collector} to reduce the sequence of Counts. The result
+   * of the {@link Operation} is the result of calling finisher on the final
+   * accumulated result. If the {@link Collector} is not set the result of the
+   * {@link Operation} is null.
+   *
+   * @param <A> the type of the accumulator
+   * @param <S> the type of the final result
+   * @param c the Collector. Not null.
+   * @return This BatchRowCountOperation
+   * @throws IllegalStateException if this method had been called previously or
+   * this Operation has been submitted.
+  */
+  public <A, S extends T> BatchRowCountOperation<T> collect(Collector<? super Result.RowCount, A, S> c);
+
+  @Override
+  public BatchRowCountOperation<T> onError(Consumer<Throwable> handler);
+
+  @Override
+  public BatchRowCountOperation<T> timeout(Duration minTime);
+
+}
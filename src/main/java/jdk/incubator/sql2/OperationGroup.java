@@ -286,6 +286,30 @@ public interface OperationGroup<S, T> extends Operation<T>, AutoCloseable {
    */
   public <R extends S> ArrayRowCountOperation<R> arrayRowCountOperation(String sql);
 
+  /**
+   * Return a new {@link BatchRowCountOperation}.
+   * <p>
+   * Usage Note: Frequently use of this method will require a type witness to
+   * enable correct type inferencing.
+   * <pre><code>
+   *   session.<b>&lt;Long&gt;</b>batchRowCountOperation(sql)
+   *     .publisher ...
+   *     .collect ...
+   *     .submit ...
+   * </code></pre>
+   *
+   * @param <R> the result type of the returned {@link BatchRowCountOperation}
+   * @param sql SQL to be executed. Must return an update count.
+   * @return a new {@link BatchRowCountOperation} that is a member of this
+   * {@code OperationGroup}
+   * @throws IllegalStateException if this {@code OperationGroup} is closed.
+   * @throws UnsupportedOperationException if the implementation does not
+   * support BatchRowCountOperation
+   */
+  public default <R extends S> BatchRowCountOperation<R> batchRowCountOperation(String sql) {
+    throw new UnsupportedOperationException("Not supported.");
+  }
+
   /**
    * Return a new {@link ParameterizedRowCountOperation}.
    *
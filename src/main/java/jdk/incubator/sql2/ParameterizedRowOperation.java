@@ -63,6 +63,29 @@ public interface ParameterizedRowOperation<T> extends ParameterizedOperation<T>,
   @Override
   public <A, S extends T> ParameterizedRowOperation<T> collect(Collector<? super Result.RowColumn, A, S> c);
 
+  /**
+   * Provides a {@link Collector} to reduce the sequence of rows in blocks of
+   * consecutive rows. The rows are passed to the accumulator as
+   * {@link Result.ColumnChunk}s of at most {@link #fetchSize} rows rather than
+   * one {@link Result.RowColumn} per row. The result of this
+   * {@link Operation} is the result of calling finisher on the final
+   * accumulated result. At most one of {@link #collect} and 
+   * {@code collectChunks} may be called.
+   *
+   * @param <A> the type of the accumulator
+   * @param <S> the type of the final result
+   * @param c the Collector. Not null.
+   * @return this {@code ParameterizedRowOperation}
+   * @throws IllegalStateException if this method or {@link #collect} had been
+   * called previously or this Operation has been submitted
+   * @throws UnsupportedOperationException if the implementation does not
+   * support chunks
+   */
+  public default <A, S extends T> ParameterizedRowOperation<T> 
+    collectChunks(Collector<? super Result.ColumnChunk, A, S> c) {
+    throw new UnsupportedOperationException("collectChunks");
+  }
+
   /**
    * {@inheritDoc}
    * 
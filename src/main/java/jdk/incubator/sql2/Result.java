@@ -96,6 +96,58 @@ public interface Result {
       return get(javaType());
     }
 
+    /**
+     * Return the value of this {@link Column} as an int. Equivalent to 
+     * {@code get(Integer.class)} but an implementation may avoid creating an
+     * {@link Integer}.
+     *
+     * @return the value of this {@link Column}
+     * @throws IllegalStateException if the column sequence is empty.
+     * @throws NullPointerException if the value is SQL NULL.
+     */
+    public default int getInt() {
+      return get(Integer.class);
+    }
+
+    /**
+     * Return the value of this {@link Column} as a long. Equivalent to 
+     * {@code get(Long.class)} but an implementation may avoid creating a
+     * {@link Long}.
+     *
+     * @return the value of this {@link Column}
+     * @throws IllegalStateException if the column sequence is empty.
+     * @throws NullPointerException if the value is SQL NULL.
+     */
+    public default long getLong() {
+      return get(Long.class);
+    }
+
+    /**
+     * Return the value of this {@link Column} as a double. Equivalent to 
+     * {@code get(Double.class)} but an implementation may avoid creating a
+     * {@link Double}.
+     *
+     * @return the value of this {@link Column}
+     * @throws IllegalStateException if the column sequence is empty.
+     * @throws NullPointerException if the value is SQL NULL.
+     */
+    public default double getDouble() {
+      return get(Double.class);
+    }
+
+    /**
+     * Return the value of this {@link Column} as a boolean. Equivalent to 
+     * {@code get(Boolean.class)} but an implementation may avoid creating a
+     * {@link Boolean}.
+     *
+     * @return the value of this {@link Column}
+     * @throws IllegalStateException if the column sequence is empty.
+     * @throws NullPointerException if the value is SQL NULL.
+     */
+    public default boolean getBoolean() {
+      return get(Boolean.class);
+    }
+
     /**
      * Return the identifier of this {@link Column}. May be null.
      *
@@ -387,4 +439,114 @@ public interface Result {
 
   }
 
+  /**
+   * Used by {@link ParameterizedRowOperation#collectChunks} to expose a
+   * block of consecutive rows of a row sequence column by column. Each column
+   * is a vector with one element per row. A column is stored as an
+   * {@code int[]}, {@code long[]} or {@code double[]} if its values fit that
+   * type exactly, as a {@code String[]} if it is a character type and as an
+   * {@code Object[]} otherwise. Columns are numbered from 1 and rows from 0.
+   *
+   * An implementation may reuse the same {@link ColumnChunk} and the same
+   * arrays for every block of rows. The arrays may be longer than
+   * {@link #rowCount()}; elements beyond the last row are unspecified.
+   */
+  public static interface ColumnChunk extends Result {
+
+    /**
+     * @return the number of rows in this {@link ColumnChunk}
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended
+     */
+    public int rowCount();
+
+    /**
+     * The count of rows in the row sequence preceeding the first row of this
+     * {@link ColumnChunk}.
+     *
+     * @return the row number of the first row of this {@link ColumnChunk}
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended
+     */
+    public long firstRowNumber();
+
+    /**
+     * @return the number of columns
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended
+     */
+    public int columnCount();
+
+    /**
+     * @param index a column number
+     * @return the identifier of the column
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended
+     */
+    public String identifier(int index);
+
+    /**
+     * The element type of the vector that holds a column. One of
+     * {@code int.class}, {@code long.class}, {@code double.class},
+     * {@code String.class} or {@code Object.class}.
+     *
+     * @param index a column number
+     * @return the element type of the vector
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended
+     */
+    public Class<?> vectorType(int index);
+
+    /**
+     * @param index a column number
+     * @param row a row number relative to the first row of this chunk
+     * @return true if the value is SQL NULL. The element of a primitive vector
+     * that is SQL NULL is 0.
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended
+     */
+    public boolean isNull(int index, int row);
+
+    /**
+     * @param index a column number
+     * @return the vector
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended or the vector is not an {@code int[]}
+     */
+    public int[] intVector(int index);
+
+    /**
+     * @param index a column number
+     * @return the vector
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended or the vector is not a {@code long[]}
+     */
+    public long[] longVector(int index);
+
+    /**
+     * @param index a column number
+     * @return the vector
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended or the vector is not a {@code double[]}
+     */
+    public double[] doubleVector(int index);
+
+    /**
+     * @param index a column number
+     * @return the vector
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended or the vector is not a {@code String[]}
+     */
+    public String[] stringVector(int index);
+
+    /**
+     * @param index a column number
+     * @return the vector
+     * @throws IllegalStateException if the call that was passed this
+     * {@code Result} has ended or the vector is not an {@code Object[]}
+     */
+    public Object[] objectVector(int index);
+
+  }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.incubator.sql2.AdbaType;
+
+/**
+ * Verifies how BindingPlanJdbc chooses JDBC setters, with a stub statement
+ * that records the calls made. Does not use a database.
+ */
+public class BindingPlanJdbcTest {
+
+  private final List<String> calls = new ArrayList<>();
+  private final PreparedStatement stmt = (PreparedStatement)Proxy.newProxyInstance(
+    PreparedStatement.class.getClassLoader(),
+    new Class<?>[] { PreparedStatement.class },
+    (proxy, method, args) -> {
+      calls.add(method.getName() + Arrays.toString(args));
+      return null;
+    });
+
+  @Test
+  public void testSetterFollowsValueClass() throws SQLException {
+    BindingPlanJdbc.Parameter p =
+      BindingPlanJdbc.forSql("SELECT ? FROM DUAL -- class", false).parameter("1");
+    p.bind(stmt, 1, null);
+    p.bind(stmt, 2, null);
+    p.bind(stmt, "x", null);
+    p.bind(stmt, 3.5d, null);
+    p.bind(stmt, 4, null);
+    assertEquals(Arrays.asList("setInt[1, 1]",
+                               "setInt[1, 2]",
+                               "setString[1, x]",
+                               "setDouble[1, 3.5]",
+                               "setInt[1, 4]"),
+                 calls);
+  }
+
+  @Test
+  public void testSetterFollowsDeclaredType() throws SQLException {
+    BindingPlanJdbc.Parameter p =
+      BindingPlanJdbc.forSql("SELECT ? FROM DUAL -- type", false).parameter("1");
+    p.bind(stmt, 1, AdbaType.INTEGER);
+    p.bind(stmt, 2, AdbaType.BIGINT);
+    p.bind(stmt, 3, null);
+    assertEquals(Arrays.asList("setInt[1, 1]",
+                               "setObject[1, 2, " + JDBCType.BIGINT + "]",
+                               "setInt[1, 3]"),
+                 calls);
+  }
+
+  @Test
+  public void testNullUsesDeclaredType() throws SQLException {
+    BindingPlanJdbc.Parameter p =
+      BindingPlanJdbc.forSql("SELECT ? FROM DUAL -- null", false).parameter("1");
+    p.bind(stmt, null, AdbaType.VARCHAR);
+    p.bind(stmt, null, AdbaType.INTEGER);
+    p.bind(stmt, null, null);
+    p.bind(stmt, "x", AdbaType.VARCHAR);
+    p.bind(stmt, null, AdbaType.VARCHAR);
+    assertEquals(Arrays.asList("setNull[1, " + Types.VARCHAR + "]",
+                               "setNull[1, " + Types.INTEGER + "]",
+                               "setNull[1, " + Types.NULL + "]",
+                               "setString[1, x]",
+                               "setNull[1, " + Types.VARCHAR + "]"),
+                 calls);
+  }
+
+  @Test
+  public void testNameBindsEveryPosition() throws SQLException {
+    BindingPlanJdbc.Parameter p =
+      BindingPlanJdbc.forSql("SELECT :a, ?, :a FROM DUAL", true).parameter("a");
+    p.bind(stmt, 7, null);
+    assertEquals(Arrays.asList("setInt[1, 7]", "setInt[3, 7]"), calls);
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Verifies the named parameter lexer and when BindingPlanJdbc uses it. Does
+ * not use a database.
+ */
+public class ParsedSqlJdbcTest {
+
+  @Test
+  public void testMarkers() {
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse(
+      "select * from t where id = :id or id = -:id and x = :x_1$");
+    assertEquals("select * from t where id = ? or id = -? and x = ?", p.jdbcSql);
+    assertArrayEquals(new int[] { 1, 2 }, p.positions("id"));
+    assertArrayEquals(new int[] { 3 }, p.positions("x_1$"));
+    assertNull(p.positions("y"));
+  }
+
+  @Test
+  public void testQuestionMarksCountAsPositions() {
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse("insert into t values (?, :b, ?, :d)");
+    assertEquals("insert into t values (?, ?, ?, ?)", p.jdbcSql);
+    assertArrayEquals(new int[] { 2 }, p.positions("b"));
+    assertArrayEquals(new int[] { 4 }, p.positions("d"));
+  }
+
+  @Test
+  public void testOracleNumberedMarkers() {
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse("select :1 from dual where :2 = :1");
+    assertEquals("select ? from dual where ? = ?", p.jdbcSql);
+    assertArrayEquals(new int[] { 1, 3 }, p.positions("1"));
+    assertArrayEquals(new int[] { 2 }, p.positions("2"));
+  }
+
+  @Test
+  public void testLiterals() {
+    assertUnchanged("select ':a', 'it''s :b' from dual");
+    assertUnchanged("select \":c\" from \"x:d\"");
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse("select 'x:y', :z from dual");
+    assertEquals("select 'x:y', ? from dual", p.jdbcSql);
+    assertArrayEquals(new int[] { 1 }, p.positions("z"));
+    assertNull(p.positions("y"));
+  }
+
+  @Test
+  public void testQQuotes() {
+    assertUnchanged("select q'[it's :a]' from dual");
+    assertUnchanged("select Q'{:b}', q'(:c)', q'<:d>' from dual");
+    assertUnchanged("select q'!:e'!' from dual");
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse("select seq':a' from t where x = :b");
+    assertEquals("select seq':a' from t where x = ?", p.jdbcSql);
+    assertArrayEquals(new int[] { 1 }, p.positions("b"));
+  }
+
+  @Test
+  public void testComments() {
+    assertUnchanged("select 1 -- where x = :a\nfrom dual");
+    assertUnchanged("select /* :b */ 1 from dual");
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse("select /* :a */ :b -- :c\n, :d from dual");
+    assertEquals("select /* :a */ ? -- :c\n, ? from dual", p.jdbcSql);
+    assertArrayEquals(new int[] { 1 }, p.positions("b"));
+    assertArrayEquals(new int[] { 2 }, p.positions("d"));
+    assertNull(p.positions("c"));
+  }
+
+  @Test
+  public void testCastsAndAssignments() {
+    assertUnchanged("select x::int from t");
+    assertUnchanged("begin v := 1; end;");
+    assertUnchanged("begin v:=1; end;");
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse("begin :out := :in::int; end;");
+    assertEquals("begin ? := ?::int; end;", p.jdbcSql);
+    assertArrayEquals(new int[] { 1 }, p.positions("out"));
+    assertArrayEquals(new int[] { 2 }, p.positions("in"));
+  }
+
+  @Test
+  public void testUnterminated() {
+    assertUnchanged("select ':a");
+    assertUnchanged("select 1 /* :a");
+    assertUnchanged("select q'[:a");
+    assertUnchanged("select :");
+  }
+
+  @Test
+  public void testPositionalPlanIsNotRewritten() {
+    String sql = "create trigger trg before insert on t for each row "
+                 + "begin :new.c := a[1:2]; end;";
+    BindingPlanJdbc plan = BindingPlanJdbc.forSql(sql, false);
+    assertEquals(sql, plan.jdbcSql());
+    assertArrayEquals(new int[] { 1 }, plan.parameter("1").positions);
+  }
+
+  @Test
+  public void testNamedPlanIsRewritten() {
+    String sql = "select * from t where id = :id and x = ?";
+    BindingPlanJdbc plan = BindingPlanJdbc.forSql(sql, true);
+    assertEquals("select * from t where id = ? and x = ?", plan.jdbcSql());
+    assertArrayEquals(new int[] { 1 }, plan.parameter("id").positions);
+    assertArrayEquals(new int[] { 2 }, plan.parameter("2").positions);
+    assertEquals(sql, BindingPlanJdbc.forSql(sql, false).jdbcSql());
+  }
+
+  @Test
+  public void testIsPosition() {
+    assertTrue(BindingPlanJdbc.isPosition("1"));
+    assertTrue(BindingPlanJdbc.isPosition("42"));
+    assertFalse(BindingPlanJdbc.isPosition(""));
+    assertFalse(BindingPlanJdbc.isPosition("id"));
+    assertFalse(BindingPlanJdbc.isPosition("1a"));
+    assertFalse(BindingPlanJdbc.isPosition("-1"));
+  }
+
+  private static void assertUnchanged(String sql) {
+    ParsedSqlJdbc p = ParsedSqlJdbc.parse(sql);
+    assertEquals(sql, p.jdbcSql);
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Verifies StatementCacheJdbc with stub statements. Does not use a database.
+ */
+public class StatementCacheJdbcTest {
+
+  private final List<PreparedStatement> discarded = new ArrayList<>();
+
+  @Test
+  public void testHit() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(4, discarded::add);
+    assertNull(cache.borrow("SELECT 1", false));
+    Stub stub = new Stub();
+    PreparedStatement stmt = cache.borrowed("SELECT 1", false, stub.statement());
+    assertTrue(cache.giveBack(stmt));
+    assertEquals(1, stub.clearParameters);
+
+    assertSame(stmt, cache.borrow("SELECT 1", false));
+    assertEquals(1L, cache.hits());
+    assertEquals(1L, cache.misses());
+    assertTrue(discarded.isEmpty());
+  }
+
+  @Test
+  public void testBorrowedIsNotShared() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(4, discarded::add);
+    PreparedStatement first = cache.borrowed("SELECT 1", false, new Stub().statement());
+    assertNull(cache.borrow("SELECT 1", false));
+    PreparedStatement second = cache.borrowed("SELECT 1", false, new Stub().statement());
+    assertTrue(cache.giveBack(first));
+    assertTrue(cache.giveBack(second));
+
+    // the second displaced the first, which is discarded
+    assertEquals(1, discarded.size());
+    assertSame(first, discarded.get(0));
+    assertSame(second, cache.borrow("SELECT 1", false));
+    assertNull(cache.borrow("SELECT 1", false));
+  }
+
+  @Test
+  public void testCallIsKeyedSeparately() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(4, discarded::add);
+    PreparedStatement stmt = cache.borrowed("CALL p()", false, new Stub().statement());
+    CallableStatement call = cache.borrowed("CALL p()", true, new Stub().call());
+    cache.giveBack(stmt);
+    cache.giveBack(call);
+    assertSame(call, cache.borrow("CALL p()", true));
+    assertSame(stmt, cache.borrow("CALL p()", false));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(2, discarded::add);
+    PreparedStatement a = cache.borrowed("A", false, new Stub().statement());
+    PreparedStatement b = cache.borrowed("B", false, new Stub().statement());
+    PreparedStatement c = cache.borrowed("C", false, new Stub().statement());
+    cache.giveBack(a);
+    cache.giveBack(b);
+    assertSame(a, cache.borrow("A", false));
+    cache.giveBack(a);
+    cache.giveBack(c);
+
+    assertEquals(1, discarded.size());
+    assertSame(b, discarded.get(0));
+    assertNull(cache.borrow("B", false));
+    assertSame(a, cache.borrow("A", false));
+    assertSame(c, cache.borrow("C", false));
+  }
+
+  @Test
+  public void testRestoresFetchSize() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(4, discarded::add);
+    Stub stub = new Stub();
+    stub.fetchSize = 10;
+    PreparedStatement stmt = cache.borrowed("SELECT 1", false, stub.statement());
+    stmt.setFetchSize(500);
+    cache.giveBack(stmt);
+    assertEquals(10, stub.fetchSize);
+  }
+
+  @Test
+  public void testResetFailureDiscards() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(4, discarded::add);
+    Stub stub = new Stub();
+    stub.isBroken = true;
+    PreparedStatement stmt = cache.borrowed("SELECT 1", false, stub.statement());
+
+    // the cache took the statement so the caller must not close it
+    assertTrue(cache.giveBack(stmt));
+    assertEquals(1, discarded.size());
+    assertSame(stmt, discarded.get(0));
+    assertNull(cache.borrow("SELECT 1", false));
+  }
+
+  @Test
+  public void testNotBorrowed() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(4, discarded::add);
+    Stub stub = new Stub();
+    assertFalse(cache.giveBack(stub.statement()));
+    assertEquals(0, stub.clearParameters);
+  }
+
+  @Test
+  public void testClear() throws SQLException {
+    StatementCacheJdbc cache =
+      StatementCacheJdbc.newStatementCache(4, discarded::add);
+    PreparedStatement idle = cache.borrowed("A", false, new Stub().statement());
+    PreparedStatement busy = cache.borrowed("B", false, new Stub().statement());
+    cache.giveBack(idle);
+    cache.clear();
+
+    assertEquals(1, discarded.size());
+    assertSame(idle, discarded.get(0));
+    assertFalse(cache.giveBack(busy));
+    assertNull(cache.borrow("A", false));
+  }
+
+  /**
+   * A statement that records the calls the cache makes.
+   */
+  private static final class Stub {
+
+    int clearParameters = 0;
+    int fetchSize = 0;
+    boolean isBroken = false;
+
+    PreparedStatement statement() {
+      return proxy(PreparedStatement.class);
+    }
+
+    CallableStatement call() {
+      return proxy(CallableStatement.class);
+    }
+
+    private <S extends PreparedStatement> S proxy(Class<S> type) {
+      return type.cast(Proxy.newProxyInstance(
+        type.getClassLoader(),
+        new Class<?>[] { type },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "clearParameters":
+              if (isBroken) throw new SQLException("closed");
+              clearParameters++;
+              return null;
+            case "getFetchSize":
+              return fetchSize;
+            case "setFetchSize":
+              fetchSize = (Integer)args[0];
+              return null;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              return null;
+          }
+        }));
+    }
+  }
+}
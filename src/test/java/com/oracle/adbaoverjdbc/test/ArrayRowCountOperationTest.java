@@ -17,17 +17,24 @@ package com.oracle.adbaoverjdbc.test;
 
 import jdk.incubator.sql2.DataSourceFactory;
 import jdk.incubator.sql2.DataSource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collector;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 import jdk.incubator.sql2.Session;
+import jdk.incubator.sql2.Submission;
 import jdk.incubator.sql2.TransactionCompletion;
+import com.oracle.adbaoverjdbc.DataSourcePropertiesJdbc;
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
 
 /**
  * This is a quick and dirty test to check if anything at all is working.
@@ -115,4 +122,245 @@ public class ArrayRowCountOperationTest {
         .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
     }    
   }
+  
+  /**
+   * Verify that rows bound from primitive arrays are executed in chunks and 
+   * that the counts of every chunk are collected.
+   */
+  @Test
+  public void chunkedPrimitiveArrays() throws Exception {
+    DataSourceFactory factory = DataSourceFactory.newFactory(FACTORY_NAME);
+    try (DataSource ds = factory.builder()
+            .url(URL)
+            .username(USER)
+            .password(PASSWORD)
+            .build();
+            Session session = ds.builder()
+                                .property(SessionPropertiesJdbc.ARRAY_COUNT_CHUNK_SIZE, 2)
+                                .property(SessionPropertiesJdbc.ARRAY_COUNT_PIPELINE, true)
+                                .build()
+                                .attach()) {
+      int[] users = {200, 201, 202, 203, 204};
+      int[] cities = {30, 40, 10, 30, 40};
+      
+      long count = session.<Long>arrayRowCountOperation(
+        "insert into forum_user(id, city_id) values (?, ?)")
+              .set("1", users)
+              .set("2", cities)
+              .collect(Collector.of(
+                      () -> new long[1],
+                      (a, r) -> a[0] += r.getCount(),
+                      (a, b) -> a,
+                      a -> a[0]))
+              .submit()
+              .getCompletionStage()
+              .toCompletableFuture()
+              .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+      assertEquals(5L, count);
+      session.rollback()
+        .toCompletableFuture()
+        .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }    
+  }
+  
+  /**
+   * Verify that a pipelined execution completes when the DataSource has a 
+   * single I/O thread, so the next chunk can't be added on another thread 
+   * while a chunk executes.
+   */
+  @Test
+  public void pipelinedOnOneIoThread() throws Exception {
+    DataSourceFactory factory = DataSourceFactory.newFactory(FACTORY_NAME);
+    try (DataSource ds = factory.builder()
+            .url(URL)
+            .username(USER)
+            .password(PASSWORD)
+            .property(DataSourcePropertiesJdbc.IO_THREADS, 1)
+            .build();
+            Session session = ds.builder()
+                                .property(SessionPropertiesJdbc.ARRAY_COUNT_CHUNK_SIZE, 10)
+                                .property(SessionPropertiesJdbc.ARRAY_COUNT_PIPELINE, true)
+                                .build()
+                                .attach()) {
+      int[] users = new int[100];
+      int[] cities = new int[users.length];
+      for (int i = 0; i < users.length; i++) {
+        users[i] = 300 + i;
+        cities[i] = 10;
+      }
+      
+      long count = session.<Long>arrayRowCountOperation(
+        "insert into forum_user(id, city_id) values (?, ?)")
+              .set("1", users)
+              .set("2", cities)
+              .collect(Collector.of(
+                      () -> new long[1],
+                      (a, r) -> a[0] += r.getCount(),
+                      (a, b) -> a,
+                      a -> a[0]))
+              .submit()
+              .getCompletionStage()
+              .toCompletableFuture()
+              .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+      assertEquals(100L, count);
+      session.rollback()
+        .toCompletableFuture()
+        .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }    
+  }
+  
+  /**
+   * Verify that rows supplied by a Publisher are executed in batches and that
+   * the counts of every batch are collected.
+   */
+  @Test
+  public void batchRowCountFromPublisher() throws Exception {
+    DataSourceFactory factory = DataSourceFactory.newFactory(FACTORY_NAME);
+    try (DataSource ds = factory.builder()
+            .url(URL)
+            .username(USER)
+            .password(PASSWORD)
+            .build();
+            Session session = ds.getSession();
+            SubmissionPublisher<List<?>> rows = new SubmissionPublisher<>()) {
+      CompletableFuture<Long> count = session.<Long>batchRowCountOperation(
+        "insert into forum_user(id, city_id) values (?, ?)")
+              .publisher(rows)
+              .batchSize(3)
+              .collect(Collector.of(
+                      () -> new long[1],
+                      (a, r) -> a[0] += r.getCount(),
+                      (a, b) -> a,
+                      a -> a[0]))
+              .submit()
+              .getCompletionStage()
+              .toCompletableFuture();
+      awaitSubscriber(rows);
+      for (int id = 300; id < 310; id++) {
+        rows.submit(List.of(id, 10));
+      }
+      rows.close();
+      
+      assertEquals(Long.valueOf(10L), 
+                   count.get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS));
+      session.rollback()
+        .toCompletableFuture()
+        .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }    
+  }
+  
+  /**
+   * Verify that a row that can't be bound fails the Operation and cancels 
+   * the subscription at once, so no further rows are bound.
+   */
+  @Test
+  public void batchRowCountBindError() throws Exception {
+    DataSourceFactory factory = DataSourceFactory.newFactory(FACTORY_NAME);
+    try (DataSource ds = factory.builder()
+            .url(URL)
+            .username(USER)
+            .password(PASSWORD)
+            .build();
+            Session session = ds.getSession();
+            SubmissionPublisher<List<?>> rows = new SubmissionPublisher<>()) {
+      CompletableFuture<Object> count = session.batchRowCountOperation(
+        "insert into forum_user(id, city_id) values (?, ?)")
+              .publisher(rows)
+              .batchSize(3)
+              .submit()
+              .getCompletionStage()
+              .toCompletableFuture();
+      awaitSubscriber(rows);
+      rows.submit(List.of(310, 10));
+      rows.submit(new AbstractList<Object>() {
+        @Override
+        public Object get(int index) {
+          throw new IllegalStateException("unbindable row");
+        }
+        
+        @Override
+        public int size() {
+          return 2;
+        }
+      });
+      
+      try {
+        count.get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        fail("a row that can't be bound must fail the Operation");
+      }
+      catch (ExecutionException ex) {
+        // expected
+      }
+      assertEquals(0, rows.getNumberOfSubscribers());
+      session.rollback()
+        .toCompletableFuture()
+        .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }    
+  }
+  
+  /**
+   * Verify that canceling completes the Operation and cancels the 
+   * subscription even though the Publisher never signals again.
+   */
+  @Test
+  public void batchRowCountCancel() throws Exception {
+    DataSourceFactory factory = DataSourceFactory.newFactory(FACTORY_NAME);
+    try (DataSource ds = factory.builder()
+            .url(URL)
+            .username(USER)
+            .password(PASSWORD)
+            .build();
+            Session session = ds.getSession();
+            SubmissionPublisher<List<?>> rows = new SubmissionPublisher<>()) {
+      Submission<Object> submission = session.batchRowCountOperation(
+        "insert into forum_user(id, city_id) values (?, ?)")
+              .publisher(rows)
+              .batchSize(3)
+              .submit();
+      CompletableFuture<Object> count = 
+        submission.getCompletionStage().toCompletableFuture();
+      awaitSubscriber(rows);
+      rows.submit(List.of(320, 10));
+      
+      assertTrue(submission.cancel()
+        .toCompletableFuture()
+        .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS));
+      try {
+        count.get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        fail("a canceled Operation must complete exceptionally");
+      }
+      catch (ExecutionException ex) {
+        // expected
+      }
+      awaitUnsubscribed(rows);
+      session.rollback()
+        .toCompletableFuture()
+        .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }    
+  }
+  
+  /**
+   * A SubmissionPublisher drops items submitted before the Operation has
+   * subscribed.
+   */
+  private static void awaitSubscriber(SubmissionPublisher<?> publisher) 
+    throws InterruptedException {
+    long deadline = System.nanoTime() + TestConfig.getTimeout().toNanos();
+    while (publisher.getNumberOfSubscribers() == 0) {
+      if (System.nanoTime() > deadline) fail("the Operation did not subscribe");
+      Thread.sleep(1);
+    }
+  }
+  
+  /**
+   * A SubmissionPublisher removes a canceled subscription on its own thread.
+   */
+  private static void awaitUnsubscribed(SubmissionPublisher<?> publisher) 
+    throws InterruptedException {
+    long deadline = System.nanoTime() + TestConfig.getTimeout().toNanos();
+    while (publisher.getNumberOfSubscribers() != 0) {
+      if (System.nanoTime() > deadline) fail("the subscription was not canceled");
+      Thread.sleep(1);
+    }
+  }
 }
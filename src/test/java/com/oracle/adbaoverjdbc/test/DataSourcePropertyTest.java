@@ -21,6 +21,12 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import com.oracle.adbaoverjdbc.DataSourcePropertiesJdbc;
+import com.oracle.adbaoverjdbc.OperationTraceListener;
+import com.oracle.adbaoverjdbc.QueryResultCache;
+
+import java.time.Duration;
+
 /**
  * Verifies the public API of DataSourceProperty functions as described in the 
  * ADBA javadoc.
@@ -39,5 +45,51 @@ public class DataSourcePropertyTest {
     assertFalse(MAX_RESOURCES.isSensitive());
   }
   
+  @Test
+  public void testIoThreads() {
+    DataSourcePropertiesJdbc ioThreads = DataSourcePropertiesJdbc.IO_THREADS;
+    assertEquals("IO_THREADS", ioThreads.name());
+    assertEquals(Integer.class, ioThreads.range());
+    assertFalse(ioThreads.validate(-1));
+    assertFalse(ioThreads.validate(4L));
+    assertTrue(ioThreads.validate(16));
+    assertEquals(0, ioThreads.defaultValue());
+    assertFalse(ioThreads.isSensitive());
+  }
+  
+  @Test
+  public void testTraceListener() {
+    DataSourcePropertiesJdbc tracer = DataSourcePropertiesJdbc.TRACE_LISTENER;
+    assertEquals("TRACE_LISTENER", tracer.name());
+    assertEquals(OperationTraceListener.class, tracer.range());
+    assertFalse(tracer.validate("listener"));
+    assertTrue(tracer.validate((OperationTraceListener)(e, t, o, g, s) -> {}));
+    assertNull(tracer.defaultValue());
+    assertFalse(tracer.isSensitive());
+  }
+  
+  @Test
+  public void testResultCache() {
+    DataSourcePropertiesJdbc cache = DataSourcePropertiesJdbc.RESULT_CACHE;
+    assertEquals("RESULT_CACHE", cache.name());
+    assertEquals(QueryResultCache.class, cache.range());
+    assertFalse(cache.validate("cache"));
+    assertTrue(cache.validate(new QueryResultCache(10, Duration.ofSeconds(1))));
+    assertNull(cache.defaultValue());
+    assertFalse(cache.isSensitive());
+  }
+  
+  @Test
+  public void testCloseTimeout() {
+    DataSourcePropertiesJdbc timeout = DataSourcePropertiesJdbc.CLOSE_TIMEOUT;
+    assertEquals("CLOSE_TIMEOUT", timeout.name());
+    assertEquals(Duration.class, timeout.range());
+    assertFalse(timeout.validate(30));
+    assertFalse(timeout.validate(Duration.ofSeconds(-1)));
+    assertTrue(timeout.validate(Duration.ZERO));
+    assertEquals(Duration.ofSeconds(30), timeout.defaultValue());
+    assertFalse(timeout.isSensitive());
+  }
+  
   // TODO: Test the configure API
 }
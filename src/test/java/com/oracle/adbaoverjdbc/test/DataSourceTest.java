@@ -28,10 +28,16 @@ import jdk.incubator.sql2.SessionProperty;
 import org.junit.Test;
 
 import static com.oracle.adbaoverjdbc.ConnectionPropertiesJdbc.*;
+import com.oracle.adbaoverjdbc.DataSourcePropertiesJdbc;
+import com.oracle.adbaoverjdbc.OperationTraceListener;
+import com.oracle.adbaoverjdbc.QueryResultCache;
 import static com.oracle.adbaoverjdbc.test.TestConfig.*;
 import static org.junit.Assert.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
@@ -39,6 +45,7 @@ import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collector;
 
 /**
  * Verifies the public API of DataSource functions as described in the ADBA 
@@ -93,6 +100,204 @@ public class DataSourceTest {
     }
   }
 
+  /**
+   * Verify that with an I/O Executor blocking calls are made on its threads
+   * and that continuations of a Submission's stage are not.
+   */
+  @Test
+  public void testIoThreads() throws Exception {
+    try (DataSource ds = dsFactory.builder()
+           .url(getUrl()).username(getUser()).password(getPassword())
+           .property(DataSourcePropertiesJdbc.IO_THREADS, 2)
+           .build();
+         Session session = ds.getSession()) {
+      AtomicReference<String> ioThread = new AtomicReference<>();
+      AtomicReference<String> continuationThread = new AtomicReference<>();
+      session.<String>rowOperation("SELECT 1 FROM DUAL")
+        .collect(Collector.of(() -> null,
+                              (a, r) -> ioThread.set(Thread.currentThread().getName()),
+                              (a, b) -> null,
+                              a -> null))
+        .timeout(getTimeout())
+        .submit()
+        .getCompletionStage()
+        .thenRun(() -> continuationThread.set(Thread.currentThread().getName()))
+        .toCompletableFuture()
+        .get();
+      
+      assertTrue(ioThread.get().startsWith("AoJ-io-"));
+      assertFalse(continuationThread.get().startsWith("AoJ-io-"));
+    }
+  }
+  
+  @Test
+  public void testTraceListener() throws Exception {
+    String sql = "SELECT 1 FROM DUAL";
+    List<OperationTraceListener.Event> events = 
+      Collections.synchronizedList(new ArrayList<>());
+    OperationTraceListener tracer = (event, nanos, op, group, s) -> {
+      if (sql.equals(s)) events.add(event);
+    };
+    try (DataSource ds = dsFactory.builder()
+           .url(getUrl()).username(getUser()).password(getPassword())
+           .property(DataSourcePropertiesJdbc.TRACE_LISTENER, tracer)
+           .build();
+         Session session = ds.getSession()) {
+      session.<Object>rowOperation(sql)
+        .timeout(getTimeout())
+        .submit()
+        .getCompletionStage()
+        .toCompletableFuture()
+        .get();
+    }
+    assertEquals(List.of(OperationTraceListener.Event.SUBMIT,
+                         OperationTraceListener.Event.PREDECESSOR_COMPLETE,
+                         OperationTraceListener.Event.EXECUTE_START,
+                         OperationTraceListener.Event.FIRST_ROW,
+                         OperationTraceListener.Event.LAST_ROW,
+                         OperationTraceListener.Event.COMPLETE),
+                 events);
+  }
+  
+  @Test
+  public void testResultCache() throws Exception {
+    String sql = "SELECT 1 FROM DUAL";
+    QueryResultCache cache = 
+      new QueryResultCache(10, Duration.ofMinutes(1)).cache(sql, "DUAL");
+    List<OperationTraceListener.Event> events = 
+      Collections.synchronizedList(new ArrayList<>());
+    OperationTraceListener tracer = (event, nanos, op, group, s) -> {
+      if (event == OperationTraceListener.Event.EXECUTE_START) events.add(event);
+    };
+    try (DataSource ds = dsFactory.builder()
+           .url(getUrl()).username(getUser()).password(getPassword())
+           .property(DataSourcePropertiesJdbc.RESULT_CACHE, cache)
+           .property(DataSourcePropertiesJdbc.TRACE_LISTENER, tracer)
+           .build();
+         Session session = ds.getSession()) {
+      for (int i = 0; i < 3; i++) {
+        assertEquals(Integer.valueOf(1), selectOne(session, sql));
+      }
+      assertEquals(1, cache.misses());
+      assertEquals(2, cache.hits());
+      assertEquals(1, events.size());
+      
+      cache.invalidate("sys.dual");
+      assertEquals(Integer.valueOf(1), selectOne(session, sql));
+      assertEquals(2, cache.misses());
+      assertEquals(2, events.size());
+    }
+  }
+  
+  /**
+   * Verify a cache hit reads the same values as the miss that filled the 
+   * entry, and that a hit can't change the values another hit reads.
+   */
+  @Test
+  public void testResultCacheValues() throws Exception {
+    String sql = "SELECT HEXTORAW('0A0B') B, 1.5 N, 'x' S FROM DUAL";
+    QueryResultCache cache = 
+      new QueryResultCache(10, Duration.ofMinutes(1)).cache(sql, "DUAL");
+    try (DataSource ds = dsFactory.builder()
+           .url(getUrl()).username(getUser()).password(getPassword())
+           .property(DataSourcePropertiesJdbc.RESULT_CACHE, cache)
+           .build();
+         Session session = ds.getSession()) {
+      List<Object> miss = selectValues(session, sql);
+      List<Object> hit = selectValues(session, sql);
+      assertEquals(1, cache.misses());
+      assertEquals(1, cache.hits());
+      assertArrayEquals(new byte[] { 0x0A, 0x0B }, (byte[])hit.get(0));
+      assertEquals(miss.subList(1, miss.size()), hit.subList(1, hit.size()));
+      
+      // selectValues overwrote the bytes it read. The cached ones are intact
+      assertArrayEquals(new byte[] { 0x0A, 0x0B }, 
+                        (byte[])selectValues(session, sql).get(0));
+    }
+  }
+  
+  /**
+   * Verify a Session with uncommitted writes bypasses the cache, and that 
+   * rows cached by another Session while the transaction was open are 
+   * removed when it rolls back.
+   */
+  @Test
+  public void testResultCacheRollback() throws Exception {
+    String sql = "SELECT COUNT(*) FROM dummy";
+    QueryResultCache cache = 
+      new QueryResultCache(10, Duration.ofMinutes(1)).cache(sql, "dummy");
+    try (DataSource ds = dsFactory.builder()
+           .url(getUrl()).username(getUser()).password(getPassword())
+           .property(DataSourcePropertiesJdbc.RESULT_CACHE, cache)
+           .build();
+         Session writer = ds.getSession();
+         Session reader = ds.getSession()) {
+      TestFixtures.createDummyTable(reader);
+      try {
+        assertEquals(Integer.valueOf(1), selectOne(writer, sql));
+        writer.rowCountOperation("INSERT INTO dummy VALUES ('Y')")
+          .timeout(getTimeout())
+          .submit();
+        
+        // the writer sees its row, the reader does not
+        assertEquals(Integer.valueOf(2), selectOne(writer, sql));
+        assertEquals(Integer.valueOf(1), selectOne(reader, sql));
+        assertEquals(Integer.valueOf(1), selectOne(reader, sql));
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.hits());
+        
+        writer.rollback()
+          .toCompletableFuture()
+          .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        assertEquals(Integer.valueOf(1), selectOne(writer, sql));
+        assertEquals(3, cache.misses());
+        assertEquals(Integer.valueOf(1), selectOne(reader, sql));
+        assertEquals(2, cache.hits());
+      }
+      finally {
+        TestFixtures.dropDummyTable(reader);
+      }
+    }
+  }
+  
+  private static List<Object> selectValues(Session session, String sql) 
+    throws Exception {
+    return session.<List<Object>>rowOperation(sql)
+             .collect(Collector.of(
+                        () -> new ArrayList<Object>(),
+                        (a, r) -> {
+                          byte[] b = r.at("B").get(byte[].class);
+                          a.add(b.clone());
+                          b[0] = 0;
+                          a.add(r.at("B").get(String.class));
+                          a.add(r.at("N").get(String.class));
+                          a.add(r.at("N").get(Double.class));
+                          a.add(r.at("N").get(Integer.class));
+                          a.add(r.at("S").get(String.class));
+                        },
+                        (l, r) -> l))
+             .timeout(getTimeout())
+             .submit()
+             .getCompletionStage()
+             .toCompletableFuture()
+             .get();
+  }
+  
+  private static Integer selectOne(Session session, String sql) 
+    throws Exception {
+    return session.<Integer>rowOperation(sql)
+             .collect(Collector.of(
+                        () -> new int[1],
+                        (a, r) -> a[0] = r.at(1).get(Integer.class),
+                        (l, r) -> l,
+                        a -> a[0]))
+             .timeout(getTimeout())
+             .submit()
+             .getCompletionStage()
+             .toCompletableFuture()
+             .get();
+  }
+  
   @Test
   public void testGetSessionWithJdbcProperties() throws Exception {
     String url = getUrl();
@@ -121,6 +326,37 @@ public class DataSourceTest {
       }
     }
   }
+
+  /**
+   * Verify that a DataSource limited to one resource makes a second Session
+   * wait until the first Session is closed.
+   */
+  @Test
+  public void testMaxResources() throws Exception {
+    try (DataSource ds = dsFactory.builder()
+           .url(getUrl()).username(getUser()).password(getPassword())
+           .property(AdbaDataSourceProperty.MAX_RESOURCES, 1)
+           .property(AdbaDataSourceProperty.MAX_IDLE_RESOURCES, 1)
+           .build()) {
+      
+      Session first = ds.getSession();
+      first.validationOperation(Validation.COMPLETE).timeout(getTimeout())
+        .submit().getCompletionStage().toCompletableFuture().get();
+      
+      try (Session second = ds.getSession()) {
+        CompletableFuture<Void> secondValid = 
+          second.validationOperation(Validation.COMPLETE).timeout(getTimeout())
+            .submit().getCompletionStage().toCompletableFuture();
+        Thread.sleep(500);
+        assertFalse(secondValid.isDone());
+        assertEquals(Session.Lifecycle.NEW, second.getSessionLifecycle());
+        
+        first.close();
+        secondValid.get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        assertEquals(Session.Lifecycle.ATTACHED, second.getSessionLifecycle());
+      }
+    }
+  }
   
   @Test
   public void testRegisterSessionProperty() {
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oracle.adbaoverjdbc.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.oracle.adbaoverjdbc.DataSourcePropertiesJdbc;
+import com.oracle.adbaoverjdbc.LatencyHistogram;
+import com.oracle.adbaoverjdbc.LatencyMetrics;
+import com.oracle.adbaoverjdbc.OperationMetrics;
+
+/**
+ * Verifies LatencyHistogram and LatencyMetrics. Does not use a database.
+ */
+public class LatencyMetricsTest {
+  
+  @Test
+  public void testHistogram() {
+    LatencyHistogram h = new LatencyHistogram();
+    assertEquals(0L, h.snapshot().count());
+    assertEquals(0L, h.snapshot().valueAt(99.0));
+    
+    for (long v = 1; v <= 1000; v++) {
+      h.record(v * 1000);
+    }
+    LatencyHistogram.Snapshot s = h.snapshot();
+    assertEquals(1000L, s.count());
+    assertEquals(1000L, s.min());
+    assertEquals(1_000_000L, s.max());
+    assertEquals(500_500.0, s.mean(), 0.001);
+    assertEquals(500_000.0, s.valueAt(50.0), 500_000 * 0.04);
+    assertEquals(990_000.0, s.valueAt(99.0), 990_000 * 0.04);
+    assertEquals(1_000_000L, s.valueAt(100.0));
+  }
+  
+  @Test
+  public void testHistogramExtremes() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.record(-5);
+    h.record(0);
+    h.record(Long.MAX_VALUE);
+    LatencyHistogram.Snapshot s = h.snapshot();
+    assertEquals(3L, s.count());
+    assertEquals(0L, s.min());
+    assertEquals(Long.MAX_VALUE, s.max());
+    assertEquals(0L, s.valueAt(50.0));
+    assertEquals(Long.MAX_VALUE, s.valueAt(100.0));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadPercentile() {
+    new LatencyHistogram().snapshot().valueAt(101.0);
+  }
+  
+  @Test
+  public void testNormalizedSql() {
+    LatencyMetrics metrics = new LatencyMetrics();
+    metrics.queued("SELECT name FROM t1  WHERE id = 1", 10);
+    metrics.executed("select name from t1 where id = 2", 20);
+    metrics.executed("SELECT name FROM t1 WHERE id =   42", 30);
+    metrics.fetched("SELECT name FROM t1 WHERE id = 3", 40, 7);
+    metrics.failed("SELECT name FROM t1 WHERE name = 'it''s'", new Exception());
+    metrics.canceled("SELECT name FROM t1 WHERE name = 'x'");
+    
+    Map<String, LatencyMetrics.Snapshot> snapshot = metrics.snapshot();
+    assertEquals(3, snapshot.size());
+    
+    LatencyMetrics.Snapshot byId = snapshot.get("SELECT name FROM t1 WHERE id = ?");
+    assertNotNull(byId);
+    assertEquals(1L, byId.queueTime().count());
+    assertEquals(1L, byId.executeTime().count());
+    assertEquals(1L, byId.fetchTime().count());
+    assertEquals(7L, byId.rows());
+    
+    LatencyMetrics.Snapshot byName = snapshot.get("SELECT name FROM t1 WHERE name = ?");
+    assertNotNull(byName);
+    assertEquals(1L, byName.errors());
+    assertEquals(1L, byName.cancellations());
+  }
+  
+  @Test
+  public void testStatementCache() {
+    LatencyMetrics metrics = new LatencyMetrics();
+    metrics.prepared("SELECT name FROM t1 WHERE id = ?", false);
+    metrics.prepared("SELECT name FROM t1 WHERE id = ?", true);
+    metrics.prepared("SELECT name FROM t1  WHERE id = ?", true);
+    
+    LatencyMetrics.Snapshot s = 
+      metrics.snapshot().get("SELECT name FROM t1 WHERE id = ?");
+    assertNotNull(s);
+    assertEquals(2L, s.statementCacheHits());
+    assertEquals(1L, s.statementCacheMisses());
+    assertEquals(0L, s.executeTime().count());
+  }
+  
+  @Test
+  public void testMetricsProperty() {
+    DataSourcePropertiesJdbc metrics = DataSourcePropertiesJdbc.METRICS;
+    assertEquals("METRICS", metrics.name());
+    assertEquals(OperationMetrics.class, metrics.range());
+    assertFalse(metrics.validate("metrics"));
+    assertTrue(metrics.validate(new LatencyMetrics()));
+    assertNull(metrics.defaultValue());
+    assertFalse(metrics.isSensitive());
+  }
+}
@@ -19,8 +19,16 @@ import jdk.incubator.sql2.DataSourceFactory;
 import jdk.incubator.sql2.ParameterizedRowCountOperation;
 import jdk.incubator.sql2.Result;
 import jdk.incubator.sql2.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 import java.util.stream.Collector;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -29,6 +37,8 @@ import static org.junit.Assert.*;
 import static com.oracle.adbaoverjdbc.test.TestConfig.*;
 
 import jdk.incubator.sql2.Session;
+import jdk.incubator.sql2.Submission;
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
 
 /**
  * This is a quick and dirty test to check if anything at all is working.
@@ -129,4 +139,77 @@ public class RowCountOperationTestWithDMLReturning {
         .get(TestConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
     }    
   }
+  
+  /**
+   * Verify that adjacent row count Operations with the same SQL are executed
+   * as one batch if COALESCE_COUNT_OPERATIONS is set, that each completes 
+   * with its own count, and that once the batch has executed its members 
+   * can no longer be canceled.
+   */
+  @Test
+  public void coalescedRowCountOperations() throws Exception {
+    List<String> executions = Collections.synchronizedList(new ArrayList<>());
+    Logger logger = Logger.getAnonymousLogger();
+    logger.setUseParentHandlers(false);
+    logger.setLevel(Level.FINE);
+    logger.addHandler(new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        if (record.getMessage().startsWith("executeLarge")) 
+          executions.add(record.getMessage());
+      }
+      
+      @Override
+      public void flush() {
+      }
+      
+      @Override
+      public void close() {
+      }
+    });
+    
+    DataSourceFactory factory = DataSourceFactory.newFactory(FACTORY_NAME);
+    try (DataSource ds = factory.builder()
+            .url(URL)
+            .username(USER)
+            .password(PASSWORD)
+            .build();
+            Session session = ds.builder()
+                                .property(SessionPropertiesJdbc.COALESCE_COUNT_OPERATIONS, true)
+                                .build()
+                                .attach()) {
+      session.logger(logger);
+      
+      // hold the Session until all the Operations are submitted
+      CompletableFuture<Void> gate = new CompletableFuture<>();
+      session.<Void>localOperation()
+        .onExecution(gate::get)
+        .submit();
+      List<Submission<Long>> submissions = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        submissions.add(session.<Long>rowCountOperation(
+                          "insert into " + TEST_TABLE + "(C11) values (:c)")
+                          .set("c", i)
+                          .apply(Result.RowCount::getCount)
+                          .submit());
+      }
+      gate.complete(null);
+      
+      for (Submission<Long> submission : submissions) {
+        assertEquals(Long.valueOf(1L), 
+                     submission.getCompletionStage()
+                               .toCompletableFuture()
+                               .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS));
+      }
+      assertEquals(1, executions.size());
+      assertTrue(executions.get(0).startsWith("executeLargeBatch"));
+      assertFalse(submissions.get(9)
+                             .cancel()
+                             .toCompletableFuture()
+                             .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS));
+      session.rollback()
+        .toCompletableFuture()
+        .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }    
+  }
 }
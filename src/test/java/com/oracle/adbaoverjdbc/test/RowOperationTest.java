@@ -17,21 +17,34 @@ package com.oracle.adbaoverjdbc.test;
 
 import jdk.incubator.sql2.DataSource;
 import jdk.incubator.sql2.Session;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collector;
+import java.util.stream.Collectors;
 import static org.junit.Assert.*;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import jdk.incubator.sql2.AdbaSessionProperty;
 import jdk.incubator.sql2.AdbaType;
 import jdk.incubator.sql2.Result.Column;
 
+import com.oracle.adbaoverjdbc.BatchLoader;
+import com.oracle.adbaoverjdbc.RowCollectors;
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
+
 import static com.oracle.adbaoverjdbc.test.TestConfig.*;
 
 public class RowOperationTest {
@@ -99,6 +112,120 @@ public class RowOperationTest {
     ForkJoinPool.commonPool().awaitQuiescence(1, TimeUnit.MINUTES);
   }
 
+  /**
+   * Verify that draining a long result set gives up the Executor between 
+   * time slices, so a task submitted while rows are being processed runs 
+   * before the last row, and that every row is still processed.
+   */
+  @Test
+  public void rowOperationYieldsBetweenSlices() throws Exception {
+    int rows = 1000;
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicLong probed = new AtomicLong(-1);
+    try (DataSource ds = getDataSource(); 
+         Session session = ds.builder()
+                             .property(AdbaSessionProperty.EXECUTOR, executor)
+                             .property(SessionPropertiesJdbc.ROW_DRAIN_TIME_SLICE, 
+                                       Duration.ZERO)
+                             .build()
+                             .attach()) {
+      long count = 
+        session.<Long>rowOperation("select level from dual connect by level <= " + rows)
+               .fetchSize(100)
+               .collect(Collector.of(
+                       () -> new long[1],
+                       (a, r) -> {
+                         // runs when the drain task gives up the only thread
+                         if (a[0]++ == 0) executor.execute(() -> probed.set(a[0]));
+                       },
+                       (l, r) -> l,
+                       a -> a[0]))
+               .timeout(getTimeout())
+               .submit()
+               .getCompletionStage()
+               .toCompletableFuture()
+               .get();
+      assertEquals(rows, count);
+      assertTrue(probed.get() > 0);
+      assertTrue(probed.get() < rows);
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Verify named parameters, including one used twice and a colon in a 
+   * literal that is not a parameter.
+   */
+  @Test
+  public void rowOperationNamedParameters() throws Exception {
+    try (DataSource ds = getDataSource(); Session session = ds.getSession()) {
+      Integer score = 
+        session.<Integer>rowOperation("select total_score from forum_user "
+                                      + "where (id = :id or id = -:id) "
+                                      + "and ':not_a_parameter' = ':not_a_parameter'")
+               .set("id", 7782)
+               .collect(Collector.of(
+                       () -> new int[1],
+                       (a, r) -> a[0] = r.at("total_score").get(Integer.class),
+                       (l, r) -> l,
+                       a -> a[0]))
+               .timeout(getTimeout())
+               .submit()
+               .getCompletionStage()
+               .toCompletableFuture()
+               .get();
+      assertEquals(Integer.valueOf(2450), score);
+    }
+  }
+
+  /**
+   * Verify that keys loaded together are selected by one query and each load
+   * completes with the row of its own key.
+   */
+  @Test
+  public void batchLoader() throws Exception {
+    try (DataSource ds = getDataSource();
+         BatchLoader<Integer, String> names = BatchLoader.newBatchLoader(ds,
+           "select id, name from forum_user where id in (:ids)", "ids",
+           row -> row.at("id").get(Integer.class),
+           row -> row.at("name").get(String.class))) {
+      CompletableFuture<String> ogorman = names.load(7782).toCompletableFuture();
+      CompletableFuture<String> fisher = names.load(7839).toCompletableFuture();
+      CompletableFuture<String> missing = names.load(-1).toCompletableFuture();
+      names.dispatchNow();
+      long timeout = getTimeout().toMillis();
+      assertEquals("OGORMAN", ogorman.get(timeout, TimeUnit.MILLISECONDS));
+      assertEquals("FISHER", fisher.get(timeout, TimeUnit.MILLISECONDS));
+      assertNull(missing.get(timeout, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  /**
+   * Verify that lowering maxBatchSize while keys are pending splits them 
+   * into several queries rather than dropping the keys over the limit.
+   */
+  @Test
+  public void batchLoaderLoweredMaxBatchSize() throws Exception {
+    try (DataSource ds = getDataSource();
+         BatchLoader<Integer, String> names = BatchLoader.newBatchLoader(ds,
+           "select id, name from forum_user where id in (:ids)", "ids",
+           row -> row.at("id").get(Integer.class),
+           row -> row.at("name").get(String.class))) {
+      names.window(Duration.ofMinutes(1));
+      CompletableFuture<String> douglas = names.load(7369).toCompletableFuture();
+      CompletableFuture<String> jean = names.load(7499).toCompletableFuture();
+      CompletableFuture<String> lance = names.load(7521).toCompletableFuture();
+      names.maxBatchSize(2);
+      names.dispatchNow();
+      long timeout = getTimeout().toMillis();
+      assertEquals("DOUGLAS", douglas.get(timeout, TimeUnit.MILLISECONDS));
+      assertEquals("JEAN", jean.get(timeout, TimeUnit.MILLISECONDS));
+      assertEquals("LANCE", lance.get(timeout, TimeUnit.MILLISECONDS));
+    }
+  }
+
   /**
    * Verify {@link com.oracle.adbaoverjdbc.Result.RowColumn}'s implementation
    * of Iterable<Column>.
@@ -579,6 +706,128 @@ public class RowOperationTest {
     }
   }
   
+  /**
+   * Verify the primitive getters of Column and the RowCollectors that use 
+   * them agree with {@link Column#get(Class)}.
+   */
+  @Test
+  public void testPrimitiveGetters() throws Exception {
+    try (DataSource ds = getDataSource(); Session se = ds.getSession()) {
+      long boxedSum = 
+        se.<Long>rowOperation("SELECT total_score FROM forum_user")
+          .collect(Collectors.summingLong(
+                     row -> row.at(1).get(Long.class)))
+          .timeout(getTimeout())
+          .submit()
+          .getCompletionStage()
+          .toCompletableFuture()
+          .get();
+      long primitiveSum = 
+        se.<Long>rowOperation("SELECT total_score FROM forum_user")
+          .collect(RowCollectors.summingLong("TOTAL_SCORE"))
+          .timeout(getTimeout())
+          .submit()
+          .getCompletionStage()
+          .toCompletableFuture()
+          .get();
+      long[] scores = 
+        se.<long[]>rowOperation("SELECT total_score FROM forum_user")
+          .collect(RowCollectors.toLongArray("TOTAL_SCORE"))
+          .timeout(getTimeout())
+          .submit()
+          .getCompletionStage()
+          .toCompletableFuture()
+          .get();
+      assertEquals(boxedSum, primitiveSum);
+      assertEquals(boxedSum, Arrays.stream(scores).sum());
+      
+      se.<Integer>rowOperation("SELECT total_score FROM forum_user"
+                               + " WHERE id = ?")
+        .set("1", 7782)
+        .collect(Collector.of(
+                   () -> null,
+                   (a, r) -> {
+                     assertEquals(2450, r.at(1).getInt());
+                     assertEquals(2450L, r.at(1).getLong());
+                     assertEquals(2450.0d, r.at(1).getDouble(), 0.0d);
+                   },
+                   (l, r) -> null))
+        .timeout(getTimeout())
+        .submit()
+        .getCompletionStage()
+        .toCompletableFuture()
+        .get();
+    }
+  }
+  
+  /**
+   * Verify that collecting ColumnChunks visits every row exactly once.
+   */
+  @Test
+  public void testCollectChunks() throws Exception {
+    try (DataSource ds = getDataSource(); Session se = ds.getSession()) {
+      List<String> values = 
+        se.<List<String>>rowOperation("SELECT * FROM " + TEST_TABLE)
+          .fetchSize(2)
+          .collectChunks(Collector.of(
+                     () -> new ArrayList<String>(),
+                     (l, chunk) -> {
+                       assertTrue(chunk.rowCount() <= 2);
+                       assertEquals(TEST_COLUMNS.length, chunk.columnCount());
+                       assertEquals(String.class, chunk.vectorType(1));
+                       String[] column = chunk.stringVector(1);
+                       for (int i = 0; i < chunk.rowCount(); i++) {
+                         l.add(column[i]);
+                       }
+                     },
+                     (l, r) -> null))
+          .timeout(getTimeout())
+          .submit()
+          .getCompletionStage()
+          .toCompletableFuture()
+          .get();
+      // TEST_DATA[0] holds the values of the first column
+      assertEquals(TEST_DATA[0].length, values.size());
+      for (String value : TEST_DATA[0]) {
+        assertTrue(values.contains(value));
+      }
+    }
+  }
+  
+  /**
+   * Verify that a RowColumn, and any clone or slice of it, is closed once
+   * the accumulator returns.
+   */
+  @Test
+  public void testRowClosedAfterAccumulator() throws Exception {
+    try (DataSource ds = getDataSource(); Session se = ds.getSession()) {
+      List<Column> escaped = 
+        se.<List<Column>>rowOperation("SELECT * FROM " + TEST_TABLE)
+          .collect(Collector.of(
+                     () -> new ArrayList<Column>(),
+                     (l, row) -> {
+                       assertEquals(1, row.index());
+                       l.add(row);
+                       l.add(row.clone());
+                       l.add(row.slice(2));
+                     },
+                     (l, r) -> null))
+          .timeout(getTimeout())
+          .submit()
+          .getCompletionStage()
+          .toCompletableFuture()
+          .get();
+      assertEquals(3 * TEST_DATA.length, escaped.size());
+      for (Column col : escaped) {
+        try {
+          col.index();
+          fail("IllegalStateException was expected");
+        }
+        catch(IllegalStateException expected) { /*expected*/}
+      }
+    }
+  }
+  
   private void validateColumn(int row, Column col, int index, int offset,
                               int length) {
     assertEquals(length - index, col.numberOfValuesRemaining());
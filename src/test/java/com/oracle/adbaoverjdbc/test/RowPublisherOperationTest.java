@@ -28,6 +28,10 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Flow;
 import jdk.incubator.sql2.Result;
 import jdk.incubator.sql2.Session;
+import jdk.incubator.sql2.DataSourceFactory;
+import com.oracle.adbaoverjdbc.DataSourcePropertiesJdbc;
+import com.oracle.adbaoverjdbc.LatencyMetrics;
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
 import static com.oracle.adbaoverjdbc.test.TestConfig.*;
 
 /**
@@ -117,6 +121,170 @@ public class RowPublisherOperationTest {
     assertEquals(14, names.size());  
   }
   
+  @Test
+  public void rowSubscriberWithPrefetch() throws Exception {
+    System.out.println("rowSubscriberWithPrefetch"); 
+    System.out.println("========================="); 
+
+    String sql = "select id, name from forum_user";
+    CompletableFuture<List<String>> result = new CompletableFuture<>();
+    CompletionStage<List<String>> cs;
+
+    Flow.Subscriber<Result.RowColumn> subscriber = getSubscriber(result, true);
+            
+    try (DataSource ds = getDataSource();
+         Session session = ds.builder()
+                             .property(SessionPropertiesJdbc.ROW_PUBLISHER_PREFETCH, 5)
+                             .build()
+                             .attach()) {
+            cs = session.<List<String>>rowPublisherOperation(sql)
+              .subscribe(subscriber, result)
+              .onError(e -> fail(e.getMessage()))
+              .submit()
+              .getCompletionStage();
+            
+      cs.toCompletableFuture().get(getTimeout().toMillis() + 7000, 
+                                   TimeUnit.MILLISECONDS);
+    }
+
+    List<String> names = result.get(getTimeout().toMillis(), 
+                                    TimeUnit.MILLISECONDS);
+    assertNotNull(names);
+    assertEquals(14, names.size()); 
+  }
+  
+  @Test
+  public void cancelPrefetchedRow() throws Exception {
+    System.out.println("cancelPrefetchedRow"); 
+    System.out.println("==================="); 
+
+    String sql = "select id, name from forum_user order by id";
+    CompletableFuture<List<String>> result = new CompletableFuture<>();
+    
+    Flow.Subscriber<Result.RowColumn> subscriber = new Flow.Subscriber<>() {
+      List<String> names = new ArrayList<>();
+      
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+      
+      @Override
+      public void onNext(Result.RowColumn row) {
+        names.add(row.at("NAME").get(String.class));
+        if (names.size() == 3) row.cancel();
+      }
+      
+      @Override
+      public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+      }
+      
+      @Override
+      public void onComplete() {
+        result.complete(names);
+      }
+    };
+            
+    try (DataSource ds = getDataSource();
+         Session session = ds.builder()
+                             .property(SessionPropertiesJdbc.ROW_PUBLISHER_PREFETCH, 5)
+                             .build()
+                             .attach()) {
+      session.<List<String>>rowPublisherOperation(sql)
+        .subscribe(subscriber, result)
+        .submit()
+        .getCompletionStage()
+        .toCompletableFuture()
+        .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // the canceled row is the last one, the Subscriber still completes
+    List<String> names = result.get(getTimeout().toMillis(), 
+                                    TimeUnit.MILLISECONDS);
+    assertEquals(3, names.size()); 
+  }
+  
+  /**
+   * Verify that a Subscriber that does not keep up does not hold up the 
+   * cursor, and that fetching stops once the buffer is full. The Subscriber
+   * takes one row, lags long enough for the fetch task to fill the buffer 
+   * and then cancels. Only that row and a buffer full were read.
+   */
+  @Test
+  public void slowRowSubscriberWithBuffer() throws Exception {
+    System.out.println("slowRowSubscriberWithBuffer"); 
+    System.out.println("==========================="); 
+
+    final int bufferSize = 4;
+    String sql = "select id, name from forum_user";
+    CompletableFuture<List<String>> result = new CompletableFuture<>();
+    LatencyMetrics metrics = new LatencyMetrics();
+
+    Flow.Subscriber<Result.RowColumn> subscriber = new Flow.Subscriber<>() {
+      Flow.Subscription subscription;
+      List<String> names = new ArrayList<>();
+      
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      }
+      
+      @Override
+      public void onNext(Result.RowColumn row) {
+        names.add(row.at("NAME").get(String.class));
+        try {
+          Thread.sleep(1000);
+        }
+        catch (InterruptedException ex) {
+          result.completeExceptionally(ex);
+        }
+        subscription.cancel();
+        result.complete(names);
+      }
+      
+      @Override
+      public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+      }
+      
+      @Override
+      public void onComplete() {
+        result.complete(names);
+      }
+    };
+            
+    try (DataSource ds = DataSourceFactory.newFactory(FACTORY_NAME)
+                           .builder()
+                           .url(URL)
+                           .username(USER)
+                           .password(PASSWORD)
+                           .property(DataSourcePropertiesJdbc.METRICS, metrics)
+                           // fetch while the Subscriber's thread is busy
+                           .property(DataSourcePropertiesJdbc.IO_THREADS, 2)
+                           .build();
+         Session session = ds.builder()
+                             .property(SessionPropertiesJdbc.ROW_PUBLISHER_BUFFER, 
+                                       bufferSize)
+                             .build()
+                             .attach()) {
+      session.<List<String>>rowPublisherOperation(sql)
+        .subscribe(subscriber, result)
+        .onError(e -> fail(e.getMessage()))
+        .submit()
+        .getCompletionStage()
+        .toCompletableFuture()
+        .get(getTimeout().toMillis() + 7000, TimeUnit.MILLISECONDS);
+    }
+
+    List<String> names = result.get(getTimeout().toMillis(), 
+                                    TimeUnit.MILLISECONDS);
+    assertEquals(1, names.size()); 
+    // the emitted row plus a full buffer, not all 14 rows
+    assertEquals(1 + bufferSize, metrics.snapshot().get(sql).rows());
+  }
+  
   private Session getSession() {
     return getDataSource().getSession();
   }
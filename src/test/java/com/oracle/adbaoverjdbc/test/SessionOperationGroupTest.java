@@ -4,9 +4,13 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
+
+import jdk.incubator.sql2.AdbaSessionProperty;
 import jdk.incubator.sql2.AdbaType;
 import jdk.incubator.sql2.ArrayRowCountOperation;
 import jdk.incubator.sql2.DataSource;
+import jdk.incubator.sql2.OperationGroup;
 import jdk.incubator.sql2.Result;
 import jdk.incubator.sql2.Session;
 import jdk.incubator.sql2.SqlSkippedException;
@@ -318,7 +322,86 @@ public class SessionOperationGroupTest {
       assertNull(result);
     }
   }
-    
+
+  /**
+   * Verify that a failed member of a parallel, independent OperationGroup
+   * does not cause its siblings to be skipped.
+   */
+  @Test
+  public void testParallelIndependentGroup() throws Exception {
+    try (DataSource ds = getDataSource();
+         Session se = ds.builder().build().attach()) {
+
+      AtomicBoolean opExecuted = new AtomicBoolean();
+      Submission<Object> groupSubmission;
+      Submission<Integer> siblingSubmission;
+      try (OperationGroup<Object, Object> group =
+             se.operationGroup()) {
+        groupSubmission =
+          group.parallel()
+               .independent()
+               .submit();
+        group.localOperation()
+             .onExecution(() -> {
+               throw new IllegalStateException("expected");
+             })
+             .submit();
+        siblingSubmission =
+          group.<Integer>localOperation()
+               .onExecution(() -> {
+                 opExecuted.set(true);
+                 return 1;
+               })
+               .submit();
+      }
+
+      assertEquals(1, siblingSubmission.getCompletionStage()
+                        .toCompletableFuture()
+                        .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .intValue());
+      groupSubmission.getCompletionStage()
+        .toCompletableFuture()
+        .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+      assertTrue(opExecuted.get());
+    }
+  }
+
+  /**
+   * Verify that the members of a parallel group in a read only Session are
+   * executed and their results accumulated when the members are spread 
+   * across several connections.
+   */
+  @Test
+  public void testParallelConnections() throws Exception {
+    try (DataSource ds = getDataSource();
+         Session se = ds.builder()
+                        .property(AdbaSessionProperty.READ_ONLY, true)
+                        .property(SessionPropertiesJdbc.PARALLEL_CONNECTIONS, 3)
+                        .build()
+                        .attach()) {
+
+      Submission<Integer> groupSubmission;
+      try (OperationGroup<Integer, Integer> group = se.operationGroup()) {
+        groupSubmission =
+          group.parallel()
+               .collect(Collectors.summingInt(i -> i))
+               .submit();
+        for (int i = 0; i < 6; i++) {
+          group.<Integer>rowOperation("SELECT COUNT(*) FROM " + TABLE)
+               .collect(Collectors.summingInt(
+                          row -> row.at(1).get(Integer.class) + 1))
+               .timeout(getTimeout())
+               .submit();
+        }
+      }
+
+      int total = groupSubmission.getCompletionStage()
+                    .toCompletableFuture()
+                    .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+      assertEquals(6, total);
+    }
+  }
+
   /**
    * A {@code Collector<Object, List<Object>, List<Object>>}. It's finisher 
    * type, R, is declared as Object so that it will be accepted by 
@@ -19,11 +19,14 @@ package com.oracle.adbaoverjdbc.test;
 import static jdk.incubator.sql2.AdbaSessionProperty.*;
 import static org.junit.Assert.*;
 
+import java.time.Duration;
 import java.util.Properties;
 
 import org.junit.Test;
 
 import com.oracle.adbaoverjdbc.ConnectionPropertiesJdbc;
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc.ExecutorMode;
 
 import jdk.incubator.sql2.SessionProperty;
 
@@ -83,5 +86,114 @@ public class SessionPropertyTest {
     assertTrue(sensitiveJdbcProps.isSensitive());
   }
   
+  @Test
+  public void testStatementCacheSize() {
+    SessionProperty cacheSize = SessionPropertiesJdbc.STATEMENT_CACHE_SIZE;
+    
+    assertEquals("STATEMENT_CACHE_SIZE", cacheSize.name());
+    assertEquals(Integer.class, cacheSize.range());
+    assertFalse(cacheSize.validate("20"));
+    assertFalse(cacheSize.validate(-1));
+    assertTrue(cacheSize.validate(0));
+    assertTrue(cacheSize.validate(100));
+    assertTrue(cacheSize.validate(cacheSize.defaultValue()));
+    assertFalse(cacheSize.isSensitive());
+  }
+  
+  @Test
+  public void testParallelConnections() {
+    SessionProperty parallel = SessionPropertiesJdbc.PARALLEL_CONNECTIONS;
+    
+    assertEquals("PARALLEL_CONNECTIONS", parallel.name());
+    assertEquals(Integer.class, parallel.range());
+    assertFalse(parallel.validate("2"));
+    assertFalse(parallel.validate(0));
+    assertTrue(parallel.validate(1));
+    assertTrue(parallel.validate(8));
+    assertEquals(1, parallel.defaultValue());
+    assertFalse(parallel.isSensitive());
+  }
+  
+  @Test
+  public void testRowDrainTimeSlice() {
+    SessionProperty slice = SessionPropertiesJdbc.ROW_DRAIN_TIME_SLICE;
+    
+    assertEquals("ROW_DRAIN_TIME_SLICE", slice.name());
+    assertEquals(Duration.class, slice.range());
+    assertFalse(slice.validate(10));
+    assertFalse(slice.validate(Duration.ofMillis(-1)));
+    assertTrue(slice.validate(Duration.ZERO));
+    assertTrue(slice.validate(slice.defaultValue()));
+    assertFalse(slice.isSensitive());
+  }
+  
+  @Test
+  public void testRowPublisherPrefetch() {
+    SessionProperty prefetch = SessionPropertiesJdbc.ROW_PUBLISHER_PREFETCH;
+    
+    assertEquals("ROW_PUBLISHER_PREFETCH", prefetch.name());
+    assertEquals(Integer.class, prefetch.range());
+    assertFalse(prefetch.validate(-1));
+    assertFalse(prefetch.validate(5L));
+    assertTrue(prefetch.validate(0));
+    assertTrue(prefetch.validate(prefetch.defaultValue()));
+    assertFalse(prefetch.isSensitive());
+  }
+  
+  @Test
+  public void testRowPublisherBuffer() {
+    SessionProperty buffer = SessionPropertiesJdbc.ROW_PUBLISHER_BUFFER;
+    
+    assertEquals("ROW_PUBLISHER_BUFFER", buffer.name());
+    assertEquals(Integer.class, buffer.range());
+    assertFalse(buffer.validate(-1));
+    assertFalse(buffer.validate("4"));
+    assertTrue(buffer.validate(64));
+    assertTrue(buffer.validate(buffer.defaultValue()));
+    assertFalse(buffer.isSensitive());
+  }
+  
+  @Test
+  public void testArrayCountChunkSize() {
+    SessionProperty chunkSize = SessionPropertiesJdbc.ARRAY_COUNT_CHUNK_SIZE;
+    
+    assertEquals("ARRAY_COUNT_CHUNK_SIZE", chunkSize.name());
+    assertEquals(Integer.class, chunkSize.range());
+    assertFalse(chunkSize.validate(-1));
+    assertTrue(chunkSize.validate(1000));
+    assertTrue(chunkSize.validate(chunkSize.defaultValue()));
+    assertFalse(chunkSize.isSensitive());
+    
+    SessionProperty pipeline = SessionPropertiesJdbc.ARRAY_COUNT_PIPELINE;
+    assertEquals(Boolean.class, pipeline.range());
+    assertFalse(pipeline.validate("true"));
+    assertTrue(pipeline.validate(true));
+    assertEquals(false, pipeline.defaultValue());
+  }
+  
+  @Test
+  public void testCoalesceCountOperations() {
+    SessionProperty coalesce = SessionPropertiesJdbc.COALESCE_COUNT_OPERATIONS;
+    
+    assertEquals("COALESCE_COUNT_OPERATIONS", coalesce.name());
+    assertEquals(Boolean.class, coalesce.range());
+    assertFalse(coalesce.validate("true"));
+    assertTrue(coalesce.validate(true));
+    assertEquals(false, coalesce.defaultValue());
+    assertFalse(coalesce.isSensitive());
+  }
+  
+  @Test
+  public void testExecutorMode() {
+    SessionProperty mode = SessionPropertiesJdbc.EXECUTOR_MODE;
+    
+    assertEquals("EXECUTOR_MODE", mode.name());
+    assertEquals(ExecutorMode.class, mode.range());
+    assertFalse(mode.validate("VIRTUAL_THREADS"));
+    assertTrue(mode.validate(ExecutorMode.VIRTUAL_THREADS));
+    assertEquals(ExecutorMode.PROPERTY, mode.defaultValue());
+    assertFalse(mode.isSensitive());
+  }
+  
   // TODO: Test the configureOperation API
 }
@@ -25,6 +25,8 @@ import jdk.incubator.sql2.Session.Builder;
 import jdk.incubator.sql2.Session.Lifecycle;
 import jdk.incubator.sql2.Session.SessionLifecycleListener;
 import jdk.incubator.sql2.Session.Validation;
+import jdk.incubator.sql2.SqlException;
+import jdk.incubator.sql2.SqlSkippedException;
 import jdk.incubator.sql2.Submission;
 import jdk.incubator.sql2.TransactionCompletion;
 import jdk.incubator.sql2.TransactionOutcome;
@@ -38,6 +40,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
@@ -48,6 +51,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -55,6 +59,8 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc;
+import com.oracle.adbaoverjdbc.SessionPropertiesJdbc.ExecutorMode;
 import com.oracle.adbaoverjdbc.test.SessionTest.TestLifecycleListener.LifecycleEvent;
 
 import static com.oracle.adbaoverjdbc.test.TestConfig.*;
@@ -219,6 +225,76 @@ public class SessionTest {
    * fails.[Spec: {@link Session.Builder}]
    * @throws java.lang.Exception
    */
+  /**
+   * Verify that a Session is built with virtual threads if and only if the
+   * JVM supports them, and that its Operations execute.
+   */
+  @Test
+  public void testVirtualThreadExecutor() throws Exception {
+    try (DataSource ds = getDataSource()) {
+      Session se;
+      try {
+        se = ds.builder()
+               .property(SessionPropertiesJdbc.EXECUTOR_MODE, 
+                         ExecutorMode.VIRTUAL_THREADS)
+               .build();
+      }
+      catch (UnsupportedOperationException ex) {
+        assertTrue(Runtime.version().feature() < 21);
+        return;
+      }
+      assertTrue(Runtime.version().feature() >= 21);
+      try (se) {
+        se.attachOperation().submit();
+        se.validationOperation(Validation.SOCKET)
+          .submit()
+          .getCompletionStage()
+          .toCompletableFuture()
+          .get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+  
+  /**
+   * Verify that an Operation's timeout includes the time it waits for its
+   * predecessor, and that it completes exceptionally when it expires.
+   */
+  @Test
+  public void testTimeoutWhileQueued() throws Exception {
+    CountDownLatch blocker = new CountDownLatch(1);
+    AtomicReference<Throwable> handled = new AtomicReference<>();
+    try (DataSource ds = getDataSource();
+         Session se = ds.getSession()) {
+      se.<Void>localOperation()
+        .onExecution(() -> {
+          blocker.await();
+          return null;
+        })
+        .submit();
+      CompletableFuture<Object> timedOut = 
+        se.<Object>rowOperation("SELECT 1 FROM DUAL")
+          .timeout(Duration.ofMillis(200))
+          .onError(handled::set)
+          .submit()
+          .getCompletionStage()
+          .toCompletableFuture();
+      try {
+        timedOut.get(getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        fail("expected a timeout");
+      }
+      catch (ExecutionException ex) {
+        assertTrue(handled.get() instanceof SqlException);
+        assertEquals("HYT00", ((SqlException)handled.get()).getSqlState());
+        assertFalse(ex.getCause() instanceof SqlSkippedException);
+        assertTrue(ex.getCause() instanceof SqlException);
+        assertEquals("HYT00", ((SqlException)ex.getCause()).getSqlState());
+      }
+      finally {
+        blocker.countDown();
+      }
+    }
+  }
+  
   @Test
   public void testAttachFailure() throws Exception {
     